@@ -0,0 +1,59 @@
+package catchthebeat.game;
+
+import catchthebeat.ui.FrontBackLink;
+
+/**
+ * Class BenchmarkGame
+ * 
+ * Game mode used by benchmarks only. There is a single human player who
+ * repeats a sequence of fixed length over and over again, so every round
+ * walks the whole sequence and the state does not drift between iterations.
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+public class BenchmarkGame extends Game {
+
+    /**
+     * Constructor fills the sequence up to the requested length and lets the
+     * Beatstarter play his round, so the human player is current when the
+     * constructor returns.
+     * 
+     * @param  difficulty   Integer representing the difficulty: 0=easy, 1=medium, 2=hard.
+     * @param  noBeats      Length of the beat sequence.
+     * @param  frontLink    FrontBackLink object (usually a HeadlessLink).
+     */
+    public BenchmarkGame(int difficulty, int noBeats, FrontBackLink frontLink) {
+        super(new String[] {"Benchmark"}, difficulty, frontLink);
+        this.noPlayers = 1;
+        this.players = new Player[noPlayers + 1];
+        this.players[0] = new Player("Beatstarter", true);
+        this.players[1] = new Player("Benchmark", false);
+        while (beats.size() < noBeats) {
+            beats.add(random.nextSequenceBeat(NO_OF_BEAT_TYPES[difficulty]));
+        }
+        super.nextPlayer(); // Beatstarter
+        super.nextPlayer(); // human player
+    }
+
+    /**
+     * Plays one round answering every beat correctly.
+     * 
+     * @return Number of the next round (consumed by the benchmark).
+     */
+    public int playRound() {
+        int round = roundNumber;
+        while (roundNumber == round) {
+            tick();
+            if (!currentBeatAnsweredFlag) {
+                beat(currentCorrectBeat);
+            }
+        }
+        return roundNumber;
+    }
+
+    @Override
+    public boolean currentPlayerWillAddBeat() {
+        return false;
+    }
+}
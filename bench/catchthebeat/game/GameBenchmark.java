@@ -0,0 +1,62 @@
+package catchthebeat.game;
+
+import catchthebeat.sim.HeadlessLink;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Class GameBenchmark
+ * 
+ * Measures the backend hot path, i.e. Game.tick() and Game.beat() as they
+ * are called during a round.
+ * 
+ * 1) round plays the whole sequence once (one tick and one beat per drum).
+ * 2) tickAndBeat is a single timeframe of a round.
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameBenchmark {
+
+    @Param({"0", "1", "2"})
+    public int difficulty;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int noBeats;
+
+    private BenchmarkGame game;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        HeadlessLink link = new HeadlessLink();
+        game = new BenchmarkGame(difficulty, noBeats, link);
+        link.setGame(game);
+    }
+
+    @Benchmark
+    public int round() {
+        return game.playRound();
+    }
+
+    @Benchmark
+    public int tickAndBeat() {
+        game.tick();
+        if (game.isAwaitingBeat()) {
+            game.beat(game.currentCorrectBeat);
+        }
+        return game.getCurrentBeatIndex();
+    }
+}
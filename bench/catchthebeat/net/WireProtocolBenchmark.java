@@ -0,0 +1,106 @@
+package catchthebeat.net;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Class WireProtocolBenchmark
+ *
+ * Measures encoding and decoding of the events of WireProtocol (results are
+ * per event, i.e. millions of events per second = 1000 / result).
+ *
+ * 1) encode writes a batch of events as a match produces them (tick, beats
+ *    shown, round ends, effects and the keyboard lock) into a direct buffer.
+ * 2) decode passes the same batch to a handler.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class WireProtocolBenchmark {
+
+    private static final int EVENTS = 1024; // batch of 8 events repeated
+
+    private ByteBuffer buffer;
+    private final CountingHandler handler = new CountingHandler();
+
+    // Nested handler adding up the fields, so the decoding is not optimised away
+    private static class CountingHandler implements WireProtocol.Handler {
+
+        long sum;
+
+        @Override
+        public void tick(long time) {
+            sum += time;
+        }
+
+        @Override
+        public void beat(int player, int beat, boolean computer, int accuracy, long time) {
+            sum += player + beat + accuracy + (computer ? 1 : 0);
+        }
+
+        @Override
+        public void sendBeat(int beat, boolean correct, long time) {
+            sum += beat + (correct ? 1 : 0);
+        }
+
+        @Override
+        public void endRound(boolean endGame, long time) {
+            sum += endGame ? 1 : 0;
+        }
+
+        @Override
+        public void playEffect(int effect, long time) {
+            sum += effect;
+        }
+
+        @Override
+        public void keyboardLocked(boolean locked, long time) {
+            sum += locked ? 1 : 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        buffer = WireProtocol.allocate(EVENTS);
+        encode();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int encode() {
+        ByteBuffer out = buffer;
+        out.clear();
+        for (int i = 0; i < EVENTS; i += 8) {
+            WireProtocol.putTick(out, i);
+            WireProtocol.putBeat(out, 1, i & 3, false, 2, i);
+            WireProtocol.putSendBeat(out, i & 3, true, i);
+            WireProtocol.putKeyboardLocked(out, true, i);
+            WireProtocol.putBeat(out, 2, (i + 1) & 3, true, -1, i);
+            WireProtocol.putSendBeat(out, (i + 1) & 3, false, i);
+            WireProtocol.putPlayEffect(out, 5, i);
+            WireProtocol.putEndRound(out, false, i);
+        }
+        return out.position();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long decode() {
+        buffer.position(0).limit(EVENTS * WireProtocol.FRAME_SIZE);
+        WireProtocol.dispatch(buffer, handler);
+        return handler.sum;
+    }
+}
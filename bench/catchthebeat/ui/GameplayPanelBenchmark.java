@@ -0,0 +1,67 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat.ui;
+
+import catchthebeat.game.BenchmarkGame;
+import catchthebeat.sim.HeadlessLink;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Class GameplayPanelBenchmark
+ * 
+ * Measures rendering of one frame of a running round (background, drums and
+ * tick) into the off screen image and drum initialisation at round start.
+ * 
+ * The panel is not displayed, it is connected to a game through HeadlessLink.
+ * The round is not run, so the panel gets no animation or beat scheduler
+ * (no sound mixer or threads are created).
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameplayPanelBenchmark {
+
+    @Param({"0", "1", "2"})
+    public int difficulty;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int noBeats;
+
+    private GameplayPanel gamePanel;
+
+    @Setup
+    public void setUp() {
+        HeadlessLink link = new HeadlessLink();
+        link.setGame(new BenchmarkGame(difficulty, noBeats, link));
+        gamePanel = new GameplayPanel(new ImageLoader(), null, null);
+        gamePanel.setFrontBackLink(link);
+        gamePanel.initDrums();
+    }
+
+    @Benchmark
+    public GameplayPanel roundRender() {
+        gamePanel.roundRender(1f);
+        return gamePanel;
+    }
+
+    @Benchmark
+    public GameplayPanel initDrums() {
+        gamePanel.initDrums();
+        return gamePanel;
+    }
+}
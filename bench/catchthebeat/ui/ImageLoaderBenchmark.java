@@ -0,0 +1,102 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat.ui;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Class ImageLoaderBenchmark
+ * 
+ * Measures image lookups as done by sprites
+ * 
+ * 1) getSprite is a lookup of an already cached image
+ * 2) loadAll creates a new loader and loads all the images used by the game
+ *    (application startup, packing the atlas)
+ * 3) drawLoaded and drawFromAtlas draw a drum into a frame as read by ImageIO
+ *    and as a sub-image of the atlas (what a sprite draws)
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ImageLoaderBenchmark {
+
+    private static final String[] imageNames = {"BannerBgc.png",
+                                                "GameDrum_1.png",
+                                                "GameDrum_2.png",
+                                                "GameDrum_3.png",
+                                                "GameDrum_4.png",
+                                                "GameDrum_correct.png",
+                                                "GameDrum_new.png",
+                                                "GameDrum_unknown.png",
+                                                "GameDrum_wrong.png",
+                                                "GameplayBgc.png",
+                                                "PlayerBgc.png",
+                                                "PlayerDrum.png",
+                                                "Tick.png"};
+
+    private ImageLoader iLoader;
+    private BufferedImage loadedImage;
+    private BufferedImage atlasImage;
+    private BufferedImage frame;
+    private Graphics2D frameGraphics;
+
+    @Setup
+    public void setUp() throws IOException {
+        iLoader = new ImageLoader();
+        atlasImage = iLoader.getSprite("GameDrum_1.png");
+        loadedImage = ImageIO.read(ImageLoader.class.getResource(ImageLoader.IMAGES_DIR + "GameDrum_1.png"));
+        frame = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        frameGraphics = frame.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        frameGraphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage getSprite() {
+        return iLoader.getSprite("GameDrum_1.png");
+    }
+
+    @Benchmark
+    public BufferedImage drawLoaded() {
+        frameGraphics.drawImage(loadedImage, 10, 10, null);
+        return frame;
+    }
+
+    @Benchmark
+    public BufferedImage drawFromAtlas() {
+        frameGraphics.drawImage(atlasImage, 10, 10, null);
+        return frame;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void loadAll(Blackhole bh) {
+        ImageLoader loader = new ImageLoader();
+        for (int i = 0; i < imageNames.length; i++) {
+            bh.consume(loader.getSprite(imageNames[i]));
+        }
+    }
+}
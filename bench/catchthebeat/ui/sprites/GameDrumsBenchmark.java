@@ -0,0 +1,115 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat.ui.sprites;
+
+import catchthebeat.ui.GameplayPanel;
+import catchthebeat.ui.ImageLoader;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Class GameDrumsBenchmark
+ * 
+ * Measures one animation frame of the beat sequence strip
+ * 
+ * 1) updateSprites moves the drums by one step. Once the end of the sequence
+ *    would come onto the panel, the round is started again (within the measured
+ *    call, once per hundreds of steps), so every call moves a full panel of
+ *    drums and never an empty one
+ * 2) drawSprites paints the drums to an off screen image
+ * 3) A round is started by jumping to the time the head of the sequence
+ *    fills the panel, so the frame looks like a running round
+ * 4) Drums are not connected to a panel (they are never ticked here), so no
+ *    sound mixer, scheduler or their threads are created
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameDrumsBenchmark {
+
+    @Param({"0", "1", "2"})
+    public int difficulty;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int noBeats;
+
+    private ImageLoader iLoader;
+    private Sprite tickSprite;
+    private GameDrums gameDrums;
+    private BufferedImage offScreenImage;
+    private Graphics g;
+    // time of the round in steps, round is started again after lastSteps
+    private double steps;
+    private double lastSteps;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        iLoader = new ImageLoader();
+        tickSprite = new Sprite(GameplayPanel.PANEL_WIDTH/2 - GameplayPanel.TICK_WIDTH/2, 0,
+                GameplayPanel.PANEL_WIDTH, GameplayPanel.PANEL_HEIGHT, iLoader, new String[] {"Tick.png"});
+        offScreenImage = new BufferedImage(GameplayPanel.PANEL_WIDTH, GameplayPanel.PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = offScreenImage.getGraphics();
+    }
+
+    @Setup(Level.Trial)
+    public void createDrums() {
+        gameDrums = new GameDrums();
+        for (int i = 0; i < noBeats; i++) {
+            gameDrums.add(new GameDrumSprite(GameplayPanel.PANEL_WIDTH, GameplayPanel.PANEL_HEIGHT,
+                    iLoader, null, tickSprite, difficulty, i, false));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void initDrums() {
+        startRound();
+    }
+
+    // start a round at the time the head of the sequence fills the panel
+    private void startRound() {
+        gameDrums.newRound(difficulty, false);
+        steps = (double) GameplayPanel.PANEL_WIDTH / gameDrums.getStep();
+        // end of the sequence reaches the left edge of the panel
+        lastSteps = Math.max(steps + 1, (double) gameDrums.getSpacing() * noBeats / gameDrums.getStep());
+        gameDrums.updateSprites(steps);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public GameDrums updateSprites() {
+        steps++;
+        if (steps > lastSteps) {
+            startRound(); // drums would start leaving the panel empty
+        }
+        gameDrums.updateSprites(steps);
+        return gameDrums;
+    }
+
+    @Benchmark
+    public BufferedImage drawSprites() {
+        gameDrums.drawSprites(g);
+        return offScreenImage;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class AppendLog
+ *
+ * This class saves a data file of the game (high scores, players, leaderboard)
+ * as a log of lines without blocking the GUI: each change is appended as one
+ * line and once the file holds many more lines than needed it is replaced by
+ * all the data (see SafeFile).
+ *
+ * 1) All writes are done by one background thread in the order they were
+ *    asked for, so a replace never overtakes an append
+ * 2) The file is read line by line when the store is created. If the rename
+ *    of a replace was not finished, the temporary file is read instead
+ * 3) A line that does not end with a line break (cut by a power cut or a failed
+ *    write) is not read. The file is rewritten then, and if that fails the line
+ *    is cut off the file before the next append, so a new line is never glued
+ *    to it
+ * 4) When the application exits, the writer thread finishes the queued writes
+ *    (waits for at most SHUTDOWN_TIMEOUT milliseconds)
+ * 5) Errors are printed to the console, the data stay in memory
+ *
+ * @author agent
+ * @version 2026.10
+ */
+final class AppendLog {
+
+    private static final long SHUTDOWN_TIMEOUT = 2000;
+
+    /**
+     * Interface LineHandler
+     *
+     * Gets the lines of the file when it is read.
+     */
+    interface LineHandler {
+
+        // false if the line is incomplete or of an older format (file is rewritten)
+        boolean line(String line);
+    }
+
+    private final File file;
+    private final File tempFile;
+    private final ExecutorService writer;
+    // length of the complete lines if the file ends with an incomplete one, else -1
+    // (set before the writer thread starts, then used by it only)
+    private long tornAt = -1;
+
+    /**
+     * Starts the writer thread.
+     *
+     * @param fileName File with the data.
+     * @param name Name of the data (for the names of the threads).
+     */
+    AppendLog(String fileName, String name) {
+        file = new File(fileName);
+        tempFile = new File(fileName + ".tmp");
+        final String threadName = name + " writer";
+        writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // let the writer finish the queued writes when the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(name + " shutdown") {
+            @Override
+            public void run() {
+                close();
+            }
+        });
+    }
+
+    // true if there is a file (or the temporary one) to read
+    boolean exists() {
+        return file.exists() || tempFile.exists();
+    }
+
+    // pass the lines of the file (or of the temporary one) to the handler,
+    // true if the file should be replaced (some lines were not valid)
+    boolean read(LineHandler handler) {
+        File source = file.exists() ? file : tempFile;
+        if (!source.exists()) {
+            return false;
+        }
+        boolean rewrite = source == tempFile;
+        BufferedReader reader = null;
+        try {
+            byte[] data = Files.readAllBytes(source.toPath());
+            // complete lines only
+            int end = data.length;
+            while (end > 0 && data[end - 1] != '\n') {
+                end--;
+            }
+            if (end < data.length) {
+                rewrite = true;
+                if (source == file) {
+                    tornAt = end;
+                }
+            }
+            reader = new BufferedReader(new StringReader(new String(data, 0, end, "UTF-8")));
+            for (String line; (line = reader.readLine()) != null;) {
+                if (!handler.line(line)) {
+                    rewrite = true;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("The file " + source + " could not be read! " + e.getMessage());
+        } finally {
+            SafeFile.close(reader);
+        }
+        return rewrite;
+    }
+
+    // append the line(s) by the writer thread, false if the log is closed
+    boolean append(final String lines) {
+        return execute(new Runnable() {
+            @Override
+            public void run() {
+                if (tornAt >= 0) {
+                    if (!SafeFile.truncate(file, tornAt)) {
+                        return; // stays in memory, saved by the next replace
+                    }
+                    tornAt = -1;
+                }
+                long length = file.length();
+                if (!SafeFile.write(file, lines, true)) {
+                    tornAt = length; // part of the lines may have been written
+                }
+            }
+        });
+    }
+
+    // replace the file by the data by the writer thread, false if the log is closed
+    boolean compact(final String data) {
+        return execute(new Runnable() {
+            @Override
+            public void run() {
+                if (SafeFile.replace(file, tempFile, data)) {
+                    tornAt = -1;
+                }
+            }
+        });
+    }
+
+    private boolean execute(Runnable write) {
+        try {
+            writer.execute(write);
+            return true;
+        } catch (RejectedExecutionException e) { // log closed
+            return false;
+        }
+    }
+
+    /**
+     * Stops the writer thread once the queued writes are done (waits for
+     * at most SHUTDOWN_TIMEOUT milliseconds).
+     */
+    void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
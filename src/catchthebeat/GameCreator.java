@@ -11,18 +11,13 @@ import catchthebeat.ui.PlayersDialog;
 import catchthebeat.ui.ScoreDialog;
 import catchthebeat.game.Game;
 import catchthebeat.game.MultiPlayerGame;
-import catchthebeat.game.Player;
 import catchthebeat.game.Score;
+import catchthebeat.game.SeededGameRandom;
 import catchthebeat.game.SinglePlayerGame;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import catchthebeat.sim.MatchLog;
+import catchthebeat.sim.MatchReplay;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.List;
 import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
@@ -39,8 +34,21 @@ import javax.swing.SwingUtilities;
  * 2) Users can change player names and validation makes sure if one of the names
  *    is left blank it is filled with default e.g. Player 7 name.
  * 3) Data from new game dialog are validated by this dialog before passed to the class
- * 4) Class uses buffered string to write new data to a file all at once so this
- *    string has to be created in advance after data are read (and edited)
+ * 4) Players are kept by PlayerRegistry (loaded once at startup), the names
+ *    at its seats are the players of the next game. Names saved by the players
+ *    dialog are registered (if new) and seated
+ * 5) High scores are kept by HighScoreStore (for each mode and difficulty) which
+ *    saves them in the background, dialogs show the scores of the setting of
+ *    the last game (or of all settings if there was no game). Leaderboard
+ *    counts the scores of all won games, so the rank of the winner among
+ *    them is shown as well
+ * 6) If a file cannot be read or written the error is printed, the application
+ *    keeps running
+ * 7) A match recorded in the match log can be replayed instead of a new game,
+ *    its score is not saved
+ * 8) Games are started with a new random seed, or with the seed set by
+ *    -Dcatchthebeat.seed (a tournament: every game starts with the same beats
+ *    and the computer adds the same ones)
  * 
  * 
  * @author Roman Velic
@@ -58,16 +66,27 @@ public class GameCreator {
     
     private String[] playerNames;
     private int playersInGame;
+    private PlayerRegistry playerRegistry;
     private ArrayList<Score> highScores;
+    private HighScoreStore highScoreStore;
+    private Leaderboard leaderboard;
+    private int gameMode = HighScoreStore.ANY; // setting of the last game
+    private int gameDifficulty = HighScoreStore.ANY;
+    private boolean replaying = false;
+    private Long tournamentSeed = Long.getLong("catchthebeat.seed");
     
-    public static final int PLAYERS_DATA = 1;
-    public static final int SCORE_DATA = 2;
-    private StringBuffer stringBuffer;
+    private static final String PLAYERS_FILE = "players.txt";
+    private static final String SCORE_FILE = "highScore.txt";
+    private static final String LEADERBOARD_FILE = "leaderboard.txt";
+    private static final int MAX_SUGGESTIONS = 10;
         
     public GameCreator(JFrame frame, GameplayPanel panel, FrontBackLink link) {      
         gpp = panel;
         gui = frame;
         frontBackLink = link;
+        highScoreStore = new HighScoreStore(SCORE_FILE);
+        leaderboard = new Leaderboard(LEADERBOARD_FILE, highScoreStore);
+        playerRegistry = new PlayerRegistry(PLAYERS_FILE);
     }
     
     public void newGame(){        
@@ -95,11 +114,15 @@ public class GameCreator {
     public void startGame(boolean singleplayer, int noPlayers, int difficulty) {
         // read player names and create a game
         playersInGame = noPlayers;
-        readGameData(PLAYERS_DATA);
+        playerNames = playerRegistry.getSeatedNames(playersInGame);
+        gameMode = singleplayer ? HighScoreStore.SINGLE_PLAYER : HighScoreStore.MULTI_PLAYER;
+        gameDifficulty = difficulty;
+        SeededGameRandom random = (tournamentSeed != null)
+                ? new SeededGameRandom(tournamentSeed) : new SeededGameRandom();
         if (singleplayer) {           
-           game = new SinglePlayerGame(playerNames, difficulty, frontBackLink);
+           game = new SinglePlayerGame(playerNames, difficulty, frontBackLink, random);
         } else {
-           game = new MultiPlayerGame(playerNames, difficulty, frontBackLink);
+           game = new MultiPlayerGame(playerNames, difficulty, frontBackLink, random);
         }
         
         ///set required references (connect game with GUI)
@@ -111,35 +134,57 @@ public class GameCreator {
         gpp.startRound(false); // start playing (no previous state)
     }
     
+    // replay a recorded match (replay is at the start of the match)
+    public void replayMatch(MatchReplay replay) {
+        replaying = true;
+        if (replay.getMode() == MatchLog.SINGLE_PLAYER) {
+            gameMode = HighScoreStore.SINGLE_PLAYER;
+        } else {
+            gameMode = HighScoreStore.MULTI_PLAYER;
+        }
+        gameDifficulty = replay.getDifficulty();
+        frontBackLink.setReplay(replay);
+        game = replay.createGame(frontBackLink);
+        
+        ///set required references (connect game with GUI)
+        frontBackLink.setGame(game);
+        gpp.setFrontBackLink(frontBackLink);
+        gpp.setGameCreator(this);
+        gpp.startRound(false);
+    }
+    
     public void showHighScore(Score gameScore){
-        // read scores in and display
-        if (readGameData(SCORE_DATA)) {
-            if (gameDialog != null) gameDialog.dispose();
-            scoreDialog = new ScoreDialog(gui, true, this, highScores, gameScore);
-            scoreDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
-            scoreDialog.setVisible(true);
+        // scores of the last game setting or of all settings
+        int rank = 0;
+        int games = 0;
+        if (gameScore != null) {
+            highScores = highScoreStore.getHighScores(gameMode, gameDifficulty);
+            rank = leaderboard.getRank(gameMode, gameDifficulty, gameScore.getPoints());
+            games = leaderboard.getCount(gameMode, gameDifficulty);
+        } else {
+            highScores = highScoreStore.getHighScores(HighScoreStore.ANY, HighScoreStore.ANY);
         }
+        if (gameDialog != null) gameDialog.dispose();
+        scoreDialog = new ScoreDialog(gui, true, this, highScores, gameScore, rank, games);
+        scoreDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        scoreDialog.setVisible(true);
     }
     
     public void saveHighScore(Score gameScore){
-        if (readGameData(SCORE_DATA)) {
-            // add this score to all loaded scores
-            highScores.add(gameScore); 
-            // sort scores high to low, take highest 3 and make buffered string
-            Collections.sort(highScores);
-            stringBuffer = new StringBuffer();
-            for(int i = 0; i < 3; i++){
-                String winner = highScores.get(i).getWinner().getName();
-                String points = highScores.get(i).getPoints() + "";
-                stringBuffer.append(winner).append("\r\n"); // add winner name
-                stringBuffer.append(points).append("\r\n"); // all winner points (beats)
-            }
-        }
-        saveGameData(SCORE_DATA, stringBuffer.toString());
+        // kept only if high enough, counted for the ranks, saved in the background
+        highScoreStore.add(gameMode, gameDifficulty, gameScore);
+        leaderboard.add(gameMode, gameDifficulty, gameScore.getPoints());
         showHighScore(gameScore);
     }
     
     public void restart() {
+        // replayed match is over, go to new game
+        if (replaying) {
+            replaying = false;
+            frontBackLink.setReplay(null);
+            newGame();
+            return;
+        }
         // save score from last game and show dialog for new one
         Score score = game.getCurrentScore();
         // if no one wins (ie CPU wins) just go to new game
@@ -152,80 +197,30 @@ public class GameCreator {
     }
     
     public void editPlayers() {
-        playersInGame = 10; // max 10 players
-        if (readGameData(PLAYERS_DATA)) { //read player names and display
-            if (gameDialog != null) gameDialog.dispose();
-            playersDialog = new PlayersDialog(gui, true, this, playerNames);
-            playersDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
-            playersDialog.setVisible(true);
-        }
+        playersInGame = PlayerRegistry.SEATS; // max 10 players
+        playerNames = playerRegistry.getSeatedNames(playersInGame); // names at all seats
+        if (gameDialog != null) gameDialog.dispose();
+        playersDialog = new PlayersDialog(gui, true, this, playerNames);
+        playersDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        playersDialog.setVisible(true);
         
     }
     
     public void savePlayers(String[] playerNames) {
-        stringBuffer = new StringBuffer();
         for (int i = 0; i < playerNames.length; i++) {
-            String name = playerNames[i];
+            String name = playerNames[i].trim();
             if (name.equals("")) { //empty strings will be converted to "Player <player number>"
                 name = "Player " + (i+1);
             }
-            stringBuffer.append(name).append("\r\n"); // one player name one line
+            // new names are registered, the player is seated
+            playerRegistry.seat(i, playerRegistry.register(name));
         }
-        saveGameData(PLAYERS_DATA, stringBuffer.toString());
         newGame();
     }
     
-    // read players or high scores
-    private boolean readGameData(int read) {
-        playerNames = new String[playersInGame];
-        highScores = new ArrayList<Score>();
-        
-        String fileName = "players.txt";
-        if (read == SCORE_DATA) {
-            fileName = "highScore.txt";
-        }
-        try {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(new DataInputStream(new FileInputStream(fileName))));
-            int lineNumber = 0;
-            for (String line; (line = reader.readLine()) != null;) {
-                if (read == PLAYERS_DATA && lineNumber < playersInGame) { //don't need all of them
-                    playerNames[lineNumber] = line;
-                }
-                else if (read == SCORE_DATA) {
-                    //read two lines (first = winner, second = score)
-                    highScores.add(new Score(new Player(line, false), Integer.parseInt(reader.readLine())));
-                }
-                lineNumber++;
-            }
-        } catch (IOException ex) { // handle errors
-            System.out.println("The file " + fileName + " could not be found or opened! "+ex.getMessage());
-            System.exit(0);
-            return false;
-        } finally {
-            return true;
-        }
-        
-    }
-    
-    // write players or high scores
-    // data have to be already formatted as one string
-    private boolean saveGameData(int write, String data) {
-        String fileName = "players.txt";
-        if (write == SCORE_DATA) {
-            fileName = "highScore.txt";
-        }
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
-            writer.write(data);//write the new data to file
-            writer.close();//close the file
-            return true;
-        } catch (Exception e) {//if an exception occurs
-            System.out.println("Error occured while attempting to write to file: " + e.getMessage());
-            System.exit(0);
-            return false;
-        } finally {
-            return true;
-        }
+    // registered names starting with the prefix (offered by players dialog)
+    public List<String> findPlayers(String prefix) {
+        return playerRegistry.findByPrefix(prefix, MAX_SUGGESTIONS);
     }
 }
 // Credits: Roman Velic
\ No newline at end of file
@@ -0,0 +1,260 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat;
+
+import catchthebeat.game.Player;
+import catchthebeat.game.Score;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Class HighScoreStore
+ *
+ * This class keeps the high scores of each game mode and difficulty in memory
+ * and saves them to a file without blocking the GUI.
+ *
+ * 1) Only the best maxScores scores of each mode and difficulty are kept
+ *    (a heap with the lowest kept score on top, so a score that is not high
+ *    enough is refused at once)
+ * 2) A new high score is appended to the file as one line
+ *    (mode, difficulty, points, name and the seed of the game separated by tabs,
+ *    see Score.getSeed) by a background thread, the file is synced to the disk
+ *    after each append. Lines without the seed (older versions) have seed 0
+ * 3) Once the file has many more lines than scores kept, the background thread
+ *    writes the kept scores to a temporary file, syncs it and renames it over
+ *    the file, so a power cut leaves either the old or the new file (see
+ *    AppendLog and SafeFile)
+ * 4) The file is read when the store is created. Scores saved by older
+ *    versions (name and points on two lines, best 3 of any setting) are kept
+ *    as scores of any mode and difficulty. Incomplete lines (written during
+ *    a power cut) are skipped. Such files are rewritten in the current format
+ * 5) Errors are reported to the console only, the scores stay in memory
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class HighScoreStore {
+
+    public static final int SINGLE_PLAYER = 0;
+    public static final int MULTI_PLAYER = 1;
+    public static final int ANY = -1; // mode/difficulty of scores of older versions
+    public static final int DEFAULT_MAX_SCORES = 100;
+    private static final String SEPARATOR = "\t";
+    private static final String NEW_LINE = "\r\n";
+
+    // Nested class holding the best scores of each setting
+    private static class Table {
+
+        private final int maxScores;
+        private final Map<Integer, PriorityQueue<Score>> heaps = new HashMap<Integer, PriorityQueue<Score>>();
+
+        Table(int maxScores) {
+            this.maxScores = maxScores;
+        }
+
+        // false if the score is not high enough to be kept
+        boolean add(int mode, int difficulty, Score score) {
+            Integer key = key(mode, difficulty);
+            PriorityQueue<Score> heap = heaps.get(key);
+            if (heap == null) {
+                // lowest score on top
+                heap = new PriorityQueue<Score>(maxScores + 1, Collections.<Score>reverseOrder());
+                heaps.put(key, heap);
+            }
+            if (heap.size() >= maxScores) {
+                if (score.compareTo(heap.peek()) >= 0) {
+                    return false; // not higher than the lowest one kept
+                }
+                heap.poll();
+            }
+            heap.add(score);
+            return true;
+        }
+
+        // scores of the setting (ANY = all modes/difficulties) and of older versions, best first
+        ArrayList<Score> top(int mode, int difficulty) {
+            ArrayList<Score> scores = new ArrayList<Score>();
+            for (Map.Entry<Integer, PriorityQueue<Score>> entry : heaps.entrySet()) {
+                int key = entry.getKey();
+                if (key == key(ANY, ANY)
+                        || ((mode == ANY || mode == modeOf(key))
+                            && (difficulty == ANY || difficulty == difficultyOf(key)))) {
+                    scores.addAll(entry.getValue());
+                }
+            }
+            Collections.sort(scores);
+            return scores;
+        }
+
+        // scores of exactly the setting, in no order
+        ArrayList<Score> of(int mode, int difficulty) {
+            PriorityQueue<Score> heap = heaps.get(key(mode, difficulty));
+            return (heap == null) ? new ArrayList<Score>() : new ArrayList<Score>(heap);
+        }
+
+        // all kept scores as lines of the file
+        String lines() {
+            StringBuilder data = new StringBuilder();
+            for (Map.Entry<Integer, PriorityQueue<Score>> entry : heaps.entrySet()) {
+                for (Score score : entry.getValue()) {
+                    data.append(line(modeOf(entry.getKey()), difficultyOf(entry.getKey()), score));
+                }
+            }
+            return data.toString();
+        }
+
+        int size() {
+            int size = 0;
+            for (PriorityQueue<Score> heap : heaps.values()) {
+                size += heap.size();
+            }
+            return size;
+        }
+
+        // mode and difficulty are small numbers (ANY = -1)
+        private static Integer key(int mode, int difficulty) {
+            return (mode + 1) * 256 + difficulty + 1;
+        }
+
+        private static int modeOf(int key) {
+            return key / 256 - 1;
+        }
+
+        private static int difficultyOf(int key) {
+            return key % 256 - 1;
+        }
+    }
+    private final AppendLog log;
+    private final Table scores;
+    private int fileLines; // lines in the file (including the queued ones)
+
+    /**
+     * Creates the store with the number of kept scores set by
+     * -Dcatchthebeat.highScores (or the default one).
+     *
+     * @param fileName File with the high scores.
+     */
+    public HighScoreStore(String fileName) {
+        this(fileName, Integer.getInteger("catchthebeat.highScores", DEFAULT_MAX_SCORES));
+    }
+
+    /**
+     * Reads the scores from the file and starts the writer thread.
+     *
+     * @param fileName File with the high scores.
+     * @param maxScores Number of scores kept for each mode and difficulty.
+     */
+    public HighScoreStore(String fileName, int maxScores) {
+        log = new AppendLog(fileName, "High score");
+        scores = new Table(maxScores);
+        read();
+    }
+
+    /**
+     * Stops the writer thread once the queued scores are saved.
+     */
+    public void close() {
+        log.close();
+    }
+
+    /**
+     * Adds the score of a game. If it is high enough, it is saved to the file
+     * by the writer thread. This method does not block.
+     *
+     * @param mode SINGLE_PLAYER or MULTI_PLAYER.
+     * @param difficulty Difficulty of the game.
+     * @param score Score of the game (with a winner).
+     * @return True if the score is one of the kept high scores.
+     */
+    public synchronized boolean add(int mode, int difficulty, Score score) {
+        // copy of the score, the game may still hold the original one
+        Score copy = new Score(new Player(score.getWinner().getName(), false), score.getPoints());
+        copy.setSeed(score.getSeed()); // the game can be played again
+        if (!scores.add(mode, difficulty, copy)) {
+            return false;
+        }
+        // append the score, rewrite the file once it is too long
+        boolean queued;
+        fileLines++;
+        if (fileLines > 2 * scores.size() + 16) {
+            queued = log.compact(scores.lines()); // the new score included
+            fileLines = scores.size();
+        } else {
+            queued = log.append(line(mode, difficulty, copy));
+        }
+        if (!queued) { // store closed
+            System.out.println("The score of " + copy.getWinner().getName() + " could not be saved!");
+        }
+        return true;
+    }
+
+    /**
+     * @param mode SINGLE_PLAYER, MULTI_PLAYER or ANY.
+     * @param difficulty Difficulty of the game or ANY.
+     * @return Kept scores of the setting, best first (scores of older versions
+     * are included in all settings).
+     */
+    public synchronized ArrayList<Score> getHighScores(int mode, int difficulty) {
+        return scores.top(mode, difficulty);
+    }
+
+    /**
+     * @param mode SINGLE_PLAYER, MULTI_PLAYER or ANY (with difficulty ANY for
+     * the scores of older versions).
+     * @param difficulty Difficulty of the game or ANY.
+     * @return Kept scores saved with exactly this setting, in no order.
+     */
+    public synchronized ArrayList<Score> getScoresOf(int mode, int difficulty) {
+        return scores.of(mode, difficulty);
+    }
+
+    // read the scores from the file
+    private void read() {
+        boolean rewrite = log.read(new AppendLog.LineHandler() {
+            private String oldName; // older version: name on one line, points on the next one
+            
+            @Override
+            public boolean line(String line) {
+                fileLines++;
+                try {
+                    if (oldName != null) {
+                        Score score = new Score(new Player(oldName, false), Integer.parseInt(line.trim()));
+                        oldName = null;
+                        scores.add(ANY, ANY, score);
+                        return false;
+                    }
+                    String[] fields = line.split(SEPARATOR, 5);
+                    if (fields.length == 4 || fields.length == 5) {
+                        Score score = new Score(new Player(fields[3], false), Integer.parseInt(fields[2]));
+                        if (fields.length == 5) {
+                            score.setSeed(Long.parseLong(fields[4]));
+                        }
+                        scores.add(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), score);
+                        return true;
+                    }
+                    oldName = line;
+                } catch (NumberFormatException e) {
+                    oldName = null; // incomplete line, skip it
+                }
+                return false;
+            }
+        });
+        if (rewrite) {
+            // rewrite in the current format (and without incomplete lines)
+            log.compact(scores.lines());
+            fileLines = scores.size();
+        }
+    }
+
+    // one score as a line of the file (tabs and line breaks removed from the name)
+    private static String line(int mode, int difficulty, Score score) {
+        String name = score.getWinner().getName().replaceAll("[\\t\\r\\n]", " ");
+        return mode + SEPARATOR + difficulty + SEPARATOR + score.getPoints() + SEPARATOR + name
+                + SEPARATOR + score.getSeed() + NEW_LINE;
+    }
+}
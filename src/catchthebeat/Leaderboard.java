@@ -0,0 +1,318 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat;
+
+import catchthebeat.game.Game;
+import catchthebeat.game.Score;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class Leaderboard
+ *
+ * This class counts the scores of all the games ever won for each game mode
+ * and difficulty, so the rank of a score among all of them is known at once
+ * (HighScoreStore keeps the names of the best ones only).
+ *
+ * 1) Each mode and difficulty has a Fenwick tree (binary indexed tree) over
+ *    the points, holding the number of scores with each number of points.
+ *    Adding a score, the rank of a score (number of better scores + 1, equal
+ *    scores share the rank) and the points at a rank take O(log p) time
+ *    (p = highest points), no matter how many scores are counted
+ * 2) Ranks of a mode/difficulty count the scores of older versions as well
+ *    (saved for any setting), like the high scores. Ranks of ANY mode or
+ *    difficulty count the scores of all the matching settings
+ * 3) Each new score is appended to the file as one line (mode, difficulty,
+ *    points, 1) by a background thread. Once the file holds many more lines
+ *    than different scores, it is rewritten with one line for each score and
+ *    the number of games with it (see AppendLog), so the file stays small even
+ *    with millions of games
+ * 4) If there is no file yet, the scores kept by the high score store are
+ *    counted at start
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class Leaderboard {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final String SEPARATOR = "\t";
+    private static final String NEW_LINE = "\r\n";
+
+    // Nested class counting the scores of one setting by points
+    private static class RankTree {
+
+        private int[] counts; // games with the points
+        private int[] tree; // tree[i] = sum of counts (i - lowest bit of i, i], 1-based
+        private int total;
+
+        RankTree(int capacity) {
+            counts = new int[capacity];
+            tree = new int[capacity + 1];
+        }
+
+        void add(int points, int count) {
+            counts[points] += count;
+            total += count;
+            for (int i = points + 1; i < tree.length; i += i & -i) {
+                tree[i] += count;
+            }
+        }
+
+        // games with at most the points
+        int countUpTo(int points) {
+            int sum = 0;
+            for (int i = Math.min(points + 1, tree.length - 1); i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        // the tree built again for more points
+        void grow(int capacity) {
+            int[] old = counts;
+            counts = new int[capacity];
+            tree = new int[capacity + 1];
+            total = 0;
+            for (int points = 0; points < old.length; points++) {
+                if (old[points] != 0) {
+                    add(points, old[points]);
+                }
+            }
+        }
+    }
+    private final AppendLog log;
+    private final Map<Integer, RankTree> trees = new TreeMap<Integer, RankTree>();
+    private int capacity = INITIAL_CAPACITY; // points counted by the trees (same for all)
+    private int entries; // different scores (setting and points)
+    private int fileLines; // lines in the file (including the queued ones)
+
+    /**
+     * Reads the counted scores from the file and starts the writer thread.
+     *
+     * @param fileName File with the counted scores.
+     * @param highScores Scores counted if the file does not exist yet.
+     */
+    public Leaderboard(String fileName, HighScoreStore highScores) {
+        log = new AppendLog(fileName, "Leaderboard");
+        if (log.exists()) {
+            read();
+        } else {
+            int[] modes = {HighScoreStore.SINGLE_PLAYER, HighScoreStore.MULTI_PLAYER, HighScoreStore.ANY};
+            for (int mode : modes) {
+                for (int difficulty = HighScoreStore.ANY; difficulty <= Game.HARD; difficulty++) {
+                    // (ANY, ANY) holds the scores of older versions
+                    if ((mode == HighScoreStore.ANY) == (difficulty == HighScoreStore.ANY)) {
+                        for (Score score : highScores.getScoresOf(mode, difficulty)) {
+                            if (count(mode, difficulty, Math.max(score.getPoints(), 0), 1)) {
+                                entries++;
+                            }
+                        }
+                    }
+                }
+            }
+            if (entries > 0) {
+                save(null); // written at once
+            }
+        }
+    }
+
+    /**
+     * Stops the writer thread once the queued scores are saved.
+     */
+    public void close() {
+        log.close();
+    }
+
+    /**
+     * Counts the score of a game, it is saved by the writer thread.
+     *
+     * @param mode HighScoreStore.SINGLE_PLAYER or MULTI_PLAYER.
+     * @param difficulty Difficulty of the game.
+     * @param points Points of the winner.
+     * @return Rank of the score in the mode and difficulty.
+     */
+    public synchronized int add(int mode, int difficulty, int points) {
+        points = Math.max(points, 0);
+        if (count(mode, difficulty, points, 1)) {
+            entries++;
+        }
+        save(line(mode, difficulty, points, 1));
+        return getRank(mode, difficulty, points);
+    }
+
+    /**
+     * @param mode Game mode or HighScoreStore.ANY.
+     * @param difficulty Difficulty or HighScoreStore.ANY.
+     * @param points Points of a score.
+     * @return Number of counted scores with more points + 1.
+     */
+    public synchronized int getRank(int mode, int difficulty, int points) {
+        int rank = 1;
+        for (RankTree tree : matching(mode, difficulty)) {
+            rank += tree.total - tree.countUpTo(Math.max(points, 0));
+        }
+        return rank;
+    }
+
+    /**
+     * @param mode Game mode or HighScoreStore.ANY.
+     * @param difficulty Difficulty or HighScoreStore.ANY.
+     * @return Number of counted scores.
+     */
+    public synchronized int getCount(int mode, int difficulty) {
+        int count = 0;
+        for (RankTree tree : matching(mode, difficulty)) {
+            count += tree.total;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the points of the best counted scores, each one in O(log p) time.
+     *
+     * @param mode Game mode or HighScoreStore.ANY.
+     * @param difficulty Difficulty or HighScoreStore.ANY.
+     * @param n Number of scores.
+     * @return Points of the best n scores (fewer if not counted), best first.
+     */
+    public synchronized int[] getTopPoints(int mode, int difficulty, int n) {
+        List<RankTree> matching = matching(mode, difficulty);
+        int count = 0;
+        for (RankTree tree : matching) {
+            count += tree.total;
+        }
+        int[] top = new int[Math.min(n, count)];
+        for (int rank = 1; rank <= top.length; rank++) {
+            top[rank - 1] = pointsAt(matching, count - rank + 1);
+        }
+        return top;
+    }
+
+    // points of the k-th lowest score of the trees (searched in all of them at once)
+    private int pointsAt(List<RankTree> matching, int k) {
+        int position = 0;
+        for (int step = Integer.highestOneBit(capacity); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= capacity) {
+                int sum = 0;
+                for (RankTree tree : matching) {
+                    sum += tree.tree[next];
+                }
+                if (sum < k) {
+                    position = next;
+                    k -= sum;
+                }
+            }
+        }
+        return position; // 1-based index of the score is position + 1
+    }
+
+    // trees of the setting (ANY = all modes/difficulties) and of older versions
+    private List<RankTree> matching(int mode, int difficulty) {
+        List<RankTree> matching = new ArrayList<RankTree>();
+        for (Map.Entry<Integer, RankTree> entry : trees.entrySet()) {
+            int key = entry.getKey();
+            if (key == key(HighScoreStore.ANY, HighScoreStore.ANY)
+                    || ((mode == HighScoreStore.ANY || mode == key / 256 - 1)
+                        && (difficulty == HighScoreStore.ANY || difficulty == key % 256 - 1))) {
+                matching.add(entry.getValue());
+            }
+        }
+        return matching;
+    }
+
+    // true if there were no scores of the setting with the points yet
+    private boolean count(int mode, int difficulty, int points, int games) {
+        if (points >= capacity) {
+            while (points >= capacity) {
+                capacity *= 2;
+            }
+            for (RankTree tree : trees.values()) {
+                tree.grow(capacity);
+            }
+        }
+        Integer key = key(mode, difficulty);
+        RankTree tree = trees.get(key);
+        if (tree == null) {
+            tree = new RankTree(capacity);
+            trees.put(key, tree);
+        }
+        boolean first = tree.counts[points] == 0;
+        tree.add(points, games);
+        return first;
+    }
+
+    // append the line by the writer thread, rewrite the file once it is too long
+    // (or if there is no line)
+    private void save(String line) {
+        boolean queued;
+        fileLines++;
+        if (line == null || fileLines > 2 * entries + 16) {
+            queued = log.compact(lines()); // all the counted scores, this one included
+            fileLines = entries;
+        } else {
+            queued = log.append(line);
+        }
+        if (!queued) { // leaderboard closed
+            System.out.println("The score could not be saved to the leaderboard!");
+        }
+    }
+
+    // each different score with its number of games as lines of the file
+    private String lines() {
+        StringBuilder data = new StringBuilder();
+        for (Map.Entry<Integer, RankTree> entry : trees.entrySet()) {
+            int key = entry.getKey();
+            int[] counts = entry.getValue().counts;
+            for (int points = 0; points < counts.length; points++) {
+                if (counts[points] != 0) {
+                    data.append(line(key / 256 - 1, key % 256 - 1, points, counts[points]));
+                }
+            }
+        }
+        return data.toString();
+    }
+
+    // read the counted scores from the file
+    private void read() {
+        boolean rewrite = log.read(new AppendLog.LineHandler() {
+            @Override
+            public boolean line(String line) {
+                fileLines++;
+                String[] fields = line.split(SEPARATOR);
+                try {
+                    int points = (fields.length == 4) ? Integer.parseInt(fields[2]) : -1;
+                    int games = (fields.length == 4) ? Integer.parseInt(fields[3]) : -1;
+                    if (points >= 0 && games > 0) {
+                        if (count(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), points, games)) {
+                            entries++;
+                        }
+                        return true;
+                    }
+                } catch (NumberFormatException e) {
+                    // incomplete line, skip it
+                }
+                return false;
+            }
+        });
+        if (rewrite) {
+            // rewrite without incomplete lines
+            log.compact(lines());
+            fileLines = entries;
+        }
+    }
+
+    // mode and difficulty are small numbers (ANY = -1), as in HighScoreStore
+    private static Integer key(int mode, int difficulty) {
+        return (mode + 1) * 256 + difficulty + 1;
+    }
+
+    private static String line(int mode, int difficulty, int points, int games) {
+        return mode + SEPARATOR + difficulty + SEPARATOR + points + SEPARATOR + games + NEW_LINE;
+    }
+}
@@ -6,13 +6,23 @@ package catchthebeat;
  */
  
 import catchthebeat.ui.PlayerPanel;
+import catchthebeat.ui.AnimationScheduler;
+import catchthebeat.ui.BeatScheduler;
 import catchthebeat.ui.ImageLoader;
 import catchthebeat.ui.FrontBackLink;
 import catchthebeat.ui.BannerPanel;
 import catchthebeat.ui.GameplayPanel;
+import catchthebeat.ui.SoundMixer;
+import catchthebeat.sim.MatchLog;
+import catchthebeat.sim.MatchReplay;
+import catchthebeat.net.SpectatorFeed;
+import catchthebeat.net.SpectatorServer;
 import java.awt.BorderLayout;
 import java.awt.Container;
 import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
 
@@ -26,6 +36,13 @@ import javax.swing.SwingUtilities;
  *    application is restarted
  * 2) After above is finished the class notifies game creator it can show
  *    new game dialog
+ * 3) Matches are recorded to the match log (matches.log or the file set by
+ *    -Dcatchthebeat.matchLog=file). If -Dcatchthebeat.replay=file is set,
+ *    the match given by -Dcatchthebeat.replayMatch=number (first one = 0) is
+ *    replayed instead of the new game dialog. The log is written to the disk
+ *    after each match and closed when the application exits
+ * 4) If -Dcatchthebeat.spectatorPort=port is set, the matches are streamed
+ *    to the displays connecting to the port (SpectatorServer)
  * 
  * @author Roman Velic
  * @version 2012.04
@@ -44,17 +61,24 @@ public class Main {
     private static void createAndShowGUI() { 
             // create handling components
             ImageLoader iLoader = new ImageLoader();
-            FrontBackLink frontBackLink = new FrontBackLink();
+            AnimationScheduler scheduler = new AnimationScheduler();
+            SoundMixer mixer = new SoundMixer(); // plays sounds and times the beats
+            BeatScheduler beats = new BeatScheduler(mixer);
+            FrontBackLink frontBackLink = new FrontBackLink(mixer);
                         
             // create GUI components
             BannerPanel bannerPanel = new BannerPanel(iLoader);
-            GameplayPanel gameplayPanel = new GameplayPanel(iLoader);
+            GameplayPanel gameplayPanel = new GameplayPanel(iLoader, scheduler, beats);
             gameplayPanel.setBannerPanel(bannerPanel);
-            PlayerPanel playerPanel = new PlayerPanel(iLoader);
+            PlayerPanel playerPanel = new PlayerPanel(iLoader, scheduler);
             
             // set frontend-backend link           
             frontBackLink.setPlayerPanel(playerPanel);
             frontBackLink.setGameplayPanel(gameplayPanel);
+            frontBackLink.setBeatScheduler(beats);
+            frontBackLink.setMatchLog(openMatchLog());
+            closeMatchLogOnExit(frontBackLink);
+            frontBackLink.setSpectatorFeed(openSpectatorFeed());
             
             // create GUI
             JFrame gui = new JFrame("Catch The Beat");
@@ -76,7 +100,75 @@ public class Main {
             
             // create game creator
             GameCreator gameCreator = new GameCreator(gui, gameplayPanel, frontBackLink);
-            gameCreator.newGame();              
+            MatchReplay replay = openReplay();
+            if (replay != null) {
+                gameCreator.replayMatch(replay);
+            } else {
+                gameCreator.newGame();              
+            }
+    }
+    
+    // log the matches are recorded to (null if it cannot be opened)
+    private static MatchLog openMatchLog() {
+        String fileName = System.getProperty("catchthebeat.matchLog", "matches.log");
+        try {
+            return new MatchLog(new File(fileName));
+        } catch (IOException e) {
+            System.out.println("The match log " + fileName + " could not be opened! " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // close the match log when the application exits (the unused tail is cut off)
+    private static void closeMatchLogOnExit(final FrontBackLink frontBackLink) {
+        Runtime.getRuntime().addShutdownHook(new Thread("Match log shutdown") {
+            @Override
+            public void run() {
+                frontBackLink.closeMatchLog();
+            }
+        });
+    }
+    
+    // feed streamed to the spectators (null if no port is set or it cannot be opened)
+    private static SpectatorFeed openSpectatorFeed() {
+        Integer port = Integer.getInteger("catchthebeat.spectatorPort");
+        if (port == null) {
+            return null;
+        }
+        try {
+            SpectatorFeed feed = new SpectatorFeed();
+            SpectatorServer server = new SpectatorServer(feed, new InetSocketAddress(port),
+                    SpectatorServer.DEFAULT_MAX_SPECTATORS);
+            Thread thread = new Thread(server, "Spectator server");
+            thread.setDaemon(true);
+            thread.start();
+            return feed;
+        } catch (IOException e) {
+            System.out.println("Spectators cannot connect to port " + port + "! " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // match to be replayed (null if none is set or it cannot be read)
+    private static MatchReplay openReplay() {
+        String fileName = System.getProperty("catchthebeat.replay");
+        if (fileName == null) {
+            return null;
+        }
+        try {
+            MatchReplay replay = new MatchReplay(MatchLog.read(new File(fileName)));
+            int match = Integer.getInteger("catchthebeat.replayMatch", 0);
+            for (int i = 0; i <= match; i++) {
+                if (!replay.nextMatch()) {
+                    System.out.println("The match " + match + " is not in " + fileName);
+                    return null;
+                }
+            }
+            return replay;
+        } catch (IOException e) {
+            System.out.println("The match log " + fileName + " could not be read! " + e.getMessage());
+            return null;
+        }
     }
 }
 // Credits: Roman Velic
\ No newline at end of file
@@ -0,0 +1,239 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Class PlayerRegistry
+ *
+ * This class holds all the registered players and the players sitting at
+ * the 10 seats of the game (names shown in the players dialog, the first ones
+ * play the next game).
+ *
+ * 1) Every player gets a stable id when registered, names are unique (letter
+ *    case does not matter), a name that is already registered gives the id
+ *    of that player
+ * 2) Players are indexed by id and by name (sorted, so players can be found
+ *    by the beginning of their name)
+ * 3) The file is read once when the registry is created. Each change is
+ *    appended to the file as one line (P, id, name for a new player and
+ *    S, seat, id for a seat) by a background thread, once the file holds many
+ *    more lines than needed it is rewritten (see AppendLog and SafeFile)
+ * 4) Files of older versions (one name per line, 10 lines) are read as
+ *    players sitting at the seats in this order
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class PlayerRegistry {
+
+    public static final int SEATS = 10;
+    private static final String SEPARATOR = "\t";
+    private static final String NEW_LINE = "\r\n";
+    private static final String PLAYER = "P";
+    private static final String SEAT = "S";
+    private final AppendLog log;
+    private final Map<Integer, String> names = new HashMap<Integer, String>(); // by id
+    private final TreeMap<String, Integer> ids = new TreeMap<String, Integer>(); // by lower case name
+    private final int[] seats = new int[SEATS];
+    private int nextId = 1;
+    private int fileLines; // lines in the file (including the queued ones)
+
+    /**
+     * Reads the players from the file and starts the writer thread.
+     *
+     * @param fileName File with the players.
+     */
+    public PlayerRegistry(String fileName) {
+        log = new AppendLog(fileName, "Player registry");
+        read();
+        // default players at empty seats
+        for (int seat = 0; seat < SEATS; seat++) {
+            if (seats[seat] == 0) {
+                seat(seat, register("Player " + (seat + 1)));
+            }
+        }
+    }
+
+    /**
+     * Stops the writer thread once the queued changes are saved.
+     */
+    public void close() {
+        log.close();
+    }
+
+    /**
+     * Registers a new player unless the name is already registered.
+     *
+     * @param name Name of the player (tabs and line breaks are replaced by spaces).
+     * @return Id of the player.
+     */
+    public synchronized int register(String name) {
+        name = name.replaceAll("[\\t\\r\\n]", " ").trim();
+        Integer id = ids.get(name.toLowerCase());
+        if (id != null) {
+            return id;
+        }
+        id = nextId++;
+        add(id, name);
+        save(PLAYER + SEPARATOR + id + SEPARATOR + name + NEW_LINE);
+        return id;
+    }
+
+    /**
+     * Seats the player at the seat.
+     *
+     * @param seat Seat number (0...SEATS - 1).
+     * @param id Id of a registered player.
+     */
+    public synchronized void seat(int seat, int id) {
+        if (!names.containsKey(id)) {
+            throw new IllegalArgumentException("Player " + id + " is not registered");
+        }
+        if (seats[seat] != id) {
+            seats[seat] = id;
+            save(SEAT + SEPARATOR + seat + SEPARATOR + id + NEW_LINE);
+        }
+    }
+
+    /**
+     * @param count Number of seats (at most SEATS).
+     * @return Names of the players sitting at the first count seats.
+     */
+    public synchronized String[] getSeatedNames(int count) {
+        String[] seated = new String[Math.min(count, SEATS)];
+        for (int seat = 0; seat < seated.length; seat++) {
+            seated[seat] = names.get(seats[seat]);
+        }
+        return seated;
+    }
+
+    /**
+     * @param id Id of the player.
+     * @return Name of the player or null if not registered.
+     */
+    public synchronized String getName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * @param name Name of the player (letter case does not matter).
+     * @return Id of the player or 0 if not registered.
+     */
+    public synchronized int getId(String name) {
+        Integer id = ids.get(name.trim().toLowerCase());
+        return (id == null) ? 0 : id;
+    }
+
+    /**
+     * Finds the players whose name starts with the prefix (letter case does
+     * not matter).
+     *
+     * @param prefix Beginning of the name.
+     * @param max Largest number of names returned.
+     * @return Names in alphabetical order.
+     */
+    public synchronized List<String> findByPrefix(String prefix, int max) {
+        String from = prefix.toLowerCase();
+        SortedMap<String, Integer> found = ids.subMap(from, from + Character.MAX_VALUE);
+        List<String> result = new ArrayList<String>();
+        for (Integer id : found.values()) {
+            if (result.size() == max) {
+                break;
+            }
+            result.add(names.get(id));
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    private void add(int id, String name) {
+        names.put(id, name);
+        ids.put(name.toLowerCase(), id);
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    // append the line by the writer thread, rewrite the file once it is too long
+    private void save(String line) {
+        boolean queued;
+        fileLines++;
+        if (fileLines > 2 * (names.size() + SEATS) + 16) {
+            queued = log.compact(lines()); // all the players and seats, this change included
+            fileLines = names.size() + SEATS;
+        } else {
+            queued = log.append(line);
+        }
+        if (!queued) { // registry closed
+            System.out.println("Players could not be saved!");
+        }
+    }
+
+    // all players and seats as lines of the file
+    private String lines() {
+        StringBuilder data = new StringBuilder();
+        for (Map.Entry<Integer, String> player : names.entrySet()) {
+            data.append(PLAYER).append(SEPARATOR).append(player.getKey())
+                .append(SEPARATOR).append(player.getValue()).append(NEW_LINE);
+        }
+        for (int seat = 0; seat < SEATS; seat++) {
+            if (seats[seat] != 0) {
+                data.append(SEAT).append(SEPARATOR).append(seat)
+                    .append(SEPARATOR).append(seats[seat]).append(NEW_LINE);
+            }
+        }
+        return data.toString();
+    }
+
+    // read the players and seats from the file
+    private void read() {
+        boolean rewrite = log.read(new AppendLog.LineHandler() {
+            private int oldSeat = 0; // older version: names of the seated players
+            
+            @Override
+            public boolean line(String line) {
+                fileLines++;
+                String[] fields = line.split(SEPARATOR, 3);
+                try {
+                    if (fields.length == 3 && fields[0].equals(PLAYER)) {
+                        add(Integer.parseInt(fields[1]), fields[2]);
+                        return true;
+                    } else if (fields.length == 3 && fields[0].equals(SEAT)) {
+                        int seat = Integer.parseInt(fields[1]);
+                        int id = Integer.parseInt(fields[2]);
+                        if (seat >= 0 && seat < SEATS && names.containsKey(id)) {
+                            seats[seat] = id;
+                        }
+                        return true;
+                    } else if (oldSeat < SEATS && line.trim().length() > 0) {
+                        String name = line.trim();
+                        Integer id = ids.get(name.toLowerCase());
+                        if (id == null) {
+                            id = nextId;
+                            add(id, name);
+                        }
+                        seats[oldSeat++] = id;
+                    }
+                } catch (NumberFormatException e) {
+                    // incomplete line, skip it
+                }
+                return false;
+            }
+        });
+        if (rewrite) {
+            // rewrite in the current format (and without incomplete lines)
+            log.compact(lines());
+            fileLines = names.size() + SEATS;
+        }
+    }
+}
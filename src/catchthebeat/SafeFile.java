@@ -0,0 +1,90 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Class SafeFile
+ *
+ * This class writes the data files of the game (high scores, players) so that
+ * a power cut does not leave them damaged.
+ *
+ * 1) Written data are synced to the disk before the write returns
+ * 2) A file is replaced by writing a temporary file first and renaming it
+ *    over the file, so there is always either the old or the new file
+ * 3) Errors are printed to the console, methods return false
+ *
+ * @author agent
+ * @version 2026.10
+ */
+final class SafeFile {
+
+    private SafeFile() {
+    }
+
+    // write the data (UTF-8) and sync it to the disk
+    static boolean write(File target, String data, boolean append) {
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(target, append);
+            out.write(data.getBytes("UTF-8"));
+            out.flush();
+            out.getFD().sync();
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error occured while attempting to write to file " + target + ": " + e.getMessage());
+            return false;
+        } finally {
+            close(out);
+        }
+    }
+
+    // cut the file to the length (e.g. an incomplete line at its end) and sync it
+    static boolean truncate(File target, long length) {
+        RandomAccessFile out = null;
+        try {
+            out = new RandomAccessFile(target, "rw");
+            out.setLength(length);
+            out.getFD().sync();
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error occured while attempting to write to file " + target + ": " + e.getMessage());
+            return false;
+        } finally {
+            close(out);
+        }
+    }
+
+    // replace the file by the data (through the temporary file)
+    static boolean replace(File file, File tempFile, String data) {
+        if (!write(tempFile, data, false)) {
+            return false;
+        }
+        if (!tempFile.renameTo(file)) {
+            // rename does not replace files on some systems
+            file.delete();
+            if (!tempFile.renameTo(file)) {
+                System.out.println("The file " + file + " could not be replaced!");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void close(Closeable stream) {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                System.out.println("Error occured while closing the file: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package catchthebeat.game;
+
+import java.util.Arrays;
+
+/**
+ * Class BeatSequence
+ * 
+ * This class holds the sequence of beats in a compact form. Beats are
+ * stored as primitive values packed into a growable int array, i.e. no
+ * boxing is involved when the sequence is walked through or extended.
+ * 
+ * 1) Every beat takes the smallest power of two bits that can hold all
+ *    the beat types (2 bits for the current 4 drums), so a word never
+ *    contains only a part of a beat.
+ * 2) Beats are numbered 1...number of beat types (same as Game.beat),
+ *    internally stored as 0...number of beat types - 1.
+ * 3) Sequence is walked through by a Cursor, which is meant to be created
+ *    once and reset at the start of each round (no allocation per round).
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+public class BeatSequence {
+
+    private static final int WORD_SHIFT = 5; // 32 bits in a word
+    private static final int INITIAL_WORDS = 4;
+
+    private final int noOfBeatTypes;
+    private final int bitsShift; // log2 of bits per beat
+    private final int beatMask;
+    private int[] words;
+    private int size;
+
+    /**
+     * @param noOfBeatTypes Number of different beats that can occur in the sequence.
+     */
+    public BeatSequence(int noOfBeatTypes) {
+        this.noOfBeatTypes = noOfBeatTypes;
+        int bits = 1;
+        while ((1 << bits) < noOfBeatTypes) {
+            bits <<= 1;
+        }
+        this.bitsShift = Integer.numberOfTrailingZeros(bits);
+        this.beatMask = (bits == 32) ? -1 : (1 << bits) - 1;
+        this.words = new int[INITIAL_WORDS];
+        this.size = 0;
+    }
+
+    /**
+     * @return Number of different beats that can occur in the sequence.
+     */
+    public int getNoOfBeatTypes() {
+        return noOfBeatTypes;
+    }
+
+    /**
+     * Appends a beat at the end of the sequence.
+     * 
+     * @param beat Numeric representation of the drum (range 1...number of beat types).
+     */
+    public void add(int beat) {
+        if (beat < 1 || beat > noOfBeatTypes) {
+            throw new IllegalArgumentException("Beat " + beat + " out of range 1..." + noOfBeatTypes);
+        }
+        int bit = size << bitsShift;
+        int word = bit >>> WORD_SHIFT;
+        if (word == words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        words[word] |= (beat - 1) << (bit & 31);
+        size++;
+    }
+
+    /**
+     * @param index Position of the beat in the sequence (starting with 0).
+     * @return Numeric representation of the drum (range 1...number of beat types).
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int bit = index << bitsShift;
+        return ((words[bit >>> WORD_SHIFT] >>> (bit & 31)) & beatMask) + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return New cursor positioned before the first beat.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Class Cursor
+     * 
+     * Allocation-free replacement of Iterator&lt;Integer&gt;. The cursor always
+     * sees the current size of the sequence.
+     */
+    public class Cursor {
+
+        private int position;
+
+        // moves the cursor before the first beat
+        public void reset() {
+            position = 0;
+        }
+
+        public boolean hasNext() {
+            return position < size;
+        }
+
+        public int next() {
+            return get(position++);
+        }
+
+        // index of the beat that will be returned by next()
+        public int position() {
+            return position;
+        }
+    }
+}
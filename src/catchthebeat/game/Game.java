@@ -2,9 +2,6 @@ package catchthebeat.game;
 
 import catchthebeat.ui.FrontBackLink;
 import catchthebeat.ui.SoundEffect;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.Random;
 
 /**
  * Class Game
@@ -22,6 +19,8 @@ import java.util.Random;
  * 5) Game score data.
  * 
  * The class communicates with the frontend via FrontBackLink class.
+ * The game is not thread-safe: FrontBackLink makes sure it is changed by one
+ * thread at a time and the frontend reads published snapshots (GameSnapshot).
  * 
  * This class is abstract as there are 2 game modes that incorporate slightly
  * different rules.
@@ -34,11 +33,11 @@ public abstract class Game {
 
     protected boolean isRunning; // true = game in progress; false = game over
     
-    // each item of the list represents a beat in the sequence
-    // "it" iterates through the list during a round and compares
-    // the input beat to the beat in the list
-    protected ArrayList<Integer> beats;
-    protected Iterator<Integer> it;
+    // each item of the sequence represents a beat
+    // "it" walks through the sequence during a round and compares
+    // the input beat to the beat in the sequence
+    protected BeatSequence beats;
+    protected BeatSequence.Cursor it;
     
     // each item of the list represents a player
     // noPlayers is used to determine the size of array at the construction time 
@@ -50,9 +49,12 @@ public abstract class Game {
     protected int currentPlayer;
     protected int playersOut;
     
+    // number of rounds started so far (the Beatstarter's round included)
+    protected int roundNumber;
+    
     // used to generate random beats at the beginning and
-    // when the player is computer
-    protected Random rand;
+    // when the player is computer (separate streams, see GameRandom)
+    protected GameRandom random;
     
     // the link through which the class communicates with the frontend
     protected FrontBackLink frontLink;
@@ -60,6 +62,7 @@ public abstract class Game {
     // the following state attributes are self-explanatory
     // and are needed to determine the right state change
     protected int currentCorrectBeat;
+    protected int currentBeatIndex;
     protected boolean lastBeatFlag;
     protected boolean nextTickEndsRound;
     protected boolean currentBeatAnsweredFlag;
@@ -91,14 +94,31 @@ public abstract class Game {
      * @param  frontLink    FrontBackLink object serves to connect frontend and backend of the game.
      */
     public Game(String[] playerNames, int difficulty, FrontBackLink frontLink) {
+        this(playerNames, difficulty, frontLink, new SeededGameRandom());
+    }
+
+    /**
+     * Same as Game(String[], int, FrontBackLink), but the beats are generated
+     * by the given random generator. Its seed is kept in the score, a match
+     * started with the same seed starts with the same beats.
+     * 
+     * @param  playerNames   Array of Strings containing players' names.
+     * @param  difficulty    Integer representing the difficulty: 0=easy, 1=medium, 2=hard.
+     * @param  frontLink    FrontBackLink object serves to connect frontend and backend of the game.
+     * @param  random    Random generator of the beats to start with and of the beats added by the computer.
+     */
+    public Game(String[] playerNames, int difficulty, FrontBackLink frontLink, GameRandom random) {
         this.currentBeatAnsweredFlag = true;
         this.currentPlayer = -1;
         this.playersOut = 0;
+        this.roundNumber = 0;
         this.score = new Score();
+        this.score.setSeed(random.getSeed());
         this.difficulty = difficulty;
         this.frontLink = frontLink;
-        rand = new Random();
-        beats = new ArrayList<Integer>();
+        this.random = random;
+        beats = new BeatSequence(NO_OF_BEAT_TYPES[difficulty]);
+        it = beats.cursor();
         this.generateBeats(BEATS_TO_START_WITH[difficulty] - 1);
         isRunning = true;
         nextTickEndsRound = false;
@@ -114,7 +134,7 @@ public abstract class Game {
      */
     private void generateBeats(int amount) {
         for (int i = 0; i < amount; i++) {
-            beats.add(rand.nextInt(NO_OF_BEAT_TYPES[difficulty]) + 1);
+            beats.add(random.nextSequenceBeat(NO_OF_BEAT_TYPES[difficulty]));
         }
     }
 
@@ -141,8 +161,9 @@ public abstract class Game {
             currentBeatAnsweredFlag = false;
             // If so, check whether there is another beat to answer.
             if (it.hasNext()) {
-                // If there is another beat to answer, move the beat iterator one step forward.
-                currentCorrectBeat = it.next().intValue();
+                // If there is another beat to answer, move the beat cursor one step forward.
+                currentCorrectBeat = it.next();
+                currentBeatIndex++;
             } else {
                 // If not, the player successfuly answered all the beats.
                 roundResult = CORRECT;
@@ -229,12 +250,29 @@ public abstract class Game {
         }
     }
 
+    /**
+     * Same as beat(int), but the timing of the hit judged by the frontend is
+     * counted in the score if the hit is evaluated (first hit in the timeframe)
+     * and the player is human.
+     * 
+     * @param beat  Numeric representation of the drum that was hit (range 1...number of drums).
+     * @param accuracy  Timing of the hit: Score.PERFECT, Score.GOOD or Score.LATE.
+     */
+    public void beat(int beat, int accuracy) {
+        boolean evaluated = !currentBeatAnsweredFlag && currentPlayer != -1;
+        boolean human = evaluated && !players[currentPlayer].isComputer();
+        beat(beat);
+        if (human) {
+            score.addHit(accuracy);
+        }
+    }
+
     /**
      * Method called every time a round needs to be ended.
      *
      * Apart from some communication with the frontend, based on data stored in
-     * players array it decides who is the next player and also updates 
-     * the iterator with the current version of beat array.
+     * players array it decides who is the next player and also
+     * rewinds the cursor to the start of the current beat sequence.
      * 
      * Detailed description of the procedure is commented inbetween the code.
      */
@@ -261,11 +299,13 @@ public abstract class Game {
             frontLink.keyboardLocked(false);
         }
 
-        // reset the round-specific state variables and update the iterator
+        // reset the round-specific state variables and rewind the cursor
         lastBeatFlag = false;
         currentBeatAnsweredFlag = true;
         currentCorrectBeat = 0;
-        this.it = beats.iterator();
+        currentBeatIndex = -1;
+        roundNumber++;
+        this.it.reset();
     }
 
     /**
@@ -281,7 +321,7 @@ public abstract class Game {
      */
     public void cpuBeat() {
         if (lastBeatFlag) {
-            currentCorrectBeat = rand.nextInt(NO_OF_BEAT_TYPES[difficulty]) + 1;
+            currentCorrectBeat = random.nextCpuBeat(NO_OF_BEAT_TYPES[difficulty]);
             frontLink.computerKeyPressed(currentCorrectBeat);
             nextTickEndsRound = true;
         } else {
@@ -335,13 +375,37 @@ public abstract class Game {
         isRunning = false;
     }
 
+    /**
+     * Method used by frontend-backend link to publish the state of the game
+     * after each change (must be called by the thread changing the game).
+     * 
+     * @return Immutable copy of the state shown by the frontend.
+     */
+    public GameSnapshot takeSnapshot() {
+        return new GameSnapshot(this);
+    }
+
+    /**
+     * Replaces the beats to start with (e.g. by the recorded ones when a match
+     * is replayed). It must be called before the first tick.
+     * 
+     * @param startingBeats Beats of the sequence (range 1...number of drums).
+     */
+    public void setStartingBeats(int[] startingBeats) {
+        beats = new BeatSequence(NO_OF_BEAT_TYPES[difficulty]);
+        for (int i = 0; i < startingBeats.length; i++) {
+            beats.add(startingBeats[i]);
+        }
+        it = beats.cursor();
+    }
+
     /**
      * Getter method used by frontend-backend link to find out the current size
      * of the array, so that the appropriate number of boxes is painted on the screen.
      * 
-     * @return ArrayList of Integer objects representing the sequence of beats.
+     * @return BeatSequence object representing the sequence of beats.
      */
-    public ArrayList<Integer> getBeats() {
+    public BeatSequence getBeats() {
         return beats;
     }
 
@@ -375,6 +439,86 @@ public abstract class Game {
         return roundResult;
     }
 
+    /**
+     * Getter method used by the match log to record the players.
+     * 
+     * @return Names of the human players in the order they play.
+     */
+    public String[] getPlayerNames() {
+        int humans = 0;
+        for (int i = 1; i <= noPlayers; i++) {
+            if (!players[i].isComputer()) {
+                humans++;
+            }
+        }
+        String[] names = new String[humans];
+        for (int i = 1, j = 0; i <= noPlayers; i++) {
+            if (!players[i].isComputer()) {
+                names[j++] = players[i].getName();
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Getter method used by headless drivers to find out the index of the
+     * current player in the players array (0 = Beatstarter, humans from 1).
+     * 
+     * @return Integer representing the index of the current player.
+     */
+    public int getCurrentPlayerIndex() {
+        return currentPlayer;
+    }
+
+    /**
+     * Getter method used by headless drivers to find out which beat of the
+     * sequence is being answered in the current timeframe.
+     * 
+     * @return Index of the current beat in the sequence, -1 before the first tick of a round.
+     */
+    public int getCurrentBeatIndex() {
+        return currentBeatIndex;
+    }
+
+    /**
+     * Getter method used by headless drivers to find out whether the current
+     * timeframe still waits for a drum to be hit.
+     * 
+     * @return True if a beat is expected in the current timeframe.
+     */
+    public boolean isAwaitingBeat() {
+        return isRunning && !currentBeatAnsweredFlag;
+    }
+
+    /**
+     * Getter method used by headless drivers to find out whether the current
+     * player is adding his own beat at the end of the sequence.
+     * 
+     * @return True if the beat hit in this timeframe will be added to the sequence.
+     */
+    public boolean isAddingBeat() {
+        return lastBeatFlag;
+    }
+
+    /**
+     * Getter method used by headless drivers to find out whether the game
+     * is still in progress.
+     * 
+     * @return True = game in progress; false = game over.
+     */
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Getter method used by headless drivers to count the played rounds.
+     * 
+     * @return Number of rounds started so far, including the Beatstarter's round.
+     */
+    public int getRoundNumber() {
+        return roundNumber;
+    }
+
     /**
      * Getter method used by frontend-backend link to set the appropriate tempo
      * for given difficulty.
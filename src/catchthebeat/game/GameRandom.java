@@ -0,0 +1,35 @@
+package catchthebeat.game;
+
+/**
+ * Interface GameRandom
+ * 
+ * Source of the random decisions of a game. The beats of the sequence and
+ * the beats added by the computer are taken from separate streams, so the
+ * sequence a match starts with depends on the seed only, no matter how
+ * the match is played.
+ * 
+ * An implementation is used by one game (one thread) only, it does not need
+ * to be thread-safe.
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+public interface GameRandom {
+
+    /**
+     * @return Seed both streams were created from (the same seed gives the same beats).
+     */
+    public long getSeed();
+
+    /**
+     * @param noOfBeatTypes Number of drums.
+     * @return Next beat of the sequence to start with (range 1...noOfBeatTypes).
+     */
+    public int nextSequenceBeat(int noOfBeatTypes);
+
+    /**
+     * @param noOfBeatTypes Number of drums.
+     * @return Next beat added by the computer (range 1...noOfBeatTypes).
+     */
+    public int nextCpuBeat(int noOfBeatTypes);
+}
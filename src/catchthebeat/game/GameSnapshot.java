@@ -0,0 +1,81 @@
+package catchthebeat.game;
+
+/**
+ * Class GameSnapshot
+ *
+ * This class is an immutable copy of the game state shown by the frontend
+ * (current player, points, result of the round, size of the beat sequence).
+ *
+ * The game is changed by one thread only. After each change a new snapshot is
+ * taken and published, so the other threads (animation, event dispatch thread)
+ * can read a consistent state at any time without locking the game.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public final class GameSnapshot {
+
+    private final String playerName;
+    private final int playerIndex;
+    private final int points;
+    private final int roundResult;
+    private final int roundNumber;
+    private final int noBeats;
+    private final int difficulty;
+    private final boolean willAddBeat;
+    private final boolean running;
+
+    /**
+     * Takes the snapshot of the game (called by the thread changing the game).
+     *
+     * @param game Game to copy the state from.
+     */
+    GameSnapshot(Game game) {
+        this.playerIndex = game.currentPlayer;
+        this.playerName = (playerIndex < 0) ? "" : game.players[playerIndex].getName();
+        this.points = game.score.getPoints();
+        this.roundResult = game.roundResult;
+        this.roundNumber = game.roundNumber;
+        this.noBeats = game.beats.size();
+        this.difficulty = game.difficulty;
+        this.willAddBeat = (playerIndex >= 0) && game.currentPlayerWillAddBeat();
+        this.running = game.isRunning;
+    }
+
+    // The following getter methods are self-explanatory.
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public int getPlayerIndex() {
+        return playerIndex;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public int getRoundResult() {
+        return roundResult;
+    }
+
+    public int getRoundNumber() {
+        return roundNumber;
+    }
+
+    public int getNoBeats() {
+        return noBeats;
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    public boolean currentPlayerWillAddBeat() {
+        return willAddBeat;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
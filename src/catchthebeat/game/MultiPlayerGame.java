@@ -35,7 +35,20 @@ public class MultiPlayerGame extends Game {
      * @param  frontLink    FrontBackLink object serves to connect frontend and backend of the game.
      */
     public MultiPlayerGame(String[] playerNames, int difficulty, FrontBackLink frontLink) {
-        super(playerNames, difficulty, frontLink);
+        this(playerNames, difficulty, frontLink, new SeededGameRandom());
+    }
+
+    /**
+     * Same as MultiPlayerGame(String[], int, FrontBackLink), with the given random
+     * generator of the beats (see Game).
+     * 
+     * @param  playerNames   Array of Strings containing players' names.
+     * @param  difficulty    Integer representing the difficulty: 0=easy, 1=medium, 2=hard.
+     * @param  frontLink    FrontBackLink object serves to connect frontend and backend of the game.
+     * @param  random    Random generator of the beats.
+     */
+    public MultiPlayerGame(String[] playerNames, int difficulty, FrontBackLink frontLink, GameRandom random) {
+        super(playerNames, difficulty, frontLink, random);
         this.noPlayers = playerNames.length;
         this.players = new Player[noPlayers + 1];
         this.players[0] = new Player("Beatstarter", true);
@@ -10,6 +10,12 @@ package catchthebeat.game;
  * Then, a variety of getter and setter methods are included in the class to
  * update the score during the gameplay. These methods are self-explanatory.
  * 
+ * Timing accuracy of the beats hit by human players is counted as well (how
+ * many hits were perfect, good or late as judged by the frontend).
+ * 
+ * The seed of the game's random generator is kept with the score, so
+ * the match can be started again with the same beats (see GameRandom).
+ * 
  * The class also implements Comparable interface which is useful when checking
  * whether the reached score beats any of the high scores.
  * 
@@ -20,6 +26,12 @@ public class Score implements Comparable {
 
     private Player winner;
     private int points;
+    // timing accuracy of the hits (index = accuracy)
+    public static final int PERFECT = 0;
+    public static final int GOOD = 1;
+    public static final int LATE = 2;
+    private int[] hits = new int[3];
+    private long seed;
 
     /** 
      * This constructor is used when a new game is created.
@@ -55,6 +67,38 @@ public class Score implements Comparable {
         this.winner = topPlayer;
     }
 
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Counts a beat hit by a human player.
+     * 
+     * @param accuracy Timing of the hit: PERFECT, GOOD or LATE.
+     */
+    public void addHit(int accuracy) {
+        hits[accuracy]++;
+    }
+
+    /**
+     * @param accuracy PERFECT, GOOD or LATE.
+     * @return Number of hits with given timing accuracy.
+     */
+    public int getHits(int accuracy) {
+        return hits[accuracy];
+    }
+
+    /**
+     * @return Number of judged hits (all accuracies).
+     */
+    public int getTotalHits() {
+        return hits[PERFECT] + hits[GOOD] + hits[LATE];
+    }
+
     /** 
      * Implementation of Comparable abstract method comparing the score
      * variables.
@@ -0,0 +1,51 @@
+package catchthebeat.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Class SeededGameRandom
+ * 
+ * Default GameRandom built on SplittableRandom: both streams are created
+ * from one seed (the computer stream is split from the sequence stream),
+ * they are not synchronized and do not allocate.
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+public class SeededGameRandom implements GameRandom {
+
+    private final long seed;
+    private final SplittableRandom sequence;
+    private final SplittableRandom cpu;
+
+    /**
+     * Creates the streams from a new random seed.
+     */
+    public SeededGameRandom() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * @param seed Seed of the streams.
+     */
+    public SeededGameRandom(long seed) {
+        this.seed = seed;
+        this.sequence = new SplittableRandom(seed);
+        this.cpu = sequence.split();
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public int nextSequenceBeat(int noOfBeatTypes) {
+        return sequence.nextInt(noOfBeatTypes) + 1;
+    }
+
+    @Override
+    public int nextCpuBeat(int noOfBeatTypes) {
+        return cpu.nextInt(noOfBeatTypes) + 1;
+    }
+}
@@ -0,0 +1,162 @@
+package catchthebeat.net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Class MatchClient
+ *
+ * Blocking client of the match server: joins a room, sends the beats of its
+ * player and reads the messages of the server one by one (see Protocol).
+ * Used by the loopback test, a frontend would read the messages in its own
+ * thread and show them.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class MatchClient {
+
+    private final SocketChannel channel;
+    private final ByteBuffer in = Protocol.allocate(1 + Protocol.MAX_NAME_LENGTH / Protocol.CHARS_PER_FRAME);
+    private final ByteBuffer out = Protocol.allocate(2 + Protocol.MAX_NAME_LENGTH / Protocol.CHARS_PER_FRAME);
+    private boolean greeted; // HELLO sent
+    // fields of the current message
+    private int type, a, b, c, value;
+    private long time;
+    private String name;
+
+    /**
+     * Connects to the server.
+     *
+     * @param address Address of the server.
+     */
+    public MatchClient(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    /**
+     * Asks the server for a seat in the room.
+     *
+     * @param roomId Id of the room.
+     * @param players Number of players of the room.
+     * @param difficulty Difficulty of the room.
+     * @param playerName Name of the player.
+     */
+    public void join(int roomId, int players, int difficulty, String playerName) throws IOException {
+        out.clear();
+        if (!greeted) {
+            WireProtocol.putHello(out);
+            greeted = true;
+        }
+        Protocol.put(out, Protocol.JOIN, players, difficulty, Protocol.nameFrames(playerName), roomId, clock());
+        Protocol.putName(out, playerName);
+        write();
+    }
+
+    /**
+     * Sends a beat hit now.
+     *
+     * @param beat Beat (range 1...number of drums).
+     */
+    public void beat(int beat) throws IOException {
+        out.clear();
+        Protocol.put(out, Protocol.BEAT, 0, beat, 0, 0, clock());
+        write();
+    }
+
+    /**
+     * Waits for the next message of the server.
+     *
+     * @return False if the server closed the connection.
+     * @throws IOException Also if the server speaks another version.
+     */
+    public boolean next() throws IOException {
+        do {
+            try {
+                read(1);
+            } catch (EOFException e) {
+                return false;
+            }
+            long header = in.getLong();
+            type = WireProtocol.headerType(header);
+            a = WireProtocol.headerA(header);
+            b = WireProtocol.headerB(header);
+            c = WireProtocol.headerC(header);
+            value = WireProtocol.headerValue(header);
+            time = in.getLong();
+            if (type == WireProtocol.HELLO && (value != WireProtocol.MAGIC || a != WireProtocol.VERSION)) {
+                throw new IOException("Server of another version of the protocol");
+            }
+        } while (type == WireProtocol.HELLO);
+        name = null;
+        if (type == Protocol.PLAYER) {
+            read(c);
+            name = Protocol.getName(in, c);
+        }
+        return true;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // clock of the client (ms), compared with the clock of the server when joining
+    private static long clock() {
+        return System.nanoTime() / 1000000L;
+    }
+
+    private void write() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    // read the frames into the buffer
+    private void read(int frames) throws IOException {
+        in.clear();
+        in.limit(frames * Protocol.FRAME_SIZE);
+        while (in.hasRemaining()) {
+            if (channel.read(in) < 0) {
+                throw new EOFException();
+            }
+        }
+        in.flip();
+    }
+
+    // The following getter methods return the fields of the current message.
+    public int getType() {
+        return type;
+    }
+
+    public int getA() {
+        return a;
+    }
+
+    public int getB() {
+        return b;
+    }
+
+    public int getC() {
+        return c;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return Name of the player of a PLAYER message.
+     */
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,215 @@
+package catchthebeat.net;
+
+import catchthebeat.sim.TickSkew;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class MatchServer
+ *
+ * Server running networked multiplayer matches: every room runs its own
+ * authoritative game (see Room), the clients only send their beats and get
+ * the deltas of the game back (see Protocol).
+ *
+ * 1) The server is split into shards, one thread each (see ServerShard).
+ *    The thread of the server only accepts the clients and hands them to
+ *    the shards in turn. A room lives in the shard given by its id, a client
+ *    joining it is moved there, so the rooms are not shared between threads
+ *    and nothing but the number of rooms is shared between the shards.
+ * 2) A client joins a room by its id; the first client creates the room with
+ *    its number of players and difficulty, the others must ask for the same.
+ *    A client may join another room once its match is over.
+ * 3) Every connection has fixed buffers: a client that does not read its
+ *    messages fast enough is disconnected once the buffer is full. The number
+ *    of rooms and of rounds of a match is limited as well, so the memory
+ *    of the server is bounded.
+ * 4) The clock of the server is System.nanoTime() in milliseconds. The clock
+ *    of a client is compared with it when the client joins, the times of its
+ *    beats are converted to the clock of the server by that difference.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class MatchServer implements Runnable {
+
+    public static final int MAX_PLAYERS = 10;
+    public static final int DEFAULT_MAX_ROOMS = 1000;
+    public static final int DEFAULT_MAX_ROUNDS = 200;
+    // time between ticks: distance of the drums (drum and tick, 160 px) at the steps
+    // of GameDrumSprite (2, 4 and 6 px per 20 ms animation step), index = difficulty
+    public static final long[] DEFAULT_TICK_PERIODS = {1600, 800, 533};
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final ServerShard[] shards;
+    private final int maxRooms;
+    private final AtomicInteger rooms = new AtomicInteger();
+    private int nextShard;
+    private volatile boolean running = true;
+
+    /**
+     * Opens the server socket, a shard per processor.
+     *
+     * @param address Address to listen on (port 0 = any free port).
+     * @param tickPeriods Milliseconds between ticks, index = difficulty.
+     * @param maxRooms Largest number of rooms at a time.
+     * @param maxRounds Largest number of rounds of a match.
+     */
+    public MatchServer(InetSocketAddress address, long[] tickPeriods, int maxRooms, int maxRounds)
+            throws IOException {
+        this(address, tickPeriods, maxRooms, maxRounds, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Opens the server socket.
+     *
+     * @param address Address to listen on (port 0 = any free port).
+     * @param tickPeriods Milliseconds between ticks, index = difficulty.
+     * @param maxRooms Largest number of rooms at a time.
+     * @param maxRounds Largest number of rounds of a match.
+     * @param noShards Number of shards (threads running the rooms).
+     */
+    public MatchServer(InetSocketAddress address, long[] tickPeriods, int maxRooms, int maxRounds, int noShards)
+            throws IOException {
+        this.maxRooms = maxRooms;
+        shards = new ServerShard[Math.max(noShards, 1)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ServerShard(this, i, tickPeriods, maxRounds);
+        }
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.configureBlocking(false);
+        server.socket().bind(address);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * @return Port the server listens on.
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return Number of rooms (waiting for players or playing).
+     */
+    public int getRooms() {
+        return rooms.get();
+    }
+
+    /**
+     * @return Lateness of the ticks of the rooms of all the shards (read after
+     * the server has stopped).
+     */
+    public TickSkew getSkew() {
+        TickSkew skew = new TickSkew();
+        for (ServerShard shard : shards) {
+            skew.add(shard.getSkew());
+        }
+        return skew;
+    }
+
+    /**
+     * Stops the server thread, all connections are closed.
+     */
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the server until closed (the shards run in their own threads).
+     */
+    @Override
+    public void run() {
+        for (ServerShard shard : shards) {
+            shard.start();
+        }
+        try {
+            while (running) {
+                selector.select();
+                selector.selectedKeys().clear();
+                accept();
+            }
+        } catch (IOException e) {
+            System.out.println("Match server stopped: " + e.getMessage());
+        } finally {
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                // closed anyway
+            }
+            try {
+                for (ServerShard shard : shards) {
+                    shard.close();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // clock of the server (ms)
+    static long now() {
+        return toServerTime(System.nanoTime());
+    }
+
+    // clock of the server (ms) at the time (System.nanoTime())
+    static long toServerTime(long nanos) {
+        return nanos / 1000000L;
+    }
+
+    private void accept() throws IOException {
+        for (SocketChannel channel; (channel = server.accept()) != null;) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            shards[nextShard].add(channel);
+            nextShard = (nextShard + 1) % shards.length;
+        }
+    }
+
+    /**
+     * @return Shard running the room.
+     */
+    ServerShard getShard(int roomId) {
+        return shards[Math.floorMod(roomId, shards.length)];
+    }
+
+    /**
+     * Counts a new room (called by the shard creating it).
+     *
+     * @return False if there are too many rooms already.
+     */
+    boolean addRoom() {
+        if (rooms.incrementAndGet() > maxRooms) {
+            rooms.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    void roomRemoved() {
+        rooms.decrementAndGet();
+    }
+
+    /**
+     * Runs the server.
+     *
+     * Usage: MatchServer [port] [max rooms] [shards]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4242;
+        int maxRooms = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_ROOMS;
+        int noShards = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        MatchServer server = new MatchServer(new InetSocketAddress(port), DEFAULT_TICK_PERIODS,
+                maxRooms, DEFAULT_MAX_ROUNDS, noShards);
+        System.out.println("Match server listening on port " + server.getPort());
+        server.run();
+    }
+}
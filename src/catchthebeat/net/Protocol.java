@@ -0,0 +1,118 @@
+package catchthebeat.net;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Class Protocol
+ *
+ * Messages passed between the match server and its clients. Every message
+ * is a little-endian frame of WireProtocol (type, three small fields a, b, c,
+ * an int value and a long time), the types are those of the match server
+ * in the table of WireProtocol. A name takes value characters in the c frames
+ * that follow its message.
+ *
+ * Both sides start with the HELLO frame of WireProtocol: the client sends it
+ * before its first message, the server checks its version (ERROR WRONG_VERSION
+ * if it is not the same) and sends its own one back.
+ *
+ * Client to server:
+ * JOIN   a = players of the room, b = difficulty, c = frames of the name,
+ *        value = room id, time = clock of the client (ms)
+ * BEAT   b = beat, time = clock of the client (ms) when the drum was hit
+ *
+ * Server to client (deltas of the game, no GUI calls):
+ * JOINED a = seat (player index, humans from 1), b = players, value = room id
+ * START  a = players, b = difficulty, c = drums, value = beats to start with,
+ *        time = seed
+ * PLAYER a = seat, c = frames of the name, value = length of the name
+ * TICK   a = current player, b = 1 if a beat is awaited, c = 1 if it is added,
+ *        value = index of the awaited beat, time = clock of the server (ms)
+ * BEAT_PLAYED a = player, b = beat, c = 1 if correct, value = accuracy or -1
+ * ROUND  a = round result + 1, b = next player, value = round number,
+ *        time = beats in the sequence
+ * END    a = result of the last round + 1, b = winner (0 = none), value = points
+ * ERROR  a = error code, the server closes the connection
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public final class Protocol {
+
+    public static final int FRAME_SIZE = WireProtocol.FRAME_SIZE;
+    public static final int CHARS_PER_FRAME = FRAME_SIZE / 2;
+    public static final int MAX_NAME_LENGTH = 32;
+    // client to server
+    public static final int JOIN = WireProtocol.SERVER_TYPES;
+    public static final int BEAT = WireProtocol.SERVER_TYPES + 1;
+    // server to client
+    public static final int JOINED = WireProtocol.SERVER_TYPES + 2;
+    public static final int START = WireProtocol.SERVER_TYPES + 3;
+    public static final int PLAYER = WireProtocol.SERVER_TYPES + 4;
+    public static final int TICK = WireProtocol.SERVER_TYPES + 5;
+    public static final int BEAT_PLAYED = WireProtocol.SERVER_TYPES + 6;
+    public static final int ROUND = WireProtocol.SERVER_TYPES + 7;
+    public static final int END = WireProtocol.SERVER_TYPES + 8;
+    public static final int ERROR = WireProtocol.SERVER_TYPES + 9;
+    // error codes
+    public static final int BAD_MESSAGE = 1;
+    public static final int ROOM_FULL = 2;
+    public static final int ROOM_MISMATCH = 3; // room exists with other players/difficulty
+    public static final int SERVER_FULL = 4;
+    public static final int WRONG_VERSION = 5; // HELLO of another version of WireProtocol
+
+    private Protocol() {
+    }
+
+    /**
+     * @param frames Number of frames the buffer holds.
+     * @return Little-endian heap buffer for the frames.
+     */
+    public static ByteBuffer allocate(int frames) {
+        return ByteBuffer.allocate(frames * FRAME_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes a frame (the buffer must be little-endian and have space for it).
+     */
+    public static void put(ByteBuffer buffer, int type, int a, int b, int c, int value, long time) {
+        WireProtocol.put(buffer, type, a, b, c, value, time);
+    }
+
+    /**
+     * @param name Name (at most MAX_NAME_LENGTH characters are sent).
+     * @return Number of frames taking the name.
+     */
+    public static int nameFrames(String name) {
+        int length = Math.min(name.length(), MAX_NAME_LENGTH);
+        return (length + CHARS_PER_FRAME - 1) / CHARS_PER_FRAME;
+    }
+
+    /**
+     * Writes the frames of a name (after its message).
+     */
+    public static void putName(ByteBuffer buffer, String name) {
+        int chars = nameFrames(name) * CHARS_PER_FRAME;
+        for (int i = 0; i < chars; i++) {
+            buffer.putChar(i < name.length() ? name.charAt(i) : 0);
+        }
+    }
+
+    /**
+     * Reads the frames of a name.
+     *
+     * @param frames Number of frames of the name.
+     * @return Name without the padding.
+     */
+    public static String getName(ByteBuffer buffer, int frames) {
+        char[] chars = new char[frames * CHARS_PER_FRAME];
+        int length = 0;
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = buffer.getChar();
+            if (chars[i] != 0) {
+                length = i + 1;
+            }
+        }
+        return new String(chars, 0, length);
+    }
+}
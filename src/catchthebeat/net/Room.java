@@ -0,0 +1,235 @@
+package catchthebeat.net;
+
+import catchthebeat.game.Game;
+import catchthebeat.game.MultiPlayerGame;
+import catchthebeat.game.Score;
+import catchthebeat.game.SeededGameRandom;
+import catchthebeat.sim.HeadlessLink;
+import catchthebeat.sim.TickWheel;
+import catchthebeat.ui.HitJudge;
+
+/**
+ * Class Room
+ *
+ * One match of the server: the players sitting at its seats and the game,
+ * which is the authority on the beats and the results. The room is run by
+ * the thread of its shard only.
+ *
+ * 1) Players join until the room is full, then the game starts and every
+ *    player gets the START message with the names of the others.
+ * 2) The shard ticks the room in the tempo of its difficulty (the room is
+ *    an entry of the timer wheel of the shard), each beat window opens at
+ *    a tick and lasts until the next one. A beat of the current player is
+ *    judged against the middle of the window by the time the client says it
+ *    was hit (converted to the clock of the server, not earlier than the window
+ *    opened and not later than the beat arrived).
+ * 3) Everything the game changes is broadcast as a delta: beats played,
+ *    round results, ticks and the end of the match.
+ * 4) A player who leaves stays in the game and times out on his turn.
+ *    The number of rounds is limited, so a room takes bounded memory.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+class Room extends TickWheel.Entry {
+
+    private final ServerShard shard;
+    private final int id;
+    private final int players;
+    private final int difficulty;
+    private final long tickPeriod;
+    private final int maxRounds;
+    private final ServerShard.Connection[] seats; // index = player index (humans from 1)
+    private final String[] names;
+    private final HitJudge judge = new HitJudge();
+    private int joined;
+    private Game game;
+    private long windowOpen; // server time the current beat window opened
+    private int lastRound;
+    private int accuracy; // of the human beat passed to the game
+    private boolean over;
+
+    // Nested link turning the calls of the game into deltas
+    private class RoomLink extends HeadlessLink {
+
+        @Override
+        public void guiSendBeat(int beat, boolean correct) {
+            boolean human = !game.getCurrentPlayer().isComputer();
+            broadcast(Protocol.BEAT_PLAYED, game.getCurrentPlayerIndex(), beat + 1, correct ? 1 : 0,
+                    human ? accuracy : -1, 0);
+        }
+    }
+
+    Room(ServerShard shard, int id, int players, int difficulty, long tickPeriod, int maxRounds) {
+        this.shard = shard;
+        this.id = id;
+        this.players = players;
+        this.difficulty = difficulty;
+        this.tickPeriod = tickPeriod;
+        this.maxRounds = maxRounds;
+        seats = new ServerShard.Connection[players + 1];
+        names = new String[players];
+    }
+
+    /**
+     * Seats the player.
+     *
+     * @return Seat of the player or 0 if the room is full.
+     */
+    int join(ServerShard.Connection connection, String name) {
+        if (joined == players) {
+            return 0;
+        }
+        joined++;
+        seats[joined] = connection;
+        names[joined - 1] = name;
+        connection.send(Protocol.JOINED, joined, players, 0, id, 0);
+        return joined;
+    }
+
+    /**
+     * Starts the game once the room is full.
+     *
+     * @param now Time of the server.
+     */
+    void start(long now) {
+        RoomLink link = new RoomLink();
+        SeededGameRandom random = new SeededGameRandom();
+        game = new MultiPlayerGame(names, difficulty, link, random);
+        link.setGame(game);
+        broadcast(Protocol.START, players, difficulty, game.getBeats().getNoOfBeatTypes(),
+                game.getBeats().size(), random.getSeed());
+        for (int seat = 1; seat <= players; seat++) {
+            for (ServerShard.Connection connection : seats) {
+                if (connection != null) {
+                    connection.sendName(Protocol.PLAYER, seat, names[seat - 1]);
+                }
+            }
+        }
+        lastRound = game.getRoundNumber();
+    }
+
+    @Override
+    protected void expire(long now) {
+        shard.tick(this, now);
+    }
+
+    /**
+     * Passes the tick to the game, a new beat window opens.
+     *
+     * @param now Time of the server.
+     */
+    void tick(long now) {
+        game.tick();
+        changed();
+        if (over) {
+            return;
+        }
+        windowOpen = now;
+        broadcast(Protocol.TICK, game.getCurrentPlayerIndex(), game.isAwaitingBeat() ? 1 : 0,
+                game.isAddingBeat() ? 1 : 0, game.getCurrentBeatIndex(), now);
+    }
+
+    /**
+     * Passes a beat of a player to the game if it is his turn.
+     *
+     * @param seat Seat of the player.
+     * @param beat Beat hit by the player.
+     * @param hitTime Time of the hit on the clock of the server.
+     * @param now Time of the server.
+     */
+    void beat(int seat, int beat, long hitTime, long now) {
+        if (game == null || over || seat != game.getCurrentPlayerIndex() || !game.isAwaitingBeat()
+                || beat < 1 || beat > game.getBeats().getNoOfBeatTypes()) {
+            return;
+        }
+        hitTime = Math.max(windowOpen, Math.min(hitTime, now));
+        accuracy = judge.judge(HitJudge.toFrames(hitTime), HitJudge.toFrames(windowOpen + tickPeriod / 2));
+        game.beat(beat, accuracy);
+        changed();
+    }
+
+    /**
+     * The player left, his seat is empty (he times out on his turn).
+     */
+    void leave(int seat) {
+        seats[seat] = null;
+    }
+
+    // broadcast the new round and the end of the match
+    private void changed() {
+        if (game.getRoundNumber() != lastRound) {
+            lastRound = game.getRoundNumber();
+            broadcast(Protocol.ROUND, game.getRoundResult() + 1, game.getCurrentPlayerIndex(), 0,
+                    lastRound, game.getBeats().size());
+        }
+        if (!game.isRunning() || lastRound > maxRounds) {
+            over = true;
+            Score score = game.getCurrentScore();
+            int winner = 0;
+            for (int seat = 1; seat <= players && score.getWinner() != null; seat++) {
+                if (names[seat - 1].equals(score.getWinner().getName())) {
+                    winner = seat;
+                    break;
+                }
+            }
+            broadcast(Protocol.END, game.getRoundResult() + 1, winner, 0, score.getPoints(), 0);
+        }
+    }
+
+    private void broadcast(int type, int a, int b, int c, int value, long time) {
+        for (ServerShard.Connection connection : seats) {
+            if (connection != null) {
+                connection.send(type, a, b, c, value, time);
+            }
+        }
+    }
+
+    // The following getter methods are self-explanatory.
+    int getId() {
+        return id;
+    }
+
+    int getPlayers() {
+        return players;
+    }
+
+    int getDifficulty() {
+        return difficulty;
+    }
+
+    long getTickPeriod() {
+        return tickPeriod;
+    }
+
+    boolean isFull() {
+        return joined == players;
+    }
+
+    boolean isStarted() {
+        return game != null;
+    }
+
+    boolean isOver() {
+        return over;
+    }
+
+    /**
+     * @return True if all the players have left.
+     */
+    boolean isEmpty() {
+        for (ServerShard.Connection connection : seats) {
+            if (connection != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Connections of the seated players (null = empty seat).
+     */
+    ServerShard.Connection[] getSeats() {
+        return seats;
+    }
+}
@@ -0,0 +1,448 @@
+package catchthebeat.net;
+
+import catchthebeat.sim.TickSkew;
+import catchthebeat.sim.TickWheel;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class ServerShard
+ *
+ * A part of the match server run by one thread: its own selector, the
+ * connections handed to it and the rooms whose id falls to it.
+ *
+ * 1) The rooms of the shard wait for their next ticks in a TickWheel. The
+ *    thread selects until the next tick of the wheel, the last part of the
+ *    wait is polled (the selector wakes up late), so a room ticks well within
+ *    a millisecond of its deadline however many rooms there are.
+ * 2) Everything of the shard is changed by its thread only. Connections come
+ *    from other threads through a lock-free queue: new clients from the
+ *    accepting thread and clients joining a room of this shard from the other
+ *    shards (with the JOIN message not read yet).
+ * 3) The lateness of the ticks is counted (TickSkew).
+ *
+ * @author agent
+ * @version 2026.10
+ */
+class ServerShard implements Runnable {
+
+    private static final int IN_FRAMES = 32;
+    private static final int OUT_FRAMES = 256;
+    private static final long SPIN_NANOS = 200000L;
+
+    private final MatchServer server;
+    private final Selector selector;
+    private final long[] tickPeriods;
+    private final int maxRounds;
+    private final TickWheel wheel;
+    private final TickSkew skew = new TickSkew();
+    private final Map<Integer, Room> rooms = new HashMap<Integer, Room>();
+    private final List<Connection> pending = new ArrayList<Connection>(); // with messages to write
+    private final ConcurrentLinkedQueue<Object> added = new ConcurrentLinkedQueue<Object>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Class Connection
+     *
+     * A connected client: its channel, fixed buffers and seat.
+     */
+    class Connection {
+
+        private final SocketChannel channel;
+        private final ByteBuffer in; // kept ready for reading from the channel
+        private final ByteBuffer out;
+        private ServerShard shard;
+        private SelectionKey key;
+        private Room room;
+        private int seat;
+        private long clockOffset; // clock of the server - clock of the client
+        private boolean greeted; // HELLO of the client read
+        private boolean pendingWrite;
+        private boolean closing; // close once the messages are written
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            in = Protocol.allocate(IN_FRAMES);
+            out = Protocol.allocate(OUT_FRAMES);
+        }
+
+        /**
+         * Queues a message, the client is disconnected if its buffer is full.
+         */
+        void send(int type, int a, int b, int c, int value, long time) {
+            if (closing) {
+                return;
+            }
+            if (out.remaining() < Protocol.FRAME_SIZE) {
+                close(); // too slow, drop the client
+                return;
+            }
+            Protocol.put(out, type, a, b, c, value, time);
+            if (!pendingWrite) {
+                pendingWrite = true;
+                shard.pending.add(this);
+            }
+        }
+
+        /**
+         * Queues a message followed by a name.
+         */
+        void sendName(int type, int a, String name) {
+            int frames = Protocol.nameFrames(name);
+            if (out.remaining() < (frames + 1) * Protocol.FRAME_SIZE) {
+                send(type, a, 0, frames, name.length(), 0); // drops the client
+                return;
+            }
+            send(type, a, 0, frames, Math.min(name.length(), Protocol.MAX_NAME_LENGTH), 0);
+            Protocol.putName(out, name);
+        }
+
+        // queue an error and close the connection once it is written
+        void fail(int error) {
+            send(Protocol.ERROR, error, 0, 0, 0, 0);
+            closing = true;
+        }
+
+        // write as much as the socket takes
+        void flush() {
+            pendingWrite = false;
+            try {
+                out.flip();
+                channel.write(out);
+                out.compact();
+            } catch (IOException e) {
+                out.clear();
+                close();
+                return;
+            }
+            if (out.position() > 0) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+                if (closing) {
+                    close();
+                }
+            }
+        }
+
+        void close() {
+            closing = true;
+            if (room != null) {
+                room.leave(seat);
+                if (room.isEmpty()) {
+                    shard.removeRoom(room);
+                }
+                room = null;
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // closed anyway
+            }
+        }
+    }
+
+    /**
+     * @param server Server of the shard.
+     * @param index Index of the shard (names the thread).
+     * @param tickPeriods Milliseconds between ticks, index = difficulty.
+     * @param maxRounds Largest number of rounds of a match.
+     */
+    ServerShard(MatchServer server, int index, long[] tickPeriods, int maxRounds) throws IOException {
+        this.server = server;
+        this.tickPeriods = tickPeriods;
+        this.maxRounds = maxRounds;
+        selector = Selector.open();
+        wheel = new TickWheel(TickWheel.DEFAULT_BUCKETS, TickWheel.DEFAULT_RESOLUTION, System.nanoTime());
+        thread = new Thread(this, "Match server shard " + index);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops the thread of the shard, all its connections are closed.
+     */
+    void close() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        thread.join();
+    }
+
+    /**
+     * Hands a new client to the shard (called by the accepting thread).
+     */
+    void add(SocketChannel channel) {
+        added.add(channel);
+        selector.wakeup();
+    }
+
+    // hand a client joining a room of this shard over (called by another shard)
+    private void add(Connection connection) {
+        added.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * @return Lateness of the ticks of the rooms (read after close()).
+     */
+    TickSkew getSkew() {
+        return skew;
+    }
+
+    /**
+     * Runs the shard until closed.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                for (Object item; (item = added.poll()) != null;) {
+                    Connection connection = (item instanceof Connection)
+                            ? (Connection) item : new Connection((SocketChannel) item);
+                    adopt(connection);
+                }
+                wheel.advance(System.nanoTime());
+                flush();
+                long wait = wheel.isEmpty() ? -1 : wheel.nextExpiryTime() - System.nanoTime();
+                int selected;
+                if (wait < 0 && wheel.isEmpty()) {
+                    selected = selector.select();
+                } else if (wait >= SPIN_NANOS + 1000000L) {
+                    selected = selector.select((wait - SPIN_NANOS) / 1000000L);
+                } else {
+                    // the selector waits whole milliseconds and wakes up late,
+                    // so a shorter wait is parked and the tick itself polled for
+                    selected = selector.selectNow();
+                    if (selected == 0 && wait > SPIN_NANOS) {
+                        LockSupport.parkNanos(this, wait - SPIN_NANOS);
+                    } else if (selected == 0) {
+                        Thread.yield();
+                    }
+                }
+                if (selected > 0) {
+                    handleKeys();
+                }
+                flush();
+            }
+        } catch (IOException e) {
+            System.out.println("Match server shard stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    // closed anyway
+                }
+            }
+            for (Object item; (item = added.poll()) != null;) {
+                try {
+                    ((item instanceof Connection) ? ((Connection) item).channel : (SocketChannel) item).close();
+                } catch (IOException e) {
+                    // closed anyway
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // closed anyway
+            }
+        }
+    }
+
+    private void handleKeys() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            Connection connection = (Connection) key.attachment();
+            if (key.isWritable()) {
+                connection.flush();
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(connection);
+            }
+        }
+    }
+
+    // register the client with this shard and read what it has sent already
+    private void adopt(Connection connection) {
+        connection.shard = this;
+        try {
+            connection.channel.configureBlocking(false);
+            connection.key = connection.channel.register(selector, SelectionKey.OP_READ, connection);
+        } catch (IOException e) {
+            connection.close();
+            return;
+        }
+        connection.pendingWrite = false;
+        if (connection.out.position() > 0) {
+            connection.pendingWrite = true;
+            pending.add(connection);
+        }
+        handle(connection);
+    }
+
+    // tick of a room (called by the wheel)
+    void tick(Room room, long now) {
+        skew.record(now - room.getDeadline());
+        room.tick(MatchServer.toServerTime(now));
+        if (room.isOver()) {
+            endRoom(room);
+        } else if (rooms.get(room.getId()) == room) { // not left by all players
+            wheel.schedule(room, room.getDeadline() + room.getTickPeriod() * 1000000L);
+        }
+    }
+
+    // write the queued messages of all connections of this shard
+    private void flush() {
+        for (int i = 0; i < pending.size(); i++) {
+            Connection connection = pending.get(i);
+            if (connection.shard == this && connection.key.isValid()) {
+                connection.flush();
+            }
+        }
+        pending.clear();
+    }
+
+    private void read(Connection connection) {
+        try {
+            if (connection.channel.read(connection.in) < 0) {
+                connection.close();
+                return;
+            }
+        } catch (IOException e) {
+            connection.close();
+            return;
+        }
+        handle(connection);
+    }
+
+    // handle the complete messages received
+    private void handle(Connection connection) {
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= Protocol.FRAME_SIZE && !connection.closing) {
+            int start = in.position();
+            long header = in.getLong(start);
+            int type = WireProtocol.headerType(header);
+            int frames = 1 + ((type == Protocol.JOIN) ? WireProtocol.headerC(header) : 0);
+            if (frames < 1 || frames > 1 + Protocol.MAX_NAME_LENGTH / Protocol.CHARS_PER_FRAME) {
+                connection.fail(Protocol.BAD_MESSAGE);
+                break;
+            }
+            if (in.remaining() < frames * Protocol.FRAME_SIZE) {
+                break; // rest of the name not received yet
+            }
+            if (type == Protocol.JOIN && connection.room == null) {
+                ServerShard target = server.getShard(WireProtocol.headerValue(header));
+                if (target != this) {
+                    // the room lives in another shard, which reads the message again
+                    in.position(start);
+                    in.compact();
+                    connection.key.cancel();
+                    connection.key = null;
+                    connection.shard = target;
+                    target.add(connection);
+                    return;
+                }
+            }
+            in.getLong();
+            int a = WireProtocol.headerA(header);
+            int b = WireProtocol.headerB(header);
+            int c = WireProtocol.headerC(header);
+            int value = WireProtocol.headerValue(header);
+            long time = in.getLong();
+            if (type == WireProtocol.HELLO) {
+                if (value != WireProtocol.MAGIC || a != WireProtocol.VERSION) {
+                    connection.fail(Protocol.WRONG_VERSION);
+                } else {
+                    connection.greeted = true;
+                    connection.send(WireProtocol.HELLO, WireProtocol.VERSION, 0, 0, WireProtocol.MAGIC, 0);
+                }
+            } else if (!connection.greeted) {
+                connection.fail(Protocol.BAD_MESSAGE); // no HELLO first
+            } else if (type == Protocol.JOIN) {
+                join(connection, a, b, value, time, Protocol.getName(in, c));
+            } else if (type == Protocol.BEAT) {
+                if (connection.room != null) {
+                    long now = MatchServer.now();
+                    connection.room.beat(connection.seat, b, time + connection.clockOffset, now);
+                    if (connection.room != null && connection.room.isOver()) {
+                        endRoom(connection.room);
+                    }
+                }
+            } else {
+                connection.fail(Protocol.BAD_MESSAGE);
+            }
+        }
+        in.compact();
+    }
+
+    private void join(Connection connection, int players, int difficulty, int roomId, long clientTime, String name) {
+        if (connection.room != null || players < 1 || players > MatchServer.MAX_PLAYERS
+                || difficulty < 0 || difficulty >= tickPeriods.length) {
+            connection.fail(Protocol.BAD_MESSAGE);
+            return;
+        }
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            if (!server.addRoom()) {
+                connection.fail(Protocol.SERVER_FULL);
+                return;
+            }
+            room = new Room(this, roomId, players, difficulty, tickPeriods[difficulty], maxRounds);
+            rooms.put(roomId, room);
+        } else if (room.getPlayers() != players || room.getDifficulty() != difficulty) {
+            connection.fail(Protocol.ROOM_MISMATCH);
+            return;
+        } else if (room.isFull()) {
+            connection.fail(Protocol.ROOM_FULL);
+            return;
+        }
+        connection.clockOffset = MatchServer.now() - clientTime;
+        connection.seat = room.join(connection, name);
+        connection.room = room;
+        if (room.isFull()) {
+            long now = System.nanoTime();
+            room.start(MatchServer.toServerTime(now));
+            wheel.schedule(room, now + room.getTickPeriod() * 1000000L);
+        }
+    }
+
+    // the match is over, players may join other rooms
+    private void endRoom(Room room) {
+        for (Connection connection : room.getSeats()) {
+            if (connection != null) {
+                connection.room = null;
+            }
+        }
+        removeRoom(room);
+    }
+
+    private void removeRoom(Room room) {
+        if (rooms.get(room.getId()) == room) {
+            rooms.remove(room.getId());
+            server.roomRemoved();
+        }
+        wheel.cancel(room);
+    }
+}
@@ -0,0 +1,243 @@
+package catchthebeat.net;
+
+import catchthebeat.game.BeatSequence;
+import catchthebeat.game.Game;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class SpectatorFeed
+ *
+ * Live feed of a match for spectators: the thread running the game publishes
+ * the changes of the game, any number of subscribers (see SpectatorServer)
+ * read them at their own pace.
+ *
+ * 1) Changes are published as deltas (current player, beats added to
+ *    the sequence, round result, points, end of the match) in frames of
+ *    WireProtocol layout. Every KEYFRAME_INTERVAL frames, and when a new game
+ *    starts, a keyframe with the whole state is published, a subscriber starts
+ *    from the latest keyframe.
+ * 2) Frames are written to one ring shared by all the subscribers, each
+ *    subscriber only has its position in it. So publishing takes the same
+ *    time for one and for thousands of subscribers, and it never waits for
+ *    them: the oldest frames are overwritten.
+ * 3) A subscriber that falls half a ring behind would soon lose frames, so
+ *    its backlog is conflated: it skips to the latest keyframe (counted as
+ *    a skip). The backlog of a subscriber is bounded by the ring.
+ * 4) Every slot of the ring carries the position of its frame, written after
+ *    the frame (like CommandQueue), so a subscriber reading a frame being
+ *    overwritten notices it. One thread publishes at a time.
+ *
+ * Frames:
+ * KEYFRAME a = current player, b = round result + 1, c = 1 if running,
+ *          value = round number, time = points; followed by SEQUENCE
+ * SEQUENCE value = number of beats, followed by the BEATS frames of all of them
+ * BEATS    a = number of beats in the frame (up to BEATS_PER_FRAME), the beats
+ *          are bytes of value (first four) and of time (the rest), appended
+ *          to the sequence
+ * PLAYER   a = current player
+ * ROUND    a = round result + 1, value = round number
+ * POINTS   value = points
+ * END      (the match is over)
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class SpectatorFeed {
+
+    public static final int DEFAULT_CAPACITY = 4096; // frames
+    public static final int KEYFRAME_INTERVAL = 256; // frames
+    public static final int BEATS_PER_FRAME = 12;
+    // frame types (after the events of WireProtocol)
+    public static final int KEYFRAME = WireProtocol.SPECTATOR_TYPES;
+    public static final int SEQUENCE = WireProtocol.SPECTATOR_TYPES + 1;
+    public static final int BEATS = WireProtocol.SPECTATOR_TYPES + 2;
+    public static final int PLAYER = WireProtocol.SPECTATOR_TYPES + 3;
+    public static final int ROUND = WireProtocol.SPECTATOR_TYPES + 4;
+    public static final int POINTS = WireProtocol.SPECTATOR_TYPES + 5;
+    public static final int END = WireProtocol.SPECTATOR_TYPES + 6;
+
+    private final int mask;
+    private final int lag; // frames a subscriber may fall behind
+    private final AtomicLongArray frames; // header and time of each slot
+    private final AtomicLongArray positions; // position of the frame in the slot + 1 (0 = being written)
+    private final AtomicLong tail = new AtomicLong(); // position of the next frame
+    private volatile long keyframe = -1; // position of the latest keyframe
+    // last state published (publishing thread only)
+    private Game game;
+    private int player;
+    private int roundResult;
+    private int roundNumber;
+    private int noBeats;
+    private int points;
+    private boolean running;
+    private long lastKeyframe;
+
+    /**
+     * Class Subscription
+     *
+     * Position of one subscriber in the feed, read by one thread at a time.
+     */
+    public class Subscription {
+
+        private long position = -1; // next frame to read, -1 = latest keyframe
+        private long skips;
+
+        /**
+         * Copies the frames not read yet into the buffer (as many as it takes).
+         *
+         * @param buffer Little-endian buffer to write the frames to.
+         * @return Number of frames copied.
+         */
+        public int poll(ByteBuffer buffer) {
+            int copied = 0;
+            while (buffer.remaining() >= WireProtocol.FRAME_SIZE) {
+                if (position < 0 || tail.get() - position > lag) {
+                    // start or lost frames: conflate to the latest keyframe
+                    if (keyframe < 0) {
+                        return copied;
+                    }
+                    if (position >= 0) {
+                        skips++;
+                    }
+                    position = keyframe;
+                }
+                if (position >= tail.get()) {
+                    return copied;
+                }
+                int slot = (int) position & mask;
+                long header = frames.get(2 * slot);
+                long time = frames.get(2 * slot + 1);
+                if (positions.get(slot) != position + 1) {
+                    position = -1; // overwritten while read
+                    continue;
+                }
+                buffer.putLong(header).putLong(time);
+                position++;
+                copied++;
+            }
+            return copied;
+        }
+
+        /**
+         * @return True if there are frames not read yet.
+         */
+        public boolean isBehind() {
+            return position < tail.get();
+        }
+
+        /**
+         * @return How many times frames were lost and skipped.
+         */
+        public long getSkips() {
+            return skips;
+        }
+    }
+
+    public SpectatorFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Number of frames of the ring (rounded up to a power of two),
+     * a keyframe must take less than a quarter of it.
+     */
+    public SpectatorFeed(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 4 * KEYFRAME_INTERVAL) - 1) << 1;
+        mask = size - 1;
+        lag = size / 2; // the rest is left for the frames written while a subscriber reads
+        frames = new AtomicLongArray(2 * size);
+        positions = new AtomicLongArray(size);
+    }
+
+    public Subscription subscribe() {
+        return new Subscription();
+    }
+
+    /**
+     * @return Number of frames published so far.
+     */
+    public long getPublished() {
+        return tail.get();
+    }
+
+    /**
+     * Publishes the changes of the game since the last call (called by
+     * the thread changing the game after each change, never waits).
+     *
+     * @param game Game of the match (a new one starts with a keyframe).
+     */
+    public void publish(Game game) {
+        if (game != this.game || tail.get() - lastKeyframe >= KEYFRAME_INTERVAL) {
+            this.game = game;
+            publishKeyframe(game);
+            return;
+        }
+        if (game.getCurrentPlayerIndex() != player) {
+            player = game.getCurrentPlayerIndex();
+            put(PLAYER, player, 0, 0, 0, 0);
+        }
+        BeatSequence beats = game.getBeats();
+        if (beats.size() > noBeats) {
+            putBeats(beats, noBeats);
+        }
+        if (game.getRoundResult() != roundResult || game.getRoundNumber() != roundNumber) {
+            roundResult = game.getRoundResult();
+            roundNumber = game.getRoundNumber();
+            put(ROUND, roundResult + 1, 0, 0, roundNumber, 0);
+        }
+        if (game.getCurrentScore().getPoints() != points) {
+            points = game.getCurrentScore().getPoints();
+            put(POINTS, 0, 0, 0, points, 0);
+        }
+        if (running && !game.isRunning()) {
+            running = false;
+            put(END, 0, 0, 0, 0, 0);
+        }
+    }
+
+    private void publishKeyframe(Game game) {
+        player = game.getCurrentPlayerIndex();
+        roundResult = game.getRoundResult();
+        roundNumber = game.getRoundNumber();
+        points = game.getCurrentScore().getPoints();
+        running = game.isRunning();
+        long start = tail.get();
+        put(KEYFRAME, player, roundResult + 1, running ? 1 : 0, roundNumber, points);
+        BeatSequence beats = game.getBeats();
+        put(SEQUENCE, 0, 0, 0, beats.size(), 0);
+        putBeats(beats, 0);
+        lastKeyframe = start;
+        keyframe = start; // complete, subscribers may start from it
+    }
+
+    // put the beats from the index on
+    private void putBeats(BeatSequence beats, int from) {
+        int size = beats.size();
+        for (int i = from; i < size; i += BEATS_PER_FRAME) {
+            int count = Math.min(BEATS_PER_FRAME, size - i);
+            int low = 0;
+            long high = 0;
+            for (int j = 0; j < count; j++) {
+                if (j < 4) {
+                    low |= (beats.get(i + j) & 0xff) << (8 * j);
+                } else {
+                    high |= (long) (beats.get(i + j) & 0xff) << (8 * (j - 4));
+                }
+            }
+            put(BEATS, count, 0, 0, low, high);
+        }
+        noBeats = size;
+    }
+
+    private void put(int type, int a, int b, int c, int value, long time) {
+        long position = tail.get();
+        int slot = (int) position & mask;
+        positions.lazySet(slot, 0);
+        frames.lazySet(2 * slot, WireProtocol.header(type, a, b, c, value));
+        frames.lazySet(2 * slot + 1, time);
+        positions.lazySet(slot, position + 1); // publish the frame
+        tail.lazySet(position + 1);
+    }
+}
@@ -0,0 +1,212 @@
+package catchthebeat.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Class SpectatorServer
+ *
+ * Sends a SpectatorFeed to the displays connected over TCP (e.g. the screens
+ * in the venue of a tournament).
+ *
+ * 1) One thread serves all the displays: a selector accepts them and every
+ *    POLL_MILLIS (or when a socket takes more) the frames of the feed not sent
+ *    yet are copied into the fixed buffer of each display and written without
+ *    blocking. The thread running the game only publishes to the feed.
+ * 2) Every display gets the HELLO frame of WireProtocol first, then the latest
+ *    keyframe and the deltas after it. A display that does not read fast
+ *    enough falls behind in the feed and is skipped to a newer keyframe,
+ *    the frames already in its buffer are still sent.
+ * 3) Displays only read, anything they send is ignored.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class SpectatorServer implements Runnable {
+
+    public static final int DEFAULT_MAX_SPECTATORS = 2000;
+    private static final int POLL_MILLIS = 1;
+    private static final int OUT_FRAMES = 64;
+
+    private final SpectatorFeed feed;
+    private final int maxSpectators;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final List<Spectator> spectators = new ArrayList<Spectator>();
+    private final ByteBuffer ignored = ByteBuffer.allocate(256);
+    private long skips; // of the displays disconnected
+    private volatile boolean running = true;
+
+    // Nested class: a connected display and its position in the feed
+    private class Spectator {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final SpectatorFeed.Subscription subscription = feed.subscribe();
+        private final ByteBuffer out = WireProtocol.allocate(OUT_FRAMES);
+        private boolean closed;
+
+        Spectator(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            key = channel.register(selector, SelectionKey.OP_READ, this);
+            WireProtocol.putHello(out);
+        }
+
+        // copy the new frames and write as much as the socket takes
+        void send() {
+            subscription.poll(out);
+            if (out.position() == 0) {
+                return;
+            }
+            try {
+                out.flip();
+                channel.write(out);
+                out.compact();
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            key.interestOps((out.position() > 0) ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        void close() {
+            closed = true;
+            skips += subscription.getSkips();
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // closed anyway
+            }
+        }
+    }
+
+    /**
+     * Opens the server socket.
+     *
+     * @param feed Feed sent to the displays.
+     * @param address Address to listen on (port 0 = any free port).
+     * @param maxSpectators Largest number of displays at a time.
+     */
+    public SpectatorServer(SpectatorFeed feed, InetSocketAddress address, int maxSpectators) throws IOException {
+        this.feed = feed;
+        this.maxSpectators = maxSpectators;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.configureBlocking(false);
+        server.socket().bind(address, maxSpectators);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * @return Port the server listens on.
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return How many times a display fell behind and was skipped to a newer
+     * keyframe (read after the server has stopped).
+     */
+    public long getSkips() {
+        long sum = skips;
+        for (Spectator spectator : spectators) {
+            sum += spectator.closed ? 0 : spectator.subscription.getSkips();
+        }
+        return sum;
+    }
+
+    /**
+     * Stops the server thread, all displays are disconnected.
+     */
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the server until closed.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(POLL_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read((Spectator) key.attachment());
+                    }
+                }
+                for (int i = 0; i < spectators.size(); i++) {
+                    Spectator spectator = spectators.get(i);
+                    if (!spectator.closed && (spectator.subscription.isBehind() || spectator.out.position() > 0)) {
+                        spectator.send();
+                    }
+                    if (spectator.closed) {
+                        // remove by moving the last one here
+                        spectators.set(i, spectators.get(spectators.size() - 1));
+                        spectators.remove(spectators.size() - 1);
+                        i--;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Spectator server stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    // closed anyway
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // closed anyway
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        for (SocketChannel channel; (channel = server.accept()) != null;) {
+            if (spectators.size() >= maxSpectators) {
+                channel.close();
+                continue;
+            }
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            spectators.add(new Spectator(channel));
+        }
+    }
+
+    // a display sends nothing, a read only notices that it has disconnected
+    private void read(Spectator spectator) {
+        try {
+            ignored.clear();
+            if (spectator.channel.read(ignored) < 0) {
+                spectator.close();
+            }
+        } catch (IOException e) {
+            spectator.close();
+        }
+    }
+}
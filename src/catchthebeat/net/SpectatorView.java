@@ -0,0 +1,145 @@
+package catchthebeat.net;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Class SpectatorView
+ *
+ * State of a match as seen by a display: rebuilt from the frames of
+ * a SpectatorFeed (keyframes and the deltas after them).
+ *
+ * 1) Frames before the first keyframe are ignored, a keyframe replaces
+ *    the whole state, the deltas change it.
+ * 2) The HELLO frame of WireProtocol is checked, other frames not known
+ *    are skipped.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class SpectatorView {
+
+    private boolean synced; // a keyframe has been read
+    private int player;
+    private int roundResult;
+    private int roundNumber;
+    private int points;
+    private boolean running;
+    private int[] beats = new int[64];
+    private int noBeats;
+    private long keyframes;
+
+    /**
+     * Applies the complete frames between the position and the limit of
+     * the buffer (a partial frame is left for the next call).
+     *
+     * @param buffer Little-endian buffer ready for reading.
+     * @return Number of frames applied.
+     * @throws IllegalStateException If the HELLO frame is not of this version.
+     */
+    public int apply(ByteBuffer buffer) {
+        if (buffer.order() != ByteOrder.LITTLE_ENDIAN) {
+            throw new IllegalArgumentException("Frames are little-endian");
+        }
+        int applied = 0;
+        while (buffer.remaining() >= WireProtocol.FRAME_SIZE) {
+            long header = buffer.getLong();
+            long time = buffer.getLong();
+            int type = WireProtocol.headerType(header);
+            int a = WireProtocol.headerA(header);
+            int b = WireProtocol.headerB(header);
+            int c = WireProtocol.headerC(header);
+            int value = WireProtocol.headerValue(header);
+            if (type == WireProtocol.HELLO) {
+                if (value != WireProtocol.MAGIC || a != WireProtocol.VERSION) {
+                    throw new IllegalStateException("Not a stream of version " + WireProtocol.VERSION);
+                }
+                continue;
+            }
+            if (type == SpectatorFeed.KEYFRAME) {
+                synced = true;
+                keyframes++;
+                player = a;
+                roundResult = b - 1;
+                roundNumber = value;
+                points = (int) time;
+                running = c != 0;
+            } else if (!synced) {
+                continue;
+            }
+            switch (type) {
+                case SpectatorFeed.SEQUENCE:
+                    noBeats = 0;
+                    break;
+                case SpectatorFeed.BEATS:
+                    addBeats(a, value, time);
+                    break;
+                case SpectatorFeed.PLAYER:
+                    player = a;
+                    break;
+                case SpectatorFeed.ROUND:
+                    roundResult = a - 1;
+                    roundNumber = value;
+                    break;
+                case SpectatorFeed.POINTS:
+                    points = value;
+                    break;
+                case SpectatorFeed.END:
+                    running = false;
+                    break;
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    private void addBeats(int count, int low, long high) {
+        if (noBeats + count > beats.length) {
+            beats = Arrays.copyOf(beats, Math.max(beats.length * 2, noBeats + count));
+        }
+        for (int j = 0; j < count; j++) {
+            beats[noBeats++] = (j < 4) ? (low >>> (8 * j)) & 0xff : (int) (high >>> (8 * (j - 4))) & 0xff;
+        }
+    }
+
+    // The following getter methods are self-explanatory.
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public int getPlayerIndex() {
+        return player;
+    }
+
+    public int getRoundResult() {
+        return roundResult;
+    }
+
+    public int getRoundNumber() {
+        return roundNumber;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getNoBeats() {
+        return noBeats;
+    }
+
+    public int getBeat(int index) {
+        return beats[index];
+    }
+
+    /**
+     * @return Number of keyframes read (the first one and those skipped to).
+     */
+    public long getKeyframes() {
+        return keyframes;
+    }
+}
@@ -0,0 +1,125 @@
+package catchthebeat.net;
+
+import catchthebeat.game.Game;
+import catchthebeat.sim.HeadlessLink;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Class WireLink
+ *
+ * Headless frontend-backend link that sends the events of the game as frames
+ * of WireProtocol to a channel: a socket (network play), a file (log) or
+ * a pipe to a renderer running in another process.
+ *
+ * 1) The game runs exactly as with HeadlessLink, the calls it makes to the GUI
+ *    and the beats it gets are encoded into a direct buffer, time of an event
+ *    is the number of ticks so far.
+ * 2) The buffer is written to the channel once it is full and by flush()
+ *    (called by the driver, e.g. after each tick and when the match is over).
+ * 3) The game cannot take an exception, so the first error of the channel is
+ *    kept, the following events are dropped and flush() throws the error.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class WireLink extends HeadlessLink {
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer out;
+    private long ticks;
+    private IOException error;
+
+    /**
+     * @param channel Channel the events are written to (blocking).
+     * @param frames Number of events buffered before they are written.
+     */
+    public WireLink(WritableByteChannel channel, int frames) {
+        this.channel = channel;
+        out = WireProtocol.allocate(Math.max(frames, 1));
+        WireProtocol.putHello(out);
+    }
+
+    /**
+     * Writes the buffered events to the channel.
+     *
+     * @throws IOException The first error of the channel (events are dropped since).
+     */
+    public void flush() throws IOException {
+        if (error == null) {
+            try {
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            out.clear();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // make space for an event
+    private ByteBuffer buffer() {
+        if (out.remaining() < WireProtocol.FRAME_SIZE) {
+            try {
+                flush();
+            } catch (IOException e) {
+                out.clear(); // kept in error
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void setGame(Game game) {
+        ticks = 0;
+        super.setGame(game);
+    }
+
+    @Override
+    public void tick() {
+        ticks++;
+        WireProtocol.putTick(buffer(), ticks);
+        super.tick();
+    }
+
+    @Override
+    public void humanKeyPressed(int beat) {
+        if (!locked) {
+            WireProtocol.putBeat(buffer(), game.getCurrentPlayerIndex(), beat, false, -1, ticks);
+        }
+        super.humanKeyPressed(beat);
+    }
+
+    @Override
+    public void computerKeyPressed(int beat) {
+        WireProtocol.putBeat(buffer(), game.getCurrentPlayerIndex(), beat, true, -1, ticks);
+        super.computerKeyPressed(beat);
+    }
+
+    @Override
+    public void keyboardLocked(boolean locked) {
+        WireProtocol.putKeyboardLocked(buffer(), locked, ticks);
+        super.keyboardLocked(locked);
+    }
+
+    @Override
+    public void guiEndRound(boolean endGame) {
+        WireProtocol.putEndRound(buffer(), endGame, ticks);
+    }
+
+    @Override
+    public void guiSendBeat(int beat, boolean correct) {
+        WireProtocol.putSendBeat(buffer(), beat, correct, ticks);
+    }
+
+    @Override
+    public void playEffect(int effect) {
+        WireProtocol.putPlayEffect(buffer(), effect, ticks);
+    }
+}
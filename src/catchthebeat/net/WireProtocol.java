@@ -0,0 +1,219 @@
+package catchthebeat.net;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Class WireProtocol
+ *
+ * Binary form of the events passed between the backend and the frontend
+ * through FrontBackLink (ticks, beats, beats shown by the GUI, ends of rounds,
+ * sound effects and the keyboard lock), so they can be sent over the network,
+ * written to a log or passed to a renderer in another process (see WireLink).
+ * The frames of the match server (Protocol), of the spectator feed
+ * (SpectatorFeed) and the records of MatchLog are written by this class too.
+ *
+ * 1) Every event is a frame of FRAME_SIZE bytes with the layout of the records
+ *    of MatchLog and the frames of Protocol: type, three small fields (a, b, c),
+ *    an int value and a long time. The frames are little-endian, the first
+ *    eight bytes are written and read as one long, so an event is two writes
+ *    to the buffer (direct buffers from allocate() take them without copying).
+ * 2) A stream starts with a HELLO frame carrying MAGIC and the VERSION of
+ *    the layout. New event types may be added within a version, a decoder
+ *    skips the frames it does not know; the version changes only if the
+ *    layout of the existing events does.
+ * 3) Decoding calls a Handler for every event, nothing is allocated either way.
+ * 4) All the frames share one table of types, so frames of any stream can be
+ *    told apart (and skipped by dispatch()):
+ *    1-15  events of the link (this class), also the ticks and beats of MatchLog
+ *    16-31 messages between MatchServer and its clients (SERVER_TYPES, Protocol)
+ *    32-47 spectator feed (SPECTATOR_TYPES, SpectatorFeed)
+ *    48-63 other records of MatchLog (LOG_TYPES)
+ *
+ * Events:
+ * HELLO        a = version, value = MAGIC
+ * TICK         time
+ * BEAT         a = player, b = beat, c = 1 if computer, value = accuracy or -1
+ * SEND_BEAT    b = beat, c = 1 if correct (FrontBackLink.guiSendBeat)
+ * END_ROUND    c = 1 if the game is over (FrontBackLink.guiEndRound)
+ * PLAY_EFFECT  value = effect (FrontBackLink.playEffect)
+ * KEYBOARD_LOCKED c = 1 if locked (FrontBackLink.keyboardLocked)
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public final class WireProtocol {
+
+    public static final int FRAME_SIZE = 16;
+    public static final int MAGIC = 0x43544257; // "CTBW"
+    public static final int VERSION = 1;
+    // event types
+    public static final int HELLO = 1;
+    public static final int TICK = 2;
+    public static final int BEAT = 3;
+    public static final int SEND_BEAT = 4;
+    public static final int END_ROUND = 5;
+    public static final int PLAY_EFFECT = 6;
+    public static final int KEYBOARD_LOCKED = 7;
+    // first types of the other frames
+    public static final int SERVER_TYPES = 16;
+    public static final int SPECTATOR_TYPES = 32;
+    public static final int LOG_TYPES = 48;
+
+    /**
+     * Interface Handler
+     *
+     * Gets the decoded events, time is the time the event was encoded with.
+     */
+    public interface Handler {
+
+        public void tick(long time);
+
+        public void beat(int player, int beat, boolean computer, int accuracy, long time);
+
+        public void sendBeat(int beat, boolean correct, long time);
+
+        public void endRound(boolean endGame, long time);
+
+        public void playEffect(int effect, long time);
+
+        public void keyboardLocked(boolean locked, long time);
+    }
+
+    private WireProtocol() {
+    }
+
+    /**
+     * @param frames Number of frames the buffer holds.
+     * @return Direct little-endian buffer for the frames.
+     */
+    public static ByteBuffer allocate(int frames) {
+        return ByteBuffer.allocateDirect(frames * FRAME_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes a frame (the buffer must be little-endian and have space for it).
+     */
+    public static void put(ByteBuffer buffer, int type, int a, int b, int c, int value, long time) {
+        buffer.putLong(header(type, a, b, c, value));
+        buffer.putLong(time);
+    }
+
+    /**
+     * @return First eight bytes of a frame as a little-endian long.
+     */
+    public static long header(int type, int a, int b, int c, int value) {
+        return (type & 0xff) | (a & 0xff) << 8 | (b & 0xff) << 16 | (long) (c & 0xff) << 24 | (long) value << 32;
+    }
+
+    /*************************************************************************
+     * METHODS IN THIS SECTION DECODE THE FIELDS OF A HEADER.                *
+     * Type, a, b and c are unsigned bytes (0-255), value is a signed int.   *
+     *************************************************************************/
+    public static int headerType(long header) {
+        return (int) header & 0xff;
+    }
+
+    public static int headerA(long header) {
+        return (int) (header >>> 8) & 0xff;
+    }
+
+    public static int headerB(long header) {
+        return (int) (header >>> 16) & 0xff;
+    }
+
+    public static int headerC(long header) {
+        return (int) (header >>> 24) & 0xff;
+    }
+
+    public static int headerValue(long header) {
+        return (int) (header >> 32);
+    }
+
+    /*************************************************************************
+     * METHODS IN THIS SECTION WRITE THE EVENTS.                             *
+     * The methods are self-explanatory.                                     *
+     *************************************************************************/
+    public static void putHello(ByteBuffer buffer) {
+        put(buffer, HELLO, VERSION, 0, 0, MAGIC, 0);
+    }
+
+    public static void putTick(ByteBuffer buffer, long time) {
+        put(buffer, TICK, 0, 0, 0, 0, time);
+    }
+
+    public static void putBeat(ByteBuffer buffer, int player, int beat, boolean computer, int accuracy, long time) {
+        put(buffer, BEAT, player, beat, computer ? 1 : 0, accuracy, time);
+    }
+
+    public static void putSendBeat(ByteBuffer buffer, int beat, boolean correct, long time) {
+        put(buffer, SEND_BEAT, 0, beat, correct ? 1 : 0, 0, time);
+    }
+
+    public static void putEndRound(ByteBuffer buffer, boolean endGame, long time) {
+        put(buffer, END_ROUND, 0, 0, endGame ? 1 : 0, 0, time);
+    }
+
+    public static void putPlayEffect(ByteBuffer buffer, int effect, long time) {
+        put(buffer, PLAY_EFFECT, 0, 0, 0, effect, time);
+    }
+
+    public static void putKeyboardLocked(ByteBuffer buffer, boolean locked, long time) {
+        put(buffer, KEYBOARD_LOCKED, 0, 0, locked ? 1 : 0, 0, time);
+    }
+
+    /**
+     * Decodes the complete frames between the position and the limit of
+     * the buffer (a partial frame is left for the next call).
+     *
+     * @param buffer Little-endian buffer ready for reading.
+     * @param handler Handler of the events.
+     * @return Number of events passed to the handler.
+     * @throws IllegalArgumentException If the buffer is not little-endian.
+     * @throws IllegalStateException If a HELLO frame is not of this protocol
+     * or of another version.
+     */
+    public static int dispatch(ByteBuffer buffer, Handler handler) {
+        if (buffer.order() != ByteOrder.LITTLE_ENDIAN) {
+            throw new IllegalArgumentException("Frames are little-endian");
+        }
+        int events = 0;
+        while (buffer.remaining() >= FRAME_SIZE) {
+            long header = buffer.getLong();
+            long time = buffer.getLong();
+            int a = headerA(header);
+            int b = headerB(header);
+            boolean c = headerC(header) != 0;
+            int value = headerValue(header);
+            switch (headerType(header)) {
+                case HELLO:
+                    if (value != MAGIC || a != VERSION) {
+                        throw new IllegalStateException("Not a stream of version " + VERSION + " of the protocol");
+                    }
+                    continue;
+                case TICK:
+                    handler.tick(time);
+                    break;
+                case BEAT:
+                    handler.beat(a, b, c, value, time);
+                    break;
+                case SEND_BEAT:
+                    handler.sendBeat(b, c, time);
+                    break;
+                case END_ROUND:
+                    handler.endRound(c, time);
+                    break;
+                case PLAY_EFFECT:
+                    handler.playEffect(value, time);
+                    break;
+                case KEYBOARD_LOCKED:
+                    handler.keyboardLocked(c, time);
+                    break;
+                default:
+                    continue; // event of a newer release
+            }
+            events++;
+        }
+        return events;
+    }
+}
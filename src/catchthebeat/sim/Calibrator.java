@@ -0,0 +1,289 @@
+package catchthebeat.sim;
+
+import catchthebeat.game.Game;
+import catchthebeat.game.GameRandom;
+import catchthebeat.game.MultiPlayerGame;
+import catchthebeat.game.Score;
+import catchthebeat.game.SeededGameRandom;
+import catchthebeat.game.SinglePlayerGame;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Class Calibrator
+ *
+ * This class checks how hard the difficulties are (the beats to start with
+ * and the number of drums in Game, the tempos of the drums in GameDrumSprite)
+ * by playing millions of headless matches of players who make human mistakes
+ * (ErrorModelPlayer) and reporting their win rates and the lengths of the
+ * matches for each difficulty.
+ *
+ * 1) The matches of a difficulty are split in halves on a ForkJoinPool
+ *    until a batch is small enough, then one worker plays the whole batch
+ *    with its own Simulator and counts the results, which are added up
+ *    when the batches are joined. Nothing is shared between the batches,
+ *    so the throughput grows with the number of cores.
+ * 2) Every batch gets a generator split from the generator of its parent
+ *    (SplittableRandom), every match gets one split from its batch. The game
+ *    and each player are seeded from the generator of the match, so the same
+ *    seed always gives the same results, no matter how many threads play.
+ * 3) A player misses timeframes more often in faster tempos: the miss rate
+ *    is given for the easy tempo and grows with the step of the drums.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class Calibrator {
+
+    // steps of the drums (pixels per frame) in GameDrumSprite.initDrum(), index = difficulty
+    public static final int[] TEMPO_STEPS = {2, 4, 6};
+    private static final int BATCH_SIZE = 1000;
+
+    private final boolean singleplayer;
+    private final int noPlayers;
+    private final int maxRounds;
+    private final int memorySpan;
+    private final double slipRate;
+    private final double forgetRate;
+    private final double missRate;
+
+    /**
+     * @param singleplayer True for single player matches, false for multiplayer.
+     * @param noPlayers Number of human players (1 in single player matches).
+     * @param maxRounds Largest number of rounds of a match.
+     * @param memorySpan Beats remembered by the players without forgetting.
+     * @param slipRate Chance of a wrong drum in any timeframe.
+     * @param forgetRate Chance of a wrong drum added for each beat past the memory span.
+     * @param missRate Chance of missing a timeframe in the easy tempo.
+     */
+    public Calibrator(boolean singleplayer, int noPlayers, int maxRounds, int memorySpan,
+            double slipRate, double forgetRate, double missRate) {
+        this.singleplayer = singleplayer;
+        this.noPlayers = singleplayer ? 1 : noPlayers;
+        this.maxRounds = maxRounds;
+        this.memorySpan = memorySpan;
+        this.slipRate = slipRate;
+        this.forgetRate = forgetRate;
+        this.missRate = missRate;
+    }
+
+    /**
+     * Plays the matches of a difficulty on the pool.
+     *
+     * @param pool Pool of the worker threads.
+     * @param difficulty Difficulty of the matches.
+     * @param matches Number of matches.
+     * @param random Generator the seeds of the matches are split from.
+     * @return Results of all the matches.
+     */
+    public Results calibrate(ForkJoinPool pool, int difficulty, long matches, SplittableRandom random) {
+        return pool.invoke(new Batch(difficulty, matches, random));
+    }
+
+    // plays one match with the generator of the match
+    private void play(Simulator simulator, String[] playerNames, int difficulty,
+            SplittableRandom random, Results results) {
+        HeadlessLink link = new HeadlessLink();
+        GameRandom rand = new SeededGameRandom(random.nextLong());
+        Game game;
+        if (singleplayer) {
+            game = new SinglePlayerGame(playerNames, difficulty, link, rand);
+        } else {
+            game = new MultiPlayerGame(playerNames, difficulty, link, rand);
+        }
+        ScriptedPlayer[] players = simulator.getScriptedPlayers();
+        double miss = missRate * TEMPO_STEPS[difficulty] / TEMPO_STEPS[Game.EASY];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new ErrorModelPlayer(random.split(), memorySpan, slipRate, forgetRate, miss);
+        }
+        Score score = simulator.play(game, link);
+        results.add(game, score, playerNames, maxRounds);
+    }
+
+    /**
+     * Class Results
+     *
+     * Counts of the results of the matches played, added up when batches
+     * are joined.
+     */
+    public static class Results {
+
+        private long matches;
+        private long won; // matches with a winner
+        private long limited; // matches stopped at the round limit
+        private long points;
+        private long[] rounds; // matches by the number of rounds
+        private long[] wins; // matches won by each player
+
+        Results(int maxRounds, int noPlayers) {
+            rounds = new long[maxRounds + 1];
+            wins = new long[noPlayers];
+        }
+
+        void add(Game game, Score score, String[] playerNames, int maxRounds) {
+            matches++;
+            rounds[Math.min(game.getRoundNumber(), maxRounds)]++;
+            if (game.isRunning()) {
+                limited++;
+            }
+            if (score.getWinner() != null) {
+                won++;
+                points += score.getPoints();
+                for (int i = 0; i < playerNames.length; i++) {
+                    if (playerNames[i].equals(score.getWinner().getName())) {
+                        wins[i]++;
+                    }
+                }
+            }
+        }
+
+        void add(Results other) {
+            matches += other.matches;
+            won += other.won;
+            limited += other.limited;
+            points += other.points;
+            for (int i = 0; i < rounds.length; i++) {
+                rounds[i] += other.rounds[i];
+            }
+            for (int i = 0; i < wins.length; i++) {
+                wins[i] += other.wins[i];
+            }
+        }
+
+        /**
+         * @param fraction Fraction of the matches (0...1).
+         * @return Number of rounds not exceeded by the fraction of the matches.
+         */
+        public int roundsPercentile(double fraction) {
+            long count = 0;
+            for (int i = 0; i < rounds.length; i++) {
+                count += rounds[i];
+                if (count >= fraction * matches) {
+                    return i;
+                }
+            }
+            return rounds.length - 1;
+        }
+
+        public double meanRounds() {
+            long sum = 0;
+            for (int i = 0; i < rounds.length; i++) {
+                sum += i * rounds[i];
+            }
+            return (double) sum / matches;
+        }
+
+        // The following getter methods are self-explanatory.
+        public long getMatches() {
+            return matches;
+        }
+
+        public double winRate() {
+            return (double) won / matches;
+        }
+
+        public double limitedRate() {
+            return (double) limited / matches;
+        }
+
+        public double meanPoints() {
+            return (won == 0) ? 0 : (double) points / won;
+        }
+
+        /**
+         * @param player Index of the human player (0 = first one).
+         * @return Share of the won matches won by the player.
+         */
+        public double winShare(int player) {
+            return (won == 0) ? 0 : (double) wins[player] / won;
+        }
+    }
+
+    // Nested task playing a range of matches, split in halves until small enough
+    private class Batch extends RecursiveTask<Results> {
+
+        private static final long serialVersionUID = 1L;
+        private final int difficulty;
+        private final long matches;
+        private final SplittableRandom random;
+
+        Batch(int difficulty, long matches, SplittableRandom random) {
+            this.difficulty = difficulty;
+            this.matches = matches;
+            this.random = random;
+        }
+
+        @Override
+        protected Results compute() {
+            if (matches > BATCH_SIZE) {
+                // the left half always gets the split generator, so the seeds do not
+                // depend on the thread that plays a batch
+                Batch left = new Batch(difficulty, matches / 2, random.split());
+                Batch right = new Batch(difficulty, matches - matches / 2, random);
+                left.fork();
+                Results results = right.compute();
+                results.add(left.join());
+                return results;
+            }
+            Results results = new Results(maxRounds, noPlayers);
+            String[] playerNames = new String[noPlayers];
+            for (int i = 0; i < noPlayers; i++) {
+                playerNames[i] = "Player " + (i + 1);
+            }
+            Simulator simulator = new Simulator(new ScriptedPlayer[noPlayers], maxRounds);
+            for (long i = 0; i < matches; i++) {
+                play(simulator, playerNames, difficulty, random.split(), results);
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Plays the matches of each difficulty and reports the results and
+     * the throughput.
+     *
+     * Usage: Calibrator [single|multi] [matches] [players] [memory span]
+     * [slip rate] [forget rate] [miss rate] [seed]
+     * (number of threads set by -Dcatchthebeat.parallelism, all cores by default)
+     */
+    public static void main(String[] args) {
+        boolean singleplayer = args.length < 1 || !args[0].equals("multi");
+        long matches = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+        int noPlayers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int memorySpan = args.length > 3 ? Integer.parseInt(args[3]) : 7;
+        double slipRate = args.length > 4 ? Double.parseDouble(args[4]) : 0.01;
+        double forgetRate = args.length > 5 ? Double.parseDouble(args[5]) : 0.05;
+        double missRate = args.length > 6 ? Double.parseDouble(args[6]) : 0.005;
+        long seed = args.length > 7 ? Long.parseLong(args[7]) : 2012;
+        int parallelism = Integer.getInteger("catchthebeat.parallelism",
+                Runtime.getRuntime().availableProcessors());
+
+        Calibrator calibrator = new Calibrator(singleplayer, noPlayers, Simulator.DEFAULT_MAX_ROUNDS,
+                memorySpan, slipRate, forgetRate, missRate);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] difficulties = {"easy", "medium", "hard"};
+        for (int difficulty = Game.EASY; difficulty <= Game.HARD; difficulty++) {
+            long start = System.nanoTime();
+            Results results = calibrator.calibrate(pool, difficulty, matches, random.split());
+            double seconds = (System.nanoTime() - start) / 1e9;
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("%s: %d matches, won %.1f %%, rounds mean %.2f median %d p90 %d,"
+                    + " points mean %.2f, round limit %.2f %%",
+                    difficulties[difficulty], results.getMatches(), 100 * results.winRate(),
+                    results.meanRounds(), results.roundsPercentile(0.5), results.roundsPercentile(0.9),
+                    results.meanPoints(), 100 * results.limitedRate()));
+            if (!singleplayer) {
+                report.append(", wins by player");
+                for (int i = 0; i < noPlayers; i++) {
+                    report.append(String.format(" %.1f %%", 100 * results.winShare(i)));
+                }
+            }
+            report.append(String.format(" (%.0f matches/s on %d threads)", results.getMatches() / seconds,
+                    parallelism));
+            System.out.println(report);
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,70 @@
+package catchthebeat.sim;
+
+import catchthebeat.game.BeatSequence;
+import catchthebeat.game.Game;
+import java.util.SplittableRandom;
+
+/**
+ * Class ErrorModelPlayer
+ *
+ * Scripted player who makes mistakes like a human, used to calibrate
+ * the difficulties (see Calibrator).
+ *
+ * 1) In each timeframe he misses the drum completely with the miss rate
+ *    (he is too slow for the tempo).
+ * 2) Otherwise he hits a wrong drum with the slip rate, and the longer
+ *    the sequence gets past his memory span, the more he forgets: each beat
+ *    over the span adds the forget rate to the chance of a wrong drum.
+ * 3) When adding a beat he picks any drum.
+ *
+ * All the decisions are taken from the given random generator, so a player
+ * with a seeded generator always plays the same way.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class ErrorModelPlayer implements ScriptedPlayer {
+
+    private final SplittableRandom random;
+    private final int memorySpan;
+    private final double slipRate;
+    private final double forgetRate;
+    private final double missRate;
+
+    /**
+     * @param random Generator of the decisions.
+     * @param memorySpan Number of beats remembered without forgetting.
+     * @param slipRate Chance of a wrong drum in any timeframe.
+     * @param forgetRate Chance of a wrong drum added for each beat past the memory span.
+     * @param missRate Chance of missing a timeframe.
+     */
+    public ErrorModelPlayer(SplittableRandom random, int memorySpan, double slipRate,
+            double forgetRate, double missRate) {
+        this.random = random;
+        this.memorySpan = memorySpan;
+        this.slipRate = slipRate;
+        this.forgetRate = forgetRate;
+        this.missRate = missRate;
+    }
+
+    @Override
+    public int play(Game game) {
+        if (random.nextDouble() < missRate) {
+            return 0;
+        }
+        BeatSequence beats = game.getBeats();
+        int drums = beats.getNoOfBeatTypes();
+        if (game.isAddingBeat()) {
+            return random.nextInt(drums) + 1;
+        }
+        int index = game.getCurrentBeatIndex();
+        int correct = beats.get(index);
+        double error = slipRate + forgetRate * Math.max(0, index + 1 - memorySpan);
+        if (random.nextDouble() < error) {
+            // any of the other drums
+            int wrong = random.nextInt(drums - 1) + 1;
+            return (wrong >= correct) ? wrong + 1 : wrong;
+        }
+        return correct;
+    }
+}
@@ -0,0 +1,114 @@
+package catchthebeat.sim;
+
+import catchthebeat.game.Game;
+import catchthebeat.ui.FrontBackLink;
+import catchthebeat.ui.SoundEffect;
+
+/**
+ * Class HeadlessLink
+ * 
+ * This is a frontend-backend link that does not drive any frontend at all.
+ * It allows the game backend to run without panels, sprites, sounds and
+ * animation threads, i.e. as fast as the CPU allows.
+ * 
+ * 1) All the calls forwarded to the GUI and to the sound player are ignored.
+ * 2) Keypresses simulated by the computer player are passed straight back
+ *    to the game, exactly as FrontBackLink does it for the real frontend.
+ * 3) Keypresses of scripted (human) players are passed via humanKeyPressed,
+ *    which respects the keyboard lock the same way the key listener does.
+ * 4) Ticks are passed straight to the game as well (there is only one thread).
+ *    If a MatchLog is set, the match is recorded, the time of an event is
+ *    the number of ticks so far.
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+public class HeadlessLink extends FrontBackLink {
+
+    private MatchLog log;
+    private long ticks;
+
+    public HeadlessLink() {
+        super((SoundEffect) null);
+    }
+
+    /**
+     * Sets the log matches are recorded to (set before the game).
+     * 
+     * @param log Match log or null if matches are not recorded.
+     */
+    public void setMatchLog(MatchLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public void setGame(Game game) {
+        super.setGame(game);
+        ticks = 0;
+        if (log != null) {
+            log.startMatch(game, ticks);
+        }
+    }
+
+    /**
+     * Records the end of the match (called by the driver once it stops
+     * the game).
+     */
+    public void endMatch() {
+        if (log != null) {
+            log.endMatch(game, ticks);
+        }
+    }
+
+    @Override
+    public void tick() {
+        ticks++;
+        if (log != null) {
+            log.tick(ticks);
+        }
+        game.tick();
+        if (log != null) {
+            log.round(game, ticks);
+        }
+    }
+
+    // pass the beat to the game (and record it)
+    private void passBeat(int beat) {
+        if (log != null) {
+            log.beat(game.getCurrentPlayerIndex(), game.getCurrentPlayer().isComputer(), beat, -1, ticks);
+        }
+        game.beat(beat);
+        if (log != null) {
+            log.round(game, ticks);
+        }
+    }
+
+    /**
+     * Counterpart of FrontBackLink.keyPressed for scripted players.
+     * 
+     * @param beat Numerical representation of the drum hit by the player.
+     */
+    public void humanKeyPressed(int beat) {
+        if (locked) {
+            return;
+        }
+        passBeat(beat);
+    }
+
+    @Override
+    public void computerKeyPressed(int beat) {
+        passBeat(beat);
+    }
+
+    @Override
+    public void guiEndRound(boolean endGame) {
+    }
+
+    @Override
+    public void guiSendBeat(int beat, boolean correct) {
+    }
+
+    @Override
+    public void playEffect(int effect) {
+    }
+}
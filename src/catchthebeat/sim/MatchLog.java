@@ -0,0 +1,366 @@
+package catchthebeat.sim;
+
+import catchthebeat.game.BeatSequence;
+import catchthebeat.game.Game;
+import catchthebeat.game.SinglePlayerGame;
+import catchthebeat.net.WireProtocol;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class MatchLog
+ *
+ * This class records matches into a binary append-only file, so they can be
+ * replayed later (MatchReplay) e.g. to resolve disputes or to profile the game.
+ *
+ * 1) Every event is a record of RECORD_SIZE bytes: a little-endian frame of
+ *    WireProtocol (type, three small fields, an int value and a long time:
+ *    frames of the audio clock in the GUI, number of ticks in the simulator).
+ *    The log starts with the HELLO frame of WireProtocol, ticks and beats are
+ *    its TICK and BEAT events, the other records have the log types of its
+ *    table. Names of the players take several records.
+ * 2) A match starts with MATCH, PLAYER, START_BEAT and SEED records (mode,
+ *    difficulty, players, the beats to start with and the seed of the game's
+ *    random generator), followed by TICK and BEAT records in the order the game
+ *    received them. ROUND records the result of each round once the game moved
+ *    to the next one, END the result of the last round and the points of
+ *    the match. Names longer than MAX_NAME_LENGTH are cut off.
+ * 3) The file is written through memory mapped regions of REGION_SIZE bytes,
+ *    so recording an event is a few writes to memory with no allocation and
+ *    no system call. A new region is mapped once the previous one is full.
+ * 4) The unused part of the last region is zero (type 0 = end of the log).
+ *    A log that was not closed (e.g. the application crashed) is read up to
+ *    the last record written, new matches are appended after it.
+ * 5) Log is not thread-safe, it is written by the thread running the game.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class MatchLog {
+
+    public static final int RECORD_SIZE = WireProtocol.FRAME_SIZE;
+    public static final int REGION_SIZE = 1 << 22; // 4 MB
+    private static final int CHARS_PER_RECORD = RECORD_SIZE / 2;
+    public static final int MAX_NAME_LENGTH = 64; // the number of its records must fit in a byte
+    // record types
+    public static final int MATCH = WireProtocol.LOG_TYPES; // a = mode, b = difficulty, c = players, value = starting beats
+    public static final int PLAYER = WireProtocol.LOG_TYPES + 1; // a = records with the name, value = length of the name
+    public static final int START_BEAT = WireProtocol.LOG_TYPES + 2; // value = beat
+    public static final int TICK = WireProtocol.TICK;
+    public static final int BEAT = WireProtocol.BEAT; // a = player, b = beat, c = 1 if computer, value = accuracy or -1
+    public static final int ROUND = WireProtocol.LOG_TYPES + 3; // a = round result + 1, value = round number
+    public static final int END = WireProtocol.LOG_TYPES + 4; // a = result of the last round + 1, value = points
+    public static final int SEED = WireProtocol.LOG_TYPES + 5; // time = seed
+    // modes
+    public static final int SINGLE_PLAYER = 0;
+    public static final int MULTI_PLAYER = 1;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private int lastRound; // round number of the last ROUND record
+
+    /**
+     * Opens the log (creates it if it does not exist), new matches are
+     * appended to the matches already recorded.
+     *
+     * @param logFile File of the log.
+     */
+    public MatchLog(File logFile) throws IOException {
+        file = new RandomAccessFile(logFile, "rw");
+        channel = file.getChannel();
+        if (channel.size() < RECORD_SIZE) {
+            map(0);
+            WireProtocol.putHello(region);
+        } else {
+            Reader reader = new Reader(channel);
+            while (reader.next()) {
+                // find the end of the log
+            }
+            map(reader.position());
+        }
+    }
+
+    // map a region starting at the given position of the file
+    private void map(long position) throws IOException {
+        regionStart = position;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, position, REGION_SIZE);
+        region.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // make space for the next record
+    private void ensure() {
+        if (region.remaining() < RECORD_SIZE) {
+            try {
+                map(regionStart + region.position());
+            } catch (IOException e) {
+                throw new IllegalStateException("Match log could not be extended: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void put(int type, int a, int b, int c, int value, long time) {
+        ensure();
+        WireProtocol.put(region, type, a, b, c, value, time);
+    }
+
+    /**
+     * Records the start of a match (the game must not have been ticked yet).
+     *
+     * @param game Game of the match.
+     * @param time Time of the start.
+     */
+    public void startMatch(Game game, long time) {
+        String[] names = game.getPlayerNames();
+        BeatSequence beats = game.getBeats();
+        int mode = (game instanceof SinglePlayerGame) ? SINGLE_PLAYER : MULTI_PLAYER;
+        put(MATCH, mode, game.getDifficulty(), names.length, beats.size(), time);
+        for (String name : names) {
+            if (name.length() > MAX_NAME_LENGTH) {
+                name = name.substring(0, MAX_NAME_LENGTH);
+            }
+            int records = (name.length() + CHARS_PER_RECORD - 1) / CHARS_PER_RECORD;
+            put(PLAYER, records, 0, 0, name.length(), time);
+            for (int i = 0; i < records * CHARS_PER_RECORD; i++) {
+                if (i % CHARS_PER_RECORD == 0) {
+                    ensure();
+                }
+                region.putChar(i < name.length() ? name.charAt(i) : 0);
+            }
+        }
+        for (int i = 0; i < beats.size(); i++) {
+            put(START_BEAT, 0, 0, 0, beats.get(i), time);
+        }
+        put(SEED, 0, 0, 0, 0, game.getCurrentScore().getSeed());
+        lastRound = game.getRoundNumber();
+    }
+
+    /**
+     * Records a tick passed to the game.
+     *
+     * @param time Time of the tick.
+     */
+    public void tick(long time) {
+        put(TICK, 0, 0, 0, 0, time);
+    }
+
+    /**
+     * Records a beat passed to the game.
+     *
+     * @param player Index of the player who hit the drum.
+     * @param computer True if the player is computer.
+     * @param beat Numerical representation of the drum.
+     * @param accuracy Timing of the hit (Score.PERFECT, GOOD, LATE) or -1 if not judged.
+     * @param time Time of the hit.
+     */
+    public void beat(int player, boolean computer, int beat, int accuracy, long time) {
+        put(BEAT, player, beat, computer ? 1 : 0, accuracy, time);
+    }
+
+    /**
+     * Records the result of the last round if the game has moved to the next
+     * round since the last call (to be called after each tick and beat).
+     *
+     * @param game Game of the match.
+     * @param time Time of the change.
+     */
+    public void round(Game game, long time) {
+        if (game.getRoundNumber() != lastRound) {
+            lastRound = game.getRoundNumber();
+            put(ROUND, game.getRoundResult() + 1, 0, 0, lastRound, time);
+        }
+    }
+
+    /**
+     * Records the end of a match.
+     *
+     * @param game Game of the match.
+     * @param time Time of the end.
+     */
+    public void endMatch(Game game, long time) {
+        round(game, time);
+        put(END, game.getRoundResult() + 1, 0, 0, game.getCurrentScore().getPoints(), time);
+    }
+
+    /**
+     * Writes the recorded events to the disk (blocks until done).
+     */
+    public void force() {
+        region.force();
+    }
+
+    /**
+     * Writes the recorded events to the disk and closes the file (the unused
+     * part of the last region is cut off).
+     */
+    public void close() throws IOException {
+        region.force();
+        long end = regionStart + region.position();
+        region = null;
+        try {
+            channel.truncate(end);
+        } catch (IOException e) {
+            // region still mapped on some systems, the zero tail is skipped when read
+        }
+        file.close();
+    }
+
+    /**
+     * Opens a log for reading.
+     *
+     * @param logFile File of the log.
+     * @return Reader positioned before the first record.
+     */
+    public static Reader read(File logFile) throws IOException {
+        return new Reader(new RandomAccessFile(logFile, "r").getChannel());
+    }
+
+    /**
+     * Nested class walking through the records of a log. Records are read
+     * from read-only memory mapped regions, no objects are created per record
+     * (except the names of the players).
+     */
+    public static class Reader {
+
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer region;
+        private long regionStart;
+        private long mark;
+        // fields of the current record
+        private int type, a, b, c, value;
+        private long time;
+        private String name;
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            size = channel.size();
+            if (size < RECORD_SIZE) {
+                throw new IOException("Not a match log");
+            }
+            map(0);
+            long hello = region.getLong();
+            region.getLong();
+            if (WireProtocol.headerType(hello) != WireProtocol.HELLO
+                    || WireProtocol.headerValue(hello) != WireProtocol.MAGIC) {
+                throw new IOException("Not a match log");
+            }
+            if (WireProtocol.headerA(hello) != WireProtocol.VERSION) {
+                throw new IOException("Unsupported match log version " + WireProtocol.headerA(hello));
+            }
+        }
+
+        private void map(long position) throws IOException {
+            regionStart = position;
+            long length = Math.min(REGION_SIZE, size - position);
+            region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            region.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @return False if there are no more records.
+         */
+        public boolean next() throws IOException {
+            if (region.remaining() < RECORD_SIZE) {
+                if (regionStart + region.position() + RECORD_SIZE > size) {
+                    return false;
+                }
+                map(regionStart + region.position());
+            }
+            int record = region.position();
+            long header = region.getLong();
+            type = WireProtocol.headerType(header);
+            if (type == 0) {
+                region.position(record); // end of the log
+                return false;
+            }
+            a = WireProtocol.headerA(header);
+            b = WireProtocol.headerB(header);
+            c = WireProtocol.headerC(header);
+            value = WireProtocol.headerValue(header);
+            time = region.getLong();
+            name = null;
+            if (type == PLAYER) {
+                readName();
+            }
+            return true;
+        }
+
+        private void readName() throws IOException {
+            char[] chars = new char[a * CHARS_PER_RECORD];
+            for (int i = 0; i < chars.length; i++) {
+                if (i % CHARS_PER_RECORD == 0 && region.remaining() < RECORD_SIZE) {
+                    map(regionStart + region.position());
+                }
+                chars[i] = region.getChar();
+            }
+            name = new String(chars, 0, Math.max(0, Math.min(value, chars.length)));
+        }
+
+        /**
+         * @return Position in the file after the current record.
+         */
+        public long position() {
+            return regionStart + region.position();
+        }
+
+        /**
+         * Remembers the current position (see reset).
+         */
+        public void mark() {
+            mark = position();
+        }
+
+        /**
+         * Returns to the remembered position, the next record read is the one
+         * after the record current at the time of mark().
+         */
+        public void reset() throws IOException {
+            if (mark >= regionStart && mark <= regionStart + region.limit()) {
+                region.position((int) (mark - regionStart)); // no new mapping
+            } else {
+                map(mark);
+            }
+        }
+
+        // The following getter methods return the fields of the current record.
+        public int getType() {
+            return type;
+        }
+
+        public int getA() {
+            return a;
+        }
+
+        public int getB() {
+            return b;
+        }
+
+        public int getC() {
+            return c;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
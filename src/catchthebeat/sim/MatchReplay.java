@@ -0,0 +1,294 @@
+package catchthebeat.sim;
+
+import catchthebeat.game.Game;
+import catchthebeat.game.MultiPlayerGame;
+import catchthebeat.game.SeededGameRandom;
+import catchthebeat.game.SinglePlayerGame;
+import catchthebeat.ui.FrontBackLink;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Class MatchReplay
+ *
+ * This class feeds the matches recorded by MatchLog back to the game.
+ *
+ * 1) nextMatch() reads the start of the next match (mode, difficulty, players
+ *    and the beats to start with), createGame() creates the game of the match
+ *    with the recorded beats and seed.
+ * 2) replay() plays the whole match headlessly: ticks and beats of the human
+ *    players are passed to the game in the recorded order, the beats added by
+ *    the computer are taken from the log (the other beats of the computer are
+ *    always correct, so they are the same). The results of the rounds and
+ *    the points are compared with the log, differences are counted.
+ * 3) The GUI replays a match visually (FrontBackLink.setReplay): after each
+ *    tick the link calls nextTick() and then nextHit() for the beats of
+ *    the human players in the timeframe, which are timed by the beat scheduler
+ *    at the same distance from the tick as when they were recorded.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class MatchReplay {
+
+    private final MatchLog.Reader reader;
+    // start of the current match
+    private int mode;
+    private int difficulty;
+    private String[] playerNames;
+    private int[] startingBeats;
+    private long seed;
+    // times of the last tick and hit read
+    private long tickTime;
+    private long hitTime;
+    private int hitAccuracy;
+    private int mismatches;
+
+    /**
+     * @param reader Reader of the log.
+     */
+    public MatchReplay(MatchLog.Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Moves to the start of the next match in the log.
+     *
+     * @return False if there are no more matches.
+     */
+    public boolean nextMatch() throws IOException {
+        while (reader.next()) {
+            if (reader.getType() == MatchLog.MATCH) {
+                mode = reader.getA();
+                difficulty = reader.getB();
+                playerNames = new String[reader.getC()];
+                startingBeats = new int[reader.getValue()];
+                for (int i = 0; i < playerNames.length && reader.next(); i++) {
+                    playerNames[i] = reader.getName();
+                }
+                for (int i = 0; i < startingBeats.length && reader.next(); i++) {
+                    startingBeats[i] = reader.getValue();
+                }
+                reader.mark();
+                if (reader.next() && reader.getType() == MatchLog.SEED) {
+                    seed = reader.getTime();
+                    return true;
+                }
+                reader.reset(); // start of the match not complete, look for the next one
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the game of the current match with the recorded beats to start with.
+     *
+     * @param link Link the game will communicate through.
+     * @return New game.
+     */
+    public Game createGame(FrontBackLink link) {
+        SeededGameRandom random = new SeededGameRandom(seed);
+        Game game;
+        if (mode == MatchLog.SINGLE_PLAYER) {
+            game = new SinglePlayerGame(playerNames, difficulty, link, random);
+        } else {
+            game = new MultiPlayerGame(playerNames, difficulty, link, random);
+        }
+        game.setStartingBeats(startingBeats);
+        return game;
+    }
+
+    /**
+     * Replays the current match headlessly (until its END record or the start
+     * of the next match).
+     *
+     * @return The game after the match.
+     */
+    public Game replay() throws IOException {
+        ReplayLink link = new ReplayLink();
+        Game game = createGame(link);
+        link.setGame(game);
+        while (true) {
+            reader.mark();
+            if (!reader.next()) {
+                return game; // log ends without the end of the match
+            }
+            switch (reader.getType()) {
+                case MatchLog.TICK:
+                    game.tick();
+                    break;
+                case MatchLog.BEAT:
+                    if (reader.getC() == 0) { // beats of the computer are passed by the game
+                        if (reader.getValue() < 0) {
+                            game.beat(reader.getB());
+                        } else {
+                            game.beat(reader.getB(), reader.getValue());
+                        }
+                    }
+                    break;
+                case MatchLog.ROUND:
+                    if (game.getRoundNumber() != reader.getValue()
+                            || game.getRoundResult() != reader.getA() - 1) {
+                        mismatches++;
+                    }
+                    break;
+                case MatchLog.END:
+                    if (game.getCurrentScore().getPoints() != reader.getValue()
+                            || game.getRoundResult() != reader.getA() - 1) {
+                        mismatches++;
+                    }
+                    return game;
+                case MatchLog.MATCH:
+                    reader.reset(); // next match started, this one was not finished
+                    return game;
+            }
+        }
+    }
+
+    /**
+     * Moves past the next tick of the current match.
+     *
+     * @return False if the match has ended.
+     */
+    public boolean nextTick() throws IOException {
+        while (true) {
+            reader.mark();
+            if (!reader.next()) {
+                return false;
+            }
+            int type = reader.getType();
+            if (type == MatchLog.TICK) {
+                tickTime = reader.getTime();
+                return true;
+            } else if (type == MatchLog.END || type == MatchLog.MATCH) {
+                reader.reset();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Moves past the next beat of a human player before the next tick.
+     *
+     * @return Beat (range 1...number of drums) or 0 if there are no more beats
+     * in this timeframe.
+     */
+    public int nextHit() throws IOException {
+        while (true) {
+            reader.mark();
+            if (!reader.next()) {
+                return 0;
+            }
+            int type = reader.getType();
+            if (type == MatchLog.BEAT && reader.getC() == 0) {
+                hitTime = reader.getTime();
+                hitAccuracy = reader.getValue();
+                return reader.getB();
+            } else if (type == MatchLog.TICK || type == MatchLog.END || type == MatchLog.MATCH) {
+                reader.reset();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Finds the beat the computer added to the sequence in the current
+     * timeframe (the position in the log does not change).
+     *
+     * @return Recorded beat or 0 if it is not in the log.
+     */
+    public int addedBeat() {
+        int beat = 0;
+        try {
+            reader.mark();
+            while (reader.next()) {
+                int type = reader.getType();
+                if (type == MatchLog.BEAT && reader.getC() == 1) {
+                    beat = reader.getB();
+                    break;
+                } else if (type == MatchLog.END || type == MatchLog.MATCH) {
+                    break;
+                }
+            }
+            reader.reset();
+        } catch (IOException e) {
+            System.out.println("Beat could not be read from the match log: " + e.getMessage());
+        }
+        return beat;
+    }
+
+    // The following getter methods are self-explanatory.
+    public int getMode() {
+        return mode;
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    public String[] getPlayerNames() {
+        return playerNames;
+    }
+
+    /**
+     * @return Recorded seed of the current match.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getTickTime() {
+        return tickTime;
+    }
+
+    public long getHitTime() {
+        return hitTime;
+    }
+
+    public int getHitAccuracy() {
+        return hitAccuracy;
+    }
+
+    /**
+     * @return Number of round results and points that differed from the log so far.
+     */
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    // Nested link passing the recorded beats of the computer to the game
+    private class ReplayLink extends HeadlessLink {
+
+        @Override
+        public void computerKeyPressed(int beat) {
+            if (game.isAddingBeat()) {
+                int recorded = addedBeat();
+                if (recorded != 0) {
+                    beat = recorded;
+                }
+            }
+            game.beat(beat);
+        }
+    }
+
+    /**
+     * Replays all matches of a log headlessly and reports the differences
+     * and the throughput.
+     *
+     * Usage: MatchReplay [log file]
+     */
+    public static void main(String[] args) throws IOException {
+        MatchLog.Reader reader = MatchLog.read(new File(args.length > 0 ? args[0] : "matches.log"));
+        MatchReplay replay = new MatchReplay(reader);
+        long matches = 0;
+        long start = System.nanoTime();
+        while (replay.nextMatch()) {
+            replay.replay();
+            matches++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        reader.close();
+        System.out.println(matches + " matches replayed in " + seconds + " s, "
+                + replay.getMismatches() + " differences from the log");
+    }
+}
@@ -0,0 +1,249 @@
+package catchthebeat.sim;
+
+import catchthebeat.game.Game;
+import catchthebeat.game.MultiPlayerGame;
+import catchthebeat.game.SeededGameRandom;
+import catchthebeat.game.SinglePlayerGame;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class MatchScheduler
+ *
+ * This class runs thousands of headless matches at once in real time (each
+ * match ticks in its own tempo, like on the screen) with a few threads.
+ *
+ * 1) Matches are spread over shards, one thread each. A shard keeps the next
+ *    ticks of its matches in a TickWheel, walks it when a tick of the wheel
+ *    passes and parks the thread until the next one, so no thread sleeps for
+ *    a single match and a tick fires less than a resolution of the wheel
+ *    after its deadline.
+ * 2) A match is changed only by the thread of its shard, so the games are not
+ *    locked. New matches are passed to a shard through a lock-free queue.
+ * 3) When a match ticks, the scripted players answer in the same timeframe
+ *    (as in the Simulator), then the next tick is scheduled one period after
+ *    the deadline of this one, so late ticks do not shift the tempo.
+ * 4) Each shard counts how late its ticks were (TickSkew).
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class MatchScheduler {
+
+    private static final long SPIN_NANOS = 200000L;
+    private final Shard[] shards;
+    private final long resolution;
+    private int nextShard;
+
+    /**
+     * Class Listener
+     *
+     * Told by the thread of the shard when a match has ended.
+     */
+    public interface Listener {
+
+        public void matchEnded(Game game);
+    }
+
+    // Nested class holding a match and its next tick
+    private static class Match extends TickWheel.Entry {
+
+        private final Shard shard;
+        private final Game game;
+        private final HeadlessLink link;
+        private final ScriptedPlayer[] players;
+        private final long period;
+        private final int maxRounds;
+        private final Listener listener;
+        private final long firstTick;
+
+        Match(Shard shard, Game game, HeadlessLink link, ScriptedPlayer[] players, long firstTick,
+                long period, int maxRounds, Listener listener) {
+            this.shard = shard;
+            this.game = game;
+            this.link = link;
+            this.players = players;
+            this.period = period;
+            this.maxRounds = maxRounds;
+            this.listener = listener;
+            this.firstTick = firstTick;
+        }
+
+        @Override
+        protected void expire(long now) {
+            shard.skew.record(now - getDeadline());
+            link.tick();
+            if (game.isAwaitingBeat() && !game.getCurrentPlayer().isComputer()) {
+                int beat = players[game.getCurrentPlayerIndex() - 1].play(game);
+                if (beat != 0) {
+                    link.humanKeyPressed(beat);
+                }
+            }
+            if (game.isRunning() && game.getRoundNumber() <= maxRounds) {
+                shard.wheel.schedule(this, getDeadline() + period);
+            } else {
+                link.endMatch();
+                if (listener != null) {
+                    listener.matchEnded(game);
+                }
+            }
+        }
+    }
+
+    // Nested class: thread running a part of the matches
+    private class Shard implements Runnable {
+
+        private final TickWheel wheel;
+        private final TickSkew skew = new TickSkew();
+        private final ConcurrentLinkedQueue<Match> added = new ConcurrentLinkedQueue<Match>();
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        Shard(int index) {
+            wheel = new TickWheel(TickWheel.DEFAULT_BUCKETS, resolution, System.nanoTime());
+            thread = new Thread(this, "Match shard " + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                for (Match match; (match = added.poll()) != null;) {
+                    wheel.schedule(match, match.firstTick);
+                }
+                wheel.advance(System.nanoTime());
+                if (wheel.isEmpty()) {
+                    LockSupport.park(this); // until a match is added
+                } else {
+                    // a parked thread wakes up late, so the end of the wait is yielded away
+                    long wait = wheel.nextExpiryTime() - System.nanoTime();
+                    if (wait > SPIN_NANOS) {
+                        LockSupport.parkNanos(this, wait - SPIN_NANOS);
+                    } else if (wait > 0) {
+                        Thread.yield();
+                    }
+                }
+            }
+        }
+
+        void add(Match match) {
+            added.add(match);
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Creates the shards (threads are started by start()).
+     *
+     * @param noShards Number of threads.
+     * @param resolution Resolution of the timer wheels (ns).
+     */
+    public MatchScheduler(int noShards, long resolution) {
+        this.resolution = resolution;
+        shards = new Shard[noShards];
+        for (int i = 0; i < noShards; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    public void start() {
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    /**
+     * Stops the threads (the matches not finished are dropped).
+     */
+    public void close() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.running = false;
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            shard.thread.join();
+        }
+    }
+
+    /**
+     * Adds a match. The game must have been created with the link and must not
+     * be changed by the caller any more.
+     *
+     * @param game Game of the match.
+     * @param link Link the game communicates through.
+     * @param players Scripted players of the human players.
+     * @param firstTick Time of the first tick (System.nanoTime()).
+     * @param period Time between the ticks (ns).
+     * @param maxRounds Largest number of rounds of the match.
+     * @param listener Told when the match ends (or null).
+     */
+    public synchronized void submit(Game game, HeadlessLink link, ScriptedPlayer[] players, long firstTick,
+            long period, int maxRounds, Listener listener) {
+        link.setGame(game);
+        Shard shard = shards[nextShard];
+        nextShard = (nextShard + 1) % shards.length;
+        shard.add(new Match(shard, game, link, players, firstTick, period, maxRounds, listener));
+    }
+
+    /**
+     * @return Lateness of the ticks of all the shards (read after close()).
+     */
+    public TickSkew getSkew() {
+        TickSkew skew = new TickSkew();
+        for (Shard shard : shards) {
+            skew.add(shard.skew);
+        }
+        return skew;
+    }
+
+    /**
+     * Runs many simulated matches at once in real time and reports how late
+     * their ticks were.
+     *
+     * Usage: MatchScheduler [matches] [period ms] [shards] [single|multi] [difficulty]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        long period = (args.length > 1 ? Long.parseLong(args[1]) : 100) * 1000000L;
+        int noShards = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        boolean singleplayer = args.length < 4 || !args[3].equals("multi");
+        int difficulty = args.length > 4 ? Integer.parseInt(args[4]) : Game.EASY;
+
+        MatchScheduler scheduler = new MatchScheduler(noShards, TickWheel.DEFAULT_RESOLUTION);
+        scheduler.start();
+        final CountDownLatch ended = new CountDownLatch(matches);
+        Listener listener = new Listener() {
+            @Override
+            public void matchEnded(Game game) {
+                ended.countDown();
+            }
+        };
+        SplittableRandom random = new SplittableRandom(2012);
+        String[] names = singleplayer ? new String[] {"Player 1"} : new String[] {"Player 1", "Player 2"};
+        Game[] games = new Game[matches];
+        HeadlessLink[] links = new HeadlessLink[matches];
+        ScriptedPlayer[][] players = new ScriptedPlayer[matches][names.length];
+        for (int i = 0; i < matches; i++) {
+            links[i] = new HeadlessLink();
+            SeededGameRandom rand = new SeededGameRandom(random.nextLong());
+            games[i] = singleplayer ? new SinglePlayerGame(names, difficulty, links[i], rand)
+                    : new MultiPlayerGame(names, difficulty, links[i], rand);
+            for (int j = 0; j < names.length; j++) {
+                players[i][j] = new ErrorModelPlayer(random.split(), 7, 0.01, 0.05, 0.005);
+            }
+        }
+        // matches start in different phases of the period, like the rooms of a server
+        long start = System.nanoTime();
+        for (int i = 0; i < matches; i++) {
+            scheduler.submit(games[i], links[i], players[i], start + period + period * i / matches, period,
+                    Simulator.DEFAULT_MAX_ROUNDS, listener);
+        }
+        ended.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        scheduler.close();
+        System.out.println(matches + " matches on " + noShards + " shards in " + seconds + " s: "
+                + scheduler.getSkew());
+    }
+}
@@ -0,0 +1,23 @@
+package catchthebeat.sim;
+
+import catchthebeat.game.Game;
+
+/**
+ * Class PerfectPlayer
+ * 
+ * Scripted player who never forgets the sequence and never misses a timeframe.
+ * When adding a beat he always adds the first drum.
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+public class PerfectPlayer implements ScriptedPlayer {
+
+    @Override
+    public int play(Game game) {
+        if (game.isAddingBeat()) {
+            return 1;
+        }
+        return game.getBeats().get(game.getCurrentBeatIndex());
+    }
+}
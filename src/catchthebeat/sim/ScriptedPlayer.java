@@ -0,0 +1,26 @@
+package catchthebeat.sim;
+
+import catchthebeat.game.Game;
+
+/**
+ * Interface ScriptedPlayer
+ * 
+ * A scripted player takes the place of a human player when the game is
+ * driven by the Simulator. It is asked for a drum every time the game
+ * waits for the human player to hit one.
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+public interface ScriptedPlayer {
+
+    /**
+     * Called once per timeframe in which the game waits for a beat.
+     * The game can be queried (current beat index, beat sequence, whether
+     * the beat is being added) but must not be modified.
+     * 
+     * @param game Game that waits for the beat.
+     * @return Drum to hit (range 1...number of drums) or 0 to miss the timeframe.
+     */
+    public int play(Game game);
+}
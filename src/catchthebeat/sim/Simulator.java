@@ -0,0 +1,163 @@
+package catchthebeat.sim;
+
+import catchthebeat.game.Game;
+import catchthebeat.game.MultiPlayerGame;
+import catchthebeat.game.Score;
+import catchthebeat.game.SinglePlayerGame;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Class Simulator
+ * 
+ * This class drives the game backend without any frontend. It is used for
+ * balance testing and regression runs where thousands of matches need to be
+ * played as fast as the CPU allows.
+ * 
+ * 1) Game is connected to a HeadlessLink, so no GUI, sound or animation
+ *    thread is involved.
+ * 2) Instead of the drum sprites, the simulator itself announces the ticks
+ *    in a tight loop.
+ * 3) Each human player is replaced by a ScriptedPlayer, who is asked for
+ *    a drum every time the game waits for one (scripted player of the first
+ *    human player is at index 0).
+ * 4) As a game with perfect players never ends, the number of rounds in
+ *    a single match is limited.
+ * 5) Matches can be recorded to a MatchLog (e.g. for profiling).
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+public class Simulator {
+
+    public static final int DEFAULT_MAX_ROUNDS = 100;
+
+    private ScriptedPlayer[] scriptedPlayers;
+    private int maxRounds;
+    private MatchLog log;
+    // totals over all matches played by this simulator
+    private long matchesPlayed;
+    private long roundsPlayed;
+
+    public Simulator(ScriptedPlayer[] scriptedPlayers, int maxRounds) {
+        this.scriptedPlayers = scriptedPlayers;
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * Sets the log the matches are recorded to.
+     * 
+     * @param log Match log or null if matches are not recorded.
+     */
+    public void setMatchLog(MatchLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Plays a single player match until the player is out or the round
+     * limit is reached.
+     * 
+     * @param  playerName   Name of the human player.
+     * @param  difficulty   Integer representing the difficulty: 0=easy, 1=medium, 2=hard.
+     * @return Score of the match.
+     */
+    public Score playSinglePlayer(String playerName, int difficulty) {
+        HeadlessLink link = new HeadlessLink();
+        String[] playerNames = {playerName};
+        return play(new SinglePlayerGame(playerNames, difficulty, link), link);
+    }
+
+    /**
+     * Plays a multiplayer match until there is a winner or the round
+     * limit is reached.
+     * 
+     * @param  playerNames  Array of Strings containing players' names.
+     * @param  difficulty   Integer representing the difficulty: 0=easy, 1=medium, 2=hard.
+     * @return Score of the match.
+     */
+    public Score playMultiPlayer(String[] playerNames, int difficulty) {
+        HeadlessLink link = new HeadlessLink();
+        return play(new MultiPlayerGame(playerNames, difficulty, link), link);
+    }
+
+    /**
+     * Drives the given game. The game must have been created with the given link.
+     * 
+     * @param  game Game to be played.
+     * @param  link Link the game communicates through.
+     * @return Score of the match.
+     */
+    public Score play(Game game, HeadlessLink link) {
+        link.setMatchLog(log);
+        link.setGame(game);
+        while (game.isRunning() && game.getRoundNumber() <= maxRounds) {
+            link.tick();
+            if (game.isAwaitingBeat() && !game.getCurrentPlayer().isComputer()) {
+                int beat = scriptedPlayers[game.getCurrentPlayerIndex() - 1].play(game);
+                if (beat != 0) {
+                    link.humanKeyPressed(beat);
+                }
+            }
+        }
+        link.endMatch();
+        matchesPlayed++;
+        roundsPlayed += Math.min(game.getRoundNumber(), maxRounds);
+        return game.getCurrentScore();
+    }
+
+    /**
+     * @return Scripted players of the human players (may be replaced between matches).
+     */
+    public ScriptedPlayer[] getScriptedPlayers() {
+        return scriptedPlayers;
+    }
+
+    public long getMatchesPlayed() {
+        return matchesPlayed;
+    }
+
+    public long getRoundsPlayed() {
+        return roundsPlayed;
+    }
+
+    /**
+     * Runs a batch of matches with perfect players and reports the throughput.
+     * 
+     * Usage: Simulator [single|multi] [difficulty] [matches] [max rounds] [players]
+     * (matches are recorded to the log set by -Dcatchthebeat.matchLog=file)
+     */
+    public static void main(String[] args) throws IOException {
+        boolean singleplayer = args.length < 1 || !args[0].equals("multi");
+        int difficulty = args.length > 1 ? Integer.parseInt(args[1]) : Game.EASY;
+        int matches = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_ROUNDS;
+        int noPlayers = singleplayer ? 1 : (args.length > 4 ? Integer.parseInt(args[4]) : 2);
+
+        String[] playerNames = new String[noPlayers];
+        ScriptedPlayer[] players = new ScriptedPlayer[noPlayers];
+        for (int i = 0; i < noPlayers; i++) {
+            playerNames[i] = "Player " + (i + 1);
+            players[i] = new PerfectPlayer();
+        }
+
+        Simulator simulator = new Simulator(players, rounds);
+        String logFile = System.getProperty("catchthebeat.matchLog");
+        MatchLog log = (logFile != null) ? new MatchLog(new File(logFile)) : null;
+        simulator.setMatchLog(log);
+        long start = System.nanoTime();
+        for (int i = 0; i < matches; i++) {
+            if (singleplayer) {
+                simulator.playSinglePlayer(playerNames[0], difficulty);
+            } else {
+                simulator.playMultiPlayer(playerNames, difficulty);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (log != null) {
+            log.close();
+        }
+        System.out.println(simulator.getMatchesPlayed() + " matches, "
+                + simulator.getRoundsPlayed() + " rounds in " + seconds + " s ("
+                + (long) (simulator.getRoundsPlayed() / seconds) + " rounds/s)");
+    }
+}
@@ -0,0 +1,74 @@
+package catchthebeat.sim;
+
+/**
+ * Class TickSkew
+ *
+ * Counts how late the ticks of the matches fired after their deadlines
+ * (histogram of microseconds), kept by one thread and added up for
+ * the report.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class TickSkew {
+
+    private static final int MAX_MICROS = 100000; // later ticks are counted as this late
+    private final long[] counts = new long[MAX_MICROS + 1];
+    private long ticks;
+    private long sum;
+    private long max;
+
+    /**
+     * @param skew Time between the deadline and the tick (ns).
+     */
+    public void record(long skew) {
+        skew = Math.max(skew, 0);
+        ticks++;
+        sum += skew;
+        max = Math.max(max, skew);
+        counts[(int) Math.min(skew / 1000, MAX_MICROS)]++;
+    }
+
+    public void add(TickSkew other) {
+        ticks += other.ticks;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+        for (int i = 0; i <= MAX_MICROS; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    /**
+     * @param fraction Fraction of the ticks (0...1).
+     * @return Skew not exceeded by the fraction of the ticks (microseconds).
+     */
+    public int percentile(double fraction) {
+        long count = 0;
+        for (int i = 0; i <= MAX_MICROS; i++) {
+            count += counts[i];
+            if (count >= fraction * ticks) {
+                return i;
+            }
+        }
+        return MAX_MICROS;
+    }
+
+    // The following getter methods are self-explanatory.
+    public long getTicks() {
+        return ticks;
+    }
+
+    public double getMeanMicros() {
+        return (ticks == 0) ? 0 : sum / 1000.0 / ticks;
+    }
+
+    public double getMaxMicros() {
+        return max / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d ticks, skew mean %.1f us, p99 %d us, max %.1f us",
+                ticks, getMeanMicros(), percentile(0.99), getMaxMicros());
+    }
+}
@@ -0,0 +1,189 @@
+package catchthebeat.sim;
+
+/**
+ * Class TickWheel
+ *
+ * Hashed wheel timer of the ticks of many matches, driven by one thread
+ * (see MatchScheduler and the shards of MatchServer) instead of a sleeping
+ * thread per match.
+ *
+ * 1) Time is cut into ticks of the wheel of the given resolution. An entry
+ *    is put into the bucket of the first tick of the wheel not earlier than
+ *    its deadline (bucket = tick modulo the number of buckets), with the number
+ *    of turns of the wheel left before it is due.
+ * 2) advance() walks the buckets of all the ticks of the wheel that have
+ *    passed and expires their due entries, so scheduling and expiring take
+ *    O(1) time no matter how many entries there are, and an entry fires at
+ *    most one resolution after its deadline (plus the wake up of the thread).
+ * 3) Entries are linked into the buckets by their own fields, so scheduling
+ *    does not allocate. An expired entry may schedule itself again.
+ * 4) nextExpiryTime() tells the driving thread how long it may sleep (until
+ *    the first tick of the wheel holding a due entry, not the next tick).
+ * 5) The wheel is not thread-safe, it is used by the thread driving it only.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class TickWheel {
+
+    public static final int DEFAULT_BUCKETS = 4096;
+    public static final long DEFAULT_RESOLUTION = 100000L; // ns
+
+    /**
+     * Class Entry
+     *
+     * Something to be done at a deadline (e.g. the next tick of a match).
+     */
+    public abstract static class Entry {
+
+        private long deadline;
+        private long turns; // turns of the wheel left
+        private int bucket = -1; // -1 = not scheduled
+        private Entry previous;
+        private Entry next;
+
+        /**
+         * Called by the thread driving the wheel once the deadline has passed.
+         *
+         * @param now Time of the expiry (System.nanoTime()).
+         */
+        protected abstract void expire(long now);
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isScheduled() {
+            return bucket >= 0;
+        }
+    }
+
+    private final Entry[] buckets;
+    private final int mask;
+    private final long resolution;
+    private final long start;
+    private long tick; // next tick of the wheel to walk
+    private Entry cursor; // next entry of the bucket being walked
+    private int size;
+
+    public TickWheel() {
+        this(DEFAULT_BUCKETS, DEFAULT_RESOLUTION, System.nanoTime());
+    }
+
+    /**
+     * @param noBuckets Number of buckets (rounded up to a power of two).
+     * @param resolution Length of a tick of the wheel (ns).
+     * @param start Time of the first tick (System.nanoTime()).
+     */
+    public TickWheel(int noBuckets, long resolution, long start) {
+        int length = Integer.highestOneBit(Math.max(noBuckets, 2) - 1) << 1;
+        buckets = new Entry[length];
+        mask = length - 1;
+        this.resolution = resolution;
+        this.start = start;
+    }
+
+    /**
+     * Schedules the entry (or moves it if it is scheduled already).
+     *
+     * @param entry Entry to schedule.
+     * @param deadline Time the entry is due (System.nanoTime()).
+     */
+    public void schedule(Entry entry, long deadline) {
+        if (entry.isScheduled()) {
+            cancel(entry);
+        }
+        long due = deadline - start;
+        // first tick of the wheel not earlier than the deadline (but not a tick walked already)
+        long ticks = Math.max((due <= 0) ? 0 : (due + resolution - 1) / resolution, tick);
+        entry.deadline = deadline;
+        entry.turns = (ticks - tick) / buckets.length;
+        entry.bucket = (int) ticks & mask;
+        entry.previous = null;
+        entry.next = buckets[entry.bucket];
+        if (entry.next != null) {
+            entry.next.previous = entry;
+        }
+        buckets[entry.bucket] = entry;
+        size++;
+    }
+
+    /**
+     * Removes the entry from the wheel (nothing happens if it is not scheduled).
+     */
+    public void cancel(Entry entry) {
+        if (!entry.isScheduled()) {
+            return;
+        }
+        if (entry == cursor) {
+            cursor = entry.next;
+        }
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else {
+            buckets[entry.bucket] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+        entry.bucket = -1;
+        size--;
+    }
+
+    /**
+     * Expires the entries due in all the ticks of the wheel up to now.
+     *
+     * @param now Current time (System.nanoTime()).
+     */
+    public void advance(long now) {
+        while (start + tick * resolution <= now) {
+            int bucket = (int) tick & mask;
+            tick++; // entries scheduled by the expired ones go to later ticks
+            cursor = buckets[bucket];
+            while (cursor != null) {
+                Entry entry = cursor;
+                cursor = entry.next;
+                if (entry.turns > 0) {
+                    entry.turns--;
+                } else {
+                    cancel(entry);
+                    entry.expire(now);
+                }
+            }
+            if (size == 0) {
+                // nothing to walk, skip to the current tick
+                tick = Math.max(tick, (now - start) / resolution + 1);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Looks for the first tick of the wheel that will expire an entry (the
+     * buckets are walked forward from the next tick, at most one turn).
+     *
+     * @return Time advance() has to be called at to expire the next entry, or
+     * the time of the end of the current turn of the wheel if no entry is due
+     * within it.
+     */
+    public long nextExpiryTime() {
+        for (long t = tick; t < tick + buckets.length; t++) {
+            for (Entry entry = buckets[(int) t & mask]; entry != null; entry = entry.next) {
+                if (entry.turns == 0) {
+                    return start + t * resolution;
+                }
+            }
+        }
+        return start + (tick + buckets.length) * resolution;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
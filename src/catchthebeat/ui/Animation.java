@@ -0,0 +1,34 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat.ui;
+
+/**
+ * Interface Animation
+ * 
+ * A panel that is animated by AnimationScheduler. All the methods are called
+ * by the scheduler thread only (except for renderAnimation which can also be
+ * called by RenderSurface when the window needs repainting). A panel rendering
+ * to a RenderSurface updates and renders its state holding the surface's lock.
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+public interface Animation {
+    
+    // move the animation state one fixed step forward
+    public void updateAnimation();
+    
+    // paint the state to an off screen image (interpolated by alpha 0...1)
+    public void renderAnimation(float alpha);
+    
+    // show the rendered frame (e.g. schedule repaint of the panel)
+    public void showAnimation();
+    
+    // false once the animation does not need any more frames
+    public boolean isAnimating();
+    
+    // the animation was removed from the scheduler after its last frame
+    public void animationStopped();
+}
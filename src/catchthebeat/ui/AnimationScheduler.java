@@ -0,0 +1,113 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat.ui;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Class AnimationScheduler
+ * 
+ * This class runs the only animation thread of the application. All animated
+ * panels are driven by it in a single pass per frame.
+ * 
+ * 1) Panels ask for frames by calling start (from any thread). The request is
+ *    queued and picked up by the scheduler thread at the start of next frame,
+ *    so only the scheduler thread changes the list of running animations
+ * 2) Each frame every running animation is updated by the same number of fixed
+ *    steps (timed by FixedStepClock), then all of them are rendered and only
+ *    after that their frames are shown (repaints requested so Swing paints
+ *    them in one go)
+ * 3) Animation that is not animating after its update is rendered one last time,
+ *    removed and notified
+ * 4) When there is nothing to animate the thread waits and the clock is started
+ *    again with the next animation
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+public class AnimationScheduler implements Runnable {
+    
+    // sleep interval between "frames" (animation refresh operations ~50fps)
+    public static final long FRAME_INTERVAL = 20L;
+    // interval between updates of animations (tempo of the game depends on it)
+    public static final long STEP_INTERVAL = 20L;
+    public static final int STEPS_PER_SECOND = (int) (1000L / STEP_INTERVAL);
+    
+    private final FixedStepClock theClock = new FixedStepClock(STEP_INTERVAL, FRAME_INTERVAL);
+    // animations that asked for frames (any thread)
+    private final ConcurrentLinkedQueue<Animation> startRequests = new ConcurrentLinkedQueue<Animation>();
+    // running animations (scheduler thread only)
+    private final ArrayList<Animation> animations = new ArrayList<Animation>();
+    private final ArrayList<Animation> stopped = new ArrayList<Animation>();
+    private Thread theRunner;
+    
+    public AnimationScheduler() {
+        theRunner = new Thread(this, "Animation");
+        theRunner.setDaemon(true);
+        theRunner.start();
+    }
+    
+    // animation will get frames until it stops animating
+    public void start(Animation animation) {
+        startRequests.add(animation);
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+    
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                waitForAnimations();
+                frame();
+                theClock.waitForNextFrame();
+            }
+        } catch (InterruptedException ie) {
+            ie.printStackTrace();
+        }
+    }
+    
+    private void waitForAnimations() throws InterruptedException {
+        if (animations.isEmpty() && startRequests.isEmpty()) {
+            synchronized (this) {
+                while (startRequests.isEmpty()) {
+                    wait();
+                }
+            }
+            theClock.start(); // nothing was running
+        }
+        for (Animation a; (a = startRequests.poll()) != null;) {
+            if (!animations.contains(a)) {
+                animations.add(a);
+            }
+        }
+    }
+    
+    // update, render and repaint all running animations
+    private void frame() {
+        int steps = theClock.stepsDue();
+        float alpha = theClock.getAlpha();
+        for (int i = 0; i < animations.size(); i++) {
+            Animation a = animations.get(i);
+            for (int step = 0; step < steps && a.isAnimating(); step++) {
+                a.updateAnimation();
+            }
+            a.renderAnimation(alpha);
+            if (!a.isAnimating()) {
+                stopped.add(a);
+            }
+        }
+        for (int i = 0; i < animations.size(); i++) {
+            animations.get(i).showAnimation();
+        }
+        for (int i = 0; i < stopped.size(); i++) {
+            animations.remove(stopped.get(i));
+            stopped.get(i).animationStopped();
+        }
+        stopped.clear();
+    }
+}
@@ -7,12 +7,10 @@ package catchthebeat.ui;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 /**
  * Class BannerPanel
@@ -23,9 +21,11 @@ import javax.swing.JPanel;
  * 1) Name of the player currently playing.
  * 2) Game score (note that highest game score is shared by all players once
  *    they repeat last sequence successfully).
- * 3) Information are updated and the panel repainted by GameplayPanel.
+ * 3) Information are updated and the panel repainted by GameplayPanel. Layers
+ *    are replaced on the event dispatch thread only, which paints them.
  * 4) Panel uses Sprite to load and paint its background picture.
- * 5) Text anti-aliasing is turned ON by default before each repaint. 
+ * 5) Text is anti-aliased and rendered to cached text layers (TextLayerCache)
+ *    once the information is updated, paint just draws the layers.
  * 
  * 
  * @author Roman Velic
@@ -39,6 +39,11 @@ public class BannerPanel extends JPanel {
     private BufferedImage backgroundImage;
     private int score = 0;
     private String player = ""; // always the first player
+    private static final Font INFO_FONT = new Font("Georgia", Font.BOLD + Font.ITALIC, 14);
+    private static final int MAX_TEXT_LAYERS = 16;
+    private TextLayerCache textLayers;
+    private BufferedImage playerLayer;
+    private BufferedImage scoreLayer;
         
     public BannerPanel(ImageLoader imageLoader) {
         
@@ -48,6 +53,8 @@ public class BannerPanel extends JPanel {
         iLoader = imageLoader;
         // load background image
         backgroundImage = iLoader.getSprite("BannerBgc.png");
+        textLayers = new TextLayerCache(this, MAX_TEXT_LAYERS);
+        updateLayers();
     }
     
     @Override
@@ -55,30 +62,34 @@ public class BannerPanel extends JPanel {
         super.paintComponent(g) ;
         // draw background
         g.drawImage(backgroundImage, 0, 0, null);
-        Font playerFont = new Font("Georgia", Font.BOLD + Font.ITALIC, 14);
-        FontMetrics fm = g.getFontMetrics(playerFont);
-        g.setFont(playerFont);
-        g.setColor(Color.black);
-       
-        // turn on anti-aliasing for text
-        Graphics2D g2 = (Graphics2D) g;
-        RenderingHints rh = g2.getRenderingHints();
-        rh.put (RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2.setRenderingHints(rh);
-        
         // draw current player name
-        String info = "Playing: " + player;
-        g.drawString(info, PANEL_MARGIN, (PANEL_HEIGHT - fm.getHeight()) / 2 + fm.getAscent());
+        g.drawImage(playerLayer, PANEL_MARGIN, (PANEL_HEIGHT - playerLayer.getHeight()) / 2, null);
         // draw game score
-        info = "Game Score: " + score;
-        g.drawString(info, PANEL_WIDTH - fm.stringWidth(info) - PANEL_MARGIN, (PANEL_HEIGHT - fm.getHeight()) / 2 + fm.getAscent());
+        g.drawImage(scoreLayer, PANEL_WIDTH - scoreLayer.getWidth() - PANEL_MARGIN, (PANEL_HEIGHT - scoreLayer.getHeight()) / 2, null);
     }   
     
     // update display of the banner (current player and game score after each round)
-    public void updateInfo(String playerName, int gameScore) {
+    public void updateInfo(final String playerName, final int gameScore) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            // rounds are started by the animation thread, layers are painted on the EDT
+            Runnable doUpdate = new Runnable() {
+                public void run() {
+                    updateInfo(playerName, gameScore);
+                }
+            };
+            SwingUtilities.invokeLater(doUpdate);
+            return;
+        }
         player = playerName;
         score = gameScore;
+        updateLayers();
         repaint();
     }
+    
+    // render text of current information (if not cached yet)
+    private void updateLayers() {
+        playerLayer = textLayers.getLayer("Playing: " + player, INFO_FONT, Color.black);
+        scoreLayer = textLayers.getLayer("Game Score: " + score, INFO_FONT, Color.black);
+    }
 }
 // Credits: Roman Velic
\ No newline at end of file
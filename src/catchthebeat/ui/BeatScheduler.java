@@ -0,0 +1,225 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat.ui;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class BeatScheduler
+ *
+ * This class times the beats of a round by the clock of the sound mixer (frames
+ * of the audio output) instead of the animation frames.
+ *
+ * 1) Drums move at a constant speed, so the time a drum enters the tick (beat
+ *    window opens) and leaves it (beat window closes) is computed at the start
+ *    of the round as a frame of the audio clock
+ * 2) After each mixed buffer the mixer thread only tells the game thread of
+ *    the scheduler the new position of the clock and goes on mixing. The game
+ *    thread calls the listener for every window that opened or closed until
+ *    then, in order (events are exact to a frame and are delivered about one
+ *    buffer late). The game runs on this thread, so a slow tick (match log,
+ *    spectators, panels) delays the next events but never the sound
+ * 3) Drum positions are read from the same clock (getRoundSteps), the animation
+ *    only displays what the scheduler decides
+ * 4) Once the round is ended, only the events at the time of the last event are
+ *    still delivered (the next drum entering the tick ends the round)
+ * 5) Hits of the player (InputQueue stamped with the frame of the clock) are
+ *    delivered on the same thread in order with the window events, so a hit
+ *    belongs to the window that was open at the time of the hit
+ * 6) Listeners are called without the lock of the scheduler, so the animation
+ *    can read the clock (getRoundSteps) while the game is ticked
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class BeatScheduler implements SoundMixer.ClockListener, Runnable {
+
+    /**
+     * Interface of the panel that is told about the beat windows (called by
+     * the game thread).
+     */
+    public static interface Listener {
+
+        // drum entered the tick
+        public void beatWindowOpened(int drumNo);
+
+        // drum left the tick
+        public void beatWindowClosed(int drumNo);
+    }
+
+    /**
+     * Interface of the object that evaluates the hits (called by the game
+     * thread).
+     */
+    public static interface InputListener {
+
+        // drum was hit at the given frame of the clock
+        public void beatHit(int beat, long frame);
+    }
+
+    // audio frames in one animation step (drums move by their step each step)
+    public static final long FRAMES_PER_STEP =
+            (long) SoundMixer.SAMPLE_RATE * AnimationScheduler.STEP_INTERVAL / 1000L;
+
+    private final SoundMixer theClock;
+    private final Thread theGameThread; // delivers the events and hits
+    private volatile long theClockPosition = -1; // last position told by the mixer
+    private Listener theListener;
+    private InputQueue theInput;
+    private InputListener theInputListener;
+    // round geometry (distances in pixels)
+    private long theStartFrame;
+    private int theNoDrums;
+    private long theOpenDistance; // distance first drum moves to enter the tick
+    private long theCloseDistance; // distance first drum moves to leave the tick
+    private long theSpacing; // distance between drums
+    private long theStep; // distance moved in one step
+    // next event: 2 * drumNo opens the window of the drum, 2 * drumNo + 1 closes it
+    private int theNextEvent;
+    private long theLastEventFrame;
+    private long theLastFrame; // no events after this frame (round ended)
+
+    public BeatScheduler(SoundMixer clock) {
+        theClock = clock;
+        theGameThread = new Thread(this, "Game");
+        theGameThread.setDaemon(true);
+        theGameThread.start();
+        theClock.addClockListener(this);
+    }
+
+    /**
+     * Starts timing of a round now.
+     *
+     * @param listener panel told about the beat windows
+     * @param noDrums number of drums in the round
+     * @param openDistance distance the first drum moves until it enters the tick
+     * @param closeDistance distance the first drum moves until it leaves the tick
+     * @param spacing distance between two drums
+     * @param step distance drums move in one step
+     */
+    public synchronized void startRound(Listener listener, int noDrums, int openDistance,
+                                        int closeDistance, int spacing, int step) {
+        theListener = listener;
+        theNoDrums = noDrums;
+        theOpenDistance = openDistance;
+        theCloseDistance = closeDistance;
+        theSpacing = spacing;
+        theStep = step;
+        theStartFrame = theClock.getFramePosition();
+        theNextEvent = 0;
+        theLastEventFrame = theStartFrame - 1;
+        theLastFrame = Long.MAX_VALUE;
+    }
+
+    // hits from the queue will be passed to the listener
+    public synchronized void setInput(InputQueue input, InputListener listener) {
+        theInput = input;
+        theInputListener = listener;
+    }
+
+    // no more events except those at the time of the last one
+    public synchronized void endRound() {
+        theLastFrame = theLastEventFrame;
+    }
+
+    // time since start of the round in steps (fraction of a step included)
+    public double getRoundSteps() {
+        long startFrame;
+        synchronized (this) {
+            startFrame = theStartFrame;
+        }
+        return (double) (theClock.getFramePosition() - startFrame) / FRAMES_PER_STEP;
+    }
+
+    // frame of the audio clock when the window of the drum opens
+    public synchronized long getOpenFrame(int drumNo) {
+        return eventFrame(2 * drumNo);
+    }
+
+    // frame of the audio clock when the window of the drum closes
+    public synchronized long getCloseFrame(int drumNo) {
+        return eventFrame(2 * drumNo + 1);
+    }
+
+    // current frame of the clock
+    public long getFramePosition() {
+        return theClock.getFramePosition();
+    }
+
+    private long eventFrame(int event) {
+        long distance = (event % 2 == 0) ? theOpenDistance : theCloseDistance;
+        distance += theSpacing * (event / 2);
+        // drum moves step pixels in FRAMES_PER_STEP frames
+        return theStartFrame + distance * FRAMES_PER_STEP / theStep;
+    }
+
+    // a buffer was mixed, wake the game thread (mixer thread, never blocks)
+    @Override
+    public void audioClock(long framePosition) {
+        theClockPosition = framePosition;
+        LockSupport.unpark(theGameThread);
+    }
+
+    /**
+     * Game thread: waits for the clock and delivers the events and hits that
+     * are due. If it falls behind, it catches up with the latest position.
+     */
+    @Override
+    public void run() {
+        long delivered = -1;
+        while (true) {
+            long position = theClockPosition;
+            if (position == delivered) {
+                LockSupport.park(this);
+                continue;
+            }
+            delivered = position;
+            deliver(position);
+        }
+    }
+
+    // deliver events and hits due at the position, in order (game thread)
+    private void deliver(long framePosition) {
+        while (true) {
+            Listener listener;
+            InputListener inputListener;
+            int beat = 0;
+            long hitFrame = 0;
+            int event;
+            synchronized (this) {
+                long frame = Long.MAX_VALUE;
+                if (theListener != null && theNextEvent < 2 * theNoDrums) {
+                    frame = eventFrame(theNextEvent);
+                    if (frame > theLastFrame) {
+                        frame = Long.MAX_VALUE; // round ended
+                    }
+                }
+                listener = theListener;
+                inputListener = theInputListener;
+                event = theNextEvent;
+                // hits before the next event first
+                if (theInput != null && !theInput.isEmpty() && theInput.peekFrame() <= framePosition
+                        && theInput.peekFrame() <= frame) {
+                    beat = theInput.peekBeat();
+                    hitFrame = theInput.peekFrame();
+                    theInput.remove();
+                } else if (frame <= framePosition) {
+                    theNextEvent++;
+                    theLastEventFrame = frame;
+                } else {
+                    return;
+                }
+            }
+            // listeners are called without the lock
+            if (beat != 0) {
+                inputListener.beatHit(beat, hitFrame);
+            } else if (event % 2 == 0) {
+                listener.beatWindowOpened(event / 2);
+            } else {
+                listener.beatWindowClosed(event / 2);
+            }
+        }
+    }
+}
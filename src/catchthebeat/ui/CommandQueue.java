@@ -0,0 +1,128 @@
+package catchthebeat.ui;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class CommandQueue
+ *
+ * This class is a lock-free ring buffer of game commands (ticks and beats
+ * encoded as integers, with the time they were issued) that any thread may
+ * add to, but only one thread at a time reads from (the thread that currently
+ * runs the game, see FrontBackLink).
+ *
+ * 1) Producers claim a position by incrementing the tail and then publish
+ *    the command by an ordered write of the sequence number of its slot,
+ *    so no locking is needed even when several threads add at the same time.
+ * 2) Position of a command is returned by offer(), commands are read in
+ *    the order of their positions.
+ * 3) The consumer frees the slot by setting its sequence number to the position
+ *    of the next lap of the ring.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class CommandQueue {
+
+    private final int mask;
+    private final int[] commands;
+    private final long[] times;
+    private final AtomicLongArray sequences; // position the slot is ready to be written (or read + 1)
+    private final AtomicLong tail = new AtomicLong(); // next position to write
+    private volatile long head = 0; // next position to read
+    private long time; // time of the last command read
+
+    /**
+     * @param capacity Number of entries (rounded up to a power of two).
+     */
+    public CommandQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mask = size - 1;
+        commands = new int[size];
+        times = new long[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds a command (any thread).
+     *
+     * @param command Encoded command, must not be 0.
+     * @param time Time the command was issued.
+     * @return Position of the command or -1 if the queue is full.
+     */
+    public long offer(int command, long time) {
+        while (true) {
+            long t = tail.get();
+            int i = (int) t & mask;
+            long difference = sequences.get(i) - t;
+            if (difference == 0) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    commands[i] = command;
+                    times[i] = time;
+                    sequences.lazySet(i, t + 1); // publish the command
+                    return t;
+                }
+            } else if (difference < 0) {
+                return -1; // slot not read yet in the previous lap
+            }
+            // otherwise another producer claimed the position, try the next one
+        }
+    }
+
+    /**
+     * Removes the next command (one consumer at a time).
+     *
+     * @return The command or 0 if there is none (or it is not published yet).
+     */
+    public int poll() {
+        long h = head;
+        int i = (int) h & mask;
+        if (sequences.get(i) != h + 1) {
+            return 0;
+        }
+        int command = commands[i];
+        time = times[i];
+        sequences.lazySet(i, h + mask + 1); // free the slot for the next lap
+        head = h + 1;
+        return command;
+    }
+
+    /**
+     * @return Time of the command returned by the last poll() (consumer only).
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return Number of commands removed so far (position of the next command).
+     */
+    public long getHead() {
+        return head;
+    }
+
+    /**
+     * @return True if there is no published command to read.
+     */
+    public boolean isEmpty() {
+        long h = head;
+        return sequences.get((int) h & mask) != h + 1;
+    }
+
+    /**
+     * @return Number of commands added but not removed yet (any thread).
+     */
+    public int size() {
+        return (int) (tail.get() - head);
+    }
+
+    /**
+     * @return Number of entries.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat.ui;
+
+import java.awt.Rectangle;
+import javax.swing.JComponent;
+
+/**
+ * Class DirtyRegion
+ *
+ * This class collects the parts of a panel that changed since the last frame,
+ * so only those are restored from the background and repainted.
+ *
+ * 1) Rectangles are clipped to the panel and overlapping rectangles are merged,
+ *    so no part of the panel is painted twice for the same frame
+ * 2) Number of rectangles is limited, any further rectangle is merged into the
+ *    last one (rectangles are kept between frames to avoid garbage)
+ * 3) Whole panel is dirty when a full frame was rendered (new back buffer,
+ *    changed message, etc.)
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class DirtyRegion {
+
+    private static final int MAX_RECTS = 8;
+
+    private final int thePanelWidth, thePanelHeight;
+    private final Rectangle[] theRects = new Rectangle[MAX_RECTS];
+    private int theCount = 0;
+    private boolean isFull = false;
+
+    public DirtyRegion(int pw, int ph) {
+        thePanelWidth = pw;
+        thePanelHeight = ph;
+        for (int i = 0; i < MAX_RECTS; i++){
+            theRects[i] = new Rectangle();
+        }
+    }
+
+    // start a new frame with nothing dirty
+    public void clear(){
+        theCount = 0;
+        isFull = false;
+    }
+
+    // whole panel is dirty
+    public void addAll(){
+        theCount = 1;
+        theRects[0].setBounds(0, 0, thePanelWidth, thePanelHeight);
+        isFull = true;
+    }
+
+    public void add(Rectangle r){
+        add(r.x, r.y, r.width, r.height);
+    }
+
+    public void add(int x, int y, int w, int h){
+        if (isFull){
+            return;
+        }
+        // clip to the panel
+        int x2 = Math.min(x + w, thePanelWidth);
+        int y2 = Math.min(y + h, thePanelHeight);
+        x = Math.max(x, 0);
+        y = Math.max(y, 0);
+        if (x >= x2 || y >= y2){
+            return; // off the panel
+        }
+        Rectangle merged = null;
+        for (int i = 0; i < theCount; i++){
+            Rectangle r = theRects[i];
+            if (x < r.x + r.width && r.x < x2 && y < r.y + r.height && r.y < y2){
+                merged = r;
+                break;
+            }
+        }
+        if (merged == null && theCount < MAX_RECTS){
+            theRects[theCount++].setBounds(x, y, x2 - x, y2 - y);
+            return;
+        }
+        if (merged == null){
+            merged = theRects[MAX_RECTS - 1];
+        }
+        merged.add(x, y);
+        merged.add(x2, y2);
+        // merged rectangle may overlap others now
+        mergeOverlapping();
+    }
+
+    private void mergeOverlapping(){
+        for (int i = 0; i < theCount; i++){
+            for (int j = i + 1; j < theCount; j++){
+                if (theRects[i].intersects(theRects[j])){
+                    theRects[i].add(theRects[j]);
+                    // move last rectangle to j and check again from i
+                    Rectangle r = theRects[j];
+                    theRects[j] = theRects[--theCount];
+                    theRects[theCount] = r;
+                    j = i;
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty(){
+        return theCount == 0;
+    }
+
+    public boolean isFull(){
+        return isFull;
+    }
+
+    public int size(){
+        return theCount;
+    }
+
+    // i-th dirty rectangle (don't modify)
+    public Rectangle get(int i){
+        return theRects[i];
+    }
+
+    // schedule repaint of dirty part of the component
+    public void repaint(JComponent c){
+        if (isFull){
+            c.repaint();
+            return;
+        }
+        for (int i = 0; i < theCount; i++){
+            Rectangle r = theRects[i];
+            c.repaint(r.x, r.y, r.width, r.height);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat.ui;
+
+/**
+ * Class FixedStepClock
+ * 
+ * This class times the animation loops of the panels. Game state is updated
+ * in fixed time steps while frames are rendered as often as the frame interval
+ * (and the machine) allows.
+ * 
+ * 1) Clock is driven by System.nanoTime(), so it does not depend on the
+ *    millisecond resolution of the system timer
+ * 2) If a frame takes too long, all the steps that were missed are reported at
+ *    the next frame so the tempo of the game stays the same (at most MAX_STEPS
+ *    steps are caught up at once, older steps are dropped)
+ * 3) Alpha is the part of the next step that has already elapsed. Sprites are
+ *    painted between their previous and current position by this fraction
+ * 4) Frame deadlines are absolute, so a late frame does not shift the following
+ *    ones (no drift)
+ * 
+ * @author agent
+ * @version 2026.10
+ */
+public class FixedStepClock {
+    
+    // most steps caught up in one frame
+    public static final int MAX_STEPS = 10;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    
+    private final long theStepNanos;
+    private final long theFrameNanos;
+    private long theNextStepTime; // time of the step that is due next
+    private long theNextFrameTime; // deadline of the next frame
+    private float theAlpha;
+    
+    public FixedStepClock(long stepMillis, long frameMillis) {
+        theStepNanos = stepMillis * NANOS_PER_MILLI;
+        theFrameNanos = frameMillis * NANOS_PER_MILLI;
+    }
+    
+    // start counting steps and frames from now
+    public void start() {
+        long now = System.nanoTime();
+        theNextStepTime = now;
+        theNextFrameTime = now;
+        theAlpha = 0;
+    }
+    
+    // number of steps that are due since the last call
+    public int stepsDue() {
+        long now = System.nanoTime();
+        int steps = 0;
+        while (now >= theNextStepTime && steps < MAX_STEPS) {
+            theNextStepTime += theStepNanos;
+            steps++;
+        }
+        if (now >= theNextStepTime) {
+            // too far behind, drop the steps that can't be caught up
+            theNextStepTime = now + theStepNanos;
+        }
+        theAlpha = 1f - (float) (theNextStepTime - now) / theStepNanos;
+        return steps;
+    }
+    
+    // part of the next step elapsed at the time of last stepsDue call (0...1)
+    public float getAlpha() {
+        return Math.max(0f, Math.min(1f, theAlpha));
+    }
+    
+    // number of steps in given number of milliseconds
+    public int stepsIn(long millis) {
+        return (int) (millis * NANOS_PER_MILLI / theStepNanos);
+    }
+    
+    // sleep until deadline of the next frame
+    public void waitForNextFrame() throws InterruptedException {
+        theNextFrameTime += theFrameNanos;
+        long difference = theNextFrameTime - System.nanoTime();
+        if (difference < -theFrameNanos) {
+            // more than a frame late, start again from now
+            theNextFrameTime = System.nanoTime();
+        } else if (difference > 0) {
+            Thread.sleep(difference / NANOS_PER_MILLI, (int) (difference % NANOS_PER_MILLI));
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package catchthebeat.ui;
 
 import catchthebeat.game.Game;
+import catchthebeat.game.GameSnapshot;
+import catchthebeat.net.SpectatorFeed;
+import catchthebeat.sim.MatchLog;
+import catchthebeat.sim.MatchReplay;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Class FrontBackLink
@@ -24,16 +31,61 @@ import java.awt.event.KeyListener;
  * sound effects player (SoundEffect),
  * and the class itself handles actions triggered by keypress (implements KeyListener, which is added to GUI).
  * 
+ * When the beats are timed by BeatScheduler, keypresses are not passed to
+ * the game straight away. The drum is animated and its sound played at once,
+ * but the hit is stamped with the time of the audio clock and queued (InputQueue).
+ * The scheduler passes it back (beatHit) in order with the beat windows, the hit
+ * is judged (HitJudge) and passed to the game with its timing accuracy.
+ * 
+ * The game is changed by one thread at a time only. Ticks and beats are added
+ * as commands to a lock-free queue (CommandQueue) by any thread, the thread
+ * that adds a command then runs all the queued commands unless another thread
+ * is already running them (that one runs the new command too). Nobody waits
+ * for a command to be done: after each command an immutable snapshot of the
+ * game (GameSnapshot) is published, the getters called by the frontend read
+ * the snapshot. Commands issued by a running command (beats of the CPU) are
+ * queued behind the commands added before them. If the queue is full, other
+ * threads wait until the writer makes space (a part of the queue is kept for
+ * the writer), so commands are never run out of order.
+ * 
+ * If a SpectatorFeed is set, the writer also publishes the changes of the game
+ * to it after each command (the feed never waits for its spectators).
+ * 
+ * If a MatchLog is set, the writer records every command with its time
+ * (frame of the audio clock) and writes the log to the disk at the end of each
+ * match; closeMatchLog() closes it when the application exits. When a match is replayed (MatchReplay), keys are
+ * ignored and the recorded hits are queued after each tick instead.
+ * 
  * @author Michal Kabát
  * @version 2012.04
  */
-public class FrontBackLink implements KeyListener {
+public class FrontBackLink implements KeyListener, BeatScheduler.InputListener {
 
-    private Game game;
+    protected volatile Game game;
+    private volatile GameSnapshot state;
+    private final CommandQueue commands = new CommandQueue(COMMAND_CAPACITY);
+    private final AtomicBoolean writing = new AtomicBoolean(); // a thread runs the commands
+    private volatile Thread writer; // the thread running the commands
     private PlayerPanel pp;
     private GameplayPanel gpp;
     private SoundEffect sound;
-    private boolean locked;
+    protected volatile boolean locked;
+    private BeatScheduler beats;
+    private InputQueue input;
+    private HitJudge judge = new HitJudge();
+    private MatchLog log; // written by the writer only
+    private boolean logging; // match is being recorded
+    private volatile MatchReplay replay;
+    private volatile SpectatorFeed spectators;
+    private static final int INPUT_CAPACITY = 64;
+    private static final int COMMAND_CAPACITY = 256;
+    private static final int WRITER_RESERVE = 16; // entries only the writer may take
+    private static final long FULL_QUEUE_WAIT = 100000; // ns, wait for space in the queue
+    // commands: type in the lowest 4 bits, then the beat and the accuracy + 1
+    private static final int TICK = 1;
+    private static final int BEAT = 2;
+    private static final int NO_ACCURACY = -1;
+    private static final long MAX_EVENT_DELAY = 250; // ms, older key event times are not trusted
     private static final int DRUM_1 = 49;
     private static final int DRUM_2 = 50;
     private static final int DRUM_3 = 51;
@@ -45,7 +97,27 @@ public class FrontBackLink implements KeyListener {
      * using setter methods.
      */
     public FrontBackLink() {
-        sound = new SoundEffect();
+        this(new SoundEffect());
+    }
+
+    /**
+     * Constructor creating SoundEffect object that plays the effects through
+     * the given mixer (which also serves as the clock of the game).
+     * 
+     * @param mixer Software mixer shared with the beat scheduler.
+     */
+    public FrontBackLink(SoundMixer mixer) {
+        this(new SoundEffect(mixer));
+    }
+
+    /**
+     * Constructor used by links that do not drive any frontend (e.g. headless
+     * simulation). Such links override the frontend methods and may pass null.
+     * 
+     * @param sound Sound effects player or null if no sound is played.
+     */
+    protected FrontBackLink(SoundEffect sound) {
+        this.sound = sound;
         locked = true;
     }
 
@@ -57,6 +129,61 @@ public class FrontBackLink implements KeyListener {
      */
     public void setGame(Game game) {
         this.game = game;
+        if (game != null) {
+            state = game.takeSnapshot();
+        }
+        logging = log != null && game != null && replay == null;
+        if (logging) {
+            log.startMatch(game, clockFrame());
+        }
+    }
+
+    /**
+     * Sets the log the matches are recorded to (set before the game).
+     * 
+     * @param log Match log or null if matches are not recorded.
+     */
+    public void setMatchLog(MatchLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Closes the match log (called when the application exits). The calling
+     * thread takes the place of the writer for good, so nothing is recorded
+     * while the log is being closed and the commands added later are not run.
+     */
+    public void closeMatchLog() {
+        while (!writing.compareAndSet(false, true)) {
+            LockSupport.parkNanos(FULL_QUEUE_WAIT); // the writer finishes its commands
+        }
+        logging = false;
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.out.println("The match log could not be closed! " + e.getMessage());
+            }
+            log = null;
+        }
+    }
+
+    /**
+     * Sets the feed the matches are streamed to for spectators.
+     * 
+     * @param spectators Spectator feed or null if matches are not streamed.
+     */
+    public void setSpectatorFeed(SpectatorFeed spectators) {
+        this.spectators = spectators;
+    }
+
+    /**
+     * Replays a recorded match instead of taking the keys (set before
+     * the game created by the replay, the beat scheduler is required).
+     * 
+     * @param replay Replay positioned at the start of the match or null to stop.
+     */
+    public void setReplay(MatchReplay replay) {
+        this.replay = replay;
     }
     
     /*************************************************************************
@@ -72,6 +199,22 @@ public class FrontBackLink implements KeyListener {
         this.gpp = gpp;
     }
 
+    /**
+     * Registers the scheduler timing the beats. Keypresses are then queued
+     * and judged against the beat windows.
+     * 
+     * @param beats Beat scheduler (shares the clock with the sound mixer).
+     */
+    public void setBeatScheduler(BeatScheduler beats) {
+        this.beats = beats;
+        input = new InputQueue(INPUT_CAPACITY);
+        beats.setInput(input, this);
+    }
+
+    public HitJudge getHitJudge() {
+        return judge;
+    }
+
     /**
      * This method is called by this class when a valid key is pressed and
      * broadcasts this information to the backend, animated drums panel and
@@ -80,7 +223,7 @@ public class FrontBackLink implements KeyListener {
      * @param beat Numerical representation of the drum hit by the player.
      */
     private void passBeat(int beat) {
-        game.beat(beat);
+        submit(BEAT | beat << 4 | (NO_ACCURACY + 1) << 12, clockFrame());
         pp.drumPlayed(beat - 1);
         sound.play(beat - 1);
     }
@@ -93,27 +236,73 @@ public class FrontBackLink implements KeyListener {
      */
     @Override
     public void keyPressed(KeyEvent e) {
-        if (locked) {
+        if (locked || replay != null) {
             return;
         }
         int keyCode = e.getKeyCode();
         switch (keyCode) {
             case DRUM_1:
-                passBeat(1);
+                keyBeat(1, e);
                 break;
             case DRUM_2:
-                passBeat(2);
+                keyBeat(2, e);
                 break;
             case DRUM_3:
-                passBeat(3);
+                keyBeat(3, e);
                 break;
             case DRUM_4:
-                passBeat(4);
+                keyBeat(4, e);
                 break;
         }
 
     }
 
+    /**
+     * Passes the beat of a keypress to the game, or queues it with the time of
+     * the keypress if the beats are timed by BeatScheduler (the drum is animated
+     * and its sound played straight away).
+     * 
+     * @param beat Numerical representation of the drum hit by the player.
+     * @param e Key event of the keypress.
+     */
+    private void keyBeat(int beat, KeyEvent e) {
+        if (beats == null) {
+            passBeat(beat);
+            return;
+        }
+        // time of the keypress: now minus the time the event waited in the queue
+        long delay = System.currentTimeMillis() - e.getWhen();
+        delay = Math.max(0, Math.min(delay, MAX_EVENT_DELAY));
+        long frame = beats.getFramePosition() - HitJudge.toFrames(delay);
+        if (input.offer(beat, judge.hitFrame(frame))) {
+            pp.drumPlayed(beat - 1);
+            sound.play(beat - 1);
+        }
+    }
+
+    /**
+     * Called by BeatScheduler (game thread) with a queued keypress once
+     * the beat windows before it have been processed. The hit is judged against
+     * the middle of the window of the drum in tick and passed to the game.
+     * 
+     * @param beat Numerical representation of the drum hit by the player.
+     * @param frame Frame of the audio clock when the drum was hit.
+     */
+    @Override
+    public void beatHit(int beat, long frame) {
+        if (locked) {
+            return;
+        }
+        int drumNo = gpp.getDrumInTick();
+        long beatFrame = (beats.getOpenFrame(drumNo) + beats.getCloseFrame(drumNo)) / 2;
+        int accuracy = judge.judge(frame, beatFrame);
+        if (replay != null) { // not animated by the key listener
+            pp.drumPlayed(beat - 1);
+            sound.play(beat - 1);
+        }
+        submit(BEAT | beat << 4 | (accuracy + 1) << 12, frame);
+    }
+
     @Override
     public void keyTyped(KeyEvent ke) {
     }
@@ -131,6 +320,12 @@ public class FrontBackLink implements KeyListener {
      * @param beat Numerical representation of the drum hit by the player.
      */
     public void computerKeyPressed(int beat) {
+        if (replay != null && game.isAddingBeat()) {
+            int recorded = replay.addedBeat();
+            if (recorded != 0) {
+                beat = recorded;
+            }
+        }
         passBeat(beat);
     }
 
@@ -186,27 +381,27 @@ public class FrontBackLink implements KeyListener {
      * The methods are self-explanatory.                                     *
      *************************************************************************/
     public String getCurrentPlayerName() {
-        return game.getCurrentPlayer().getName();
+        return state.getPlayerName();
     }
 
     public int getCurrentPoints() {
-        return game.getCurrentScore().getPoints();
+        return state.getPoints();
     }
 
     public int getRoundResult() {
-        return game.getRoundResult();
+        return state.getRoundResult();
     }
 
     public int getDifficulty() {
-        return game.getDifficulty();
+        return state.getDifficulty();
     }
 
     public boolean currentPlayerWillAddBeat() {
-        return game.currentPlayerWillAddBeat();
+        return state.currentPlayerWillAddBeat();
     }
 
     public int getNoBeats() {
-        return game.getBeats().size();
+        return state.getNoBeats();
     }
 
     /**
@@ -215,6 +410,126 @@ public class FrontBackLink implements KeyListener {
      * i.e. the fact that the timeframe has moved to the next beat.
      */
     public void tick() {
-        game.tick();
+        if (beats != null) {
+            submit(TICK, beats.getOpenFrame(gpp.getDrumInTick()));
+        } else {
+            submit(TICK, clockFrame());
+        }
+    }
+
+    // time of the audio clock (or the same time scale without the scheduler)
+    private long clockFrame() {
+        if (beats != null) {
+            return beats.getFramePosition();
+        }
+        return (long) (System.nanoTime() * (SoundMixer.SAMPLE_RATE / 1e9));
+    }
+
+    /**
+     * Passes a command to the game and runs the queued commands unless another
+     * thread is running them. The method does not wait for the command, the new
+     * state of the game is published once it is done.
+     * 
+     * @param command Encoded tick or beat.
+     * @param time Frame of the audio clock when the command was issued.
+     */
+    private void submit(int command, long time) {
+        if (writer == Thread.currentThread()) {
+            // issued by a running command, it is run after the commands queued before it
+            if (commands.offer(command, time) < 0) {
+                throw new IllegalStateException("Command queue full");
+            }
+            return;
+        }
+        // the rest of the queue is kept for the commands issued by the writer
+        while (commands.size() >= commands.capacity() - WRITER_RESERVE
+                || commands.offer(command, time) < 0) {
+            if (!drain()) {
+                LockSupport.parkNanos(FULL_QUEUE_WAIT); // another thread is running the commands
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Runs the queued commands unless another thread is running them. A command
+     * added while the writer is finishing is run by one of the two threads.
+     * 
+     * @return False if another thread is running the commands.
+     */
+    private boolean drain() {
+        while (!commands.isEmpty()) {
+            if (!writing.compareAndSet(false, true)) {
+                return false;
+            }
+            writer = Thread.currentThread();
+            try {
+                int command;
+                while ((command = commands.poll()) != 0) {
+                    execute(command, commands.getTime());
+                }
+            } finally {
+                writer = null;
+                writing.set(false);
+            }
+        }
+        return true;
+    }
+
+    // run one command and publish the new state of the game (writer only)
+    private void execute(int command, long time) {
+        Game current = game;
+        if ((command & 0xf) == TICK) {
+            if (logging) {
+                log.tick(time);
+            }
+            current.tick();
+            if (replay != null) {
+                queueReplayHits();
+            }
+        } else {
+            int beat = (command >> 4) & 0xff;
+            int accuracy = (command >> 12) - 1;
+            if (logging) {
+                log.beat(current.getCurrentPlayerIndex(), current.getCurrentPlayer().isComputer(),
+                         beat, accuracy, time);
+            }
+            if (accuracy == NO_ACCURACY) {
+                current.beat(beat);
+            } else {
+                current.beat(beat, accuracy);
+            }
+        }
+        if (logging) {
+            if (current.isRunning()) {
+                log.round(current, time);
+            } else {
+                log.endMatch(current, time);
+                log.force(); // a finished match survives a crash
+                logging = false;
+            }
+        }
+        state = current.takeSnapshot();
+        SpectatorFeed feed = spectators;
+        if (feed != null) {
+            feed.publish(current);
+        }
+    }
+
+    // queue the recorded hits of the timeframe that has just started (writer only)
+    private void queueReplayHits() {
+        try {
+            if (!replay.nextTick()) {
+                return;
+            }
+            // hits at the same distance from the tick as in the recorded match
+            long tickFrame = beats.getOpenFrame(gpp.getDrumInTick());
+            for (int beat; (beat = replay.nextHit()) != 0;) {
+                input.offer(beat, tickFrame + replay.getHitTime() - replay.getTickTime());
+            }
+        } catch (IOException e) {
+            System.out.println("Match log could not be read, replay stopped: " + e.getMessage());
+            replay = null;
+        }
     }
 }
@@ -11,13 +11,10 @@ import catchthebeat.ui.sprites.Sprite;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.GraphicsConfiguration;
-import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 
 /**
@@ -31,21 +28,33 @@ import javax.swing.JPanel;
  * 2) Once a game is started it creates a number of drums (beats) that move from
  *    left to right. But first result of previous play is displayed and then round
  *    counted down from 3 - 1 to give player time to prepare.
- * 3) Text anti-aliasing is turned ON before each repaint of messages
- * 4) When panel shows drums, it paints them to an offscreen image first and
- *    synchronizes its frames to achieve steady refresh rate and to avoid choppy animation
- * 5) Tick does not move but its reference is passed to each drum for detection
- *    of their boundary intersection
- * 6) If game is over panel waits for end of repainting then calls game creator.
- *    Last painted frame stays on the panel
+ * 3) Messages are anti-aliased text layers that are rendered once (per player
+ *    and result) and cached in TextLayerCache, a frame just draws the image.
+ *    The cache is cleared when a new game starts (the players may be others)
+ * 4) When panel shows drums, it paints them to a RenderSurface first. Drums
+ *    are moved in fixed steps timed by AnimationScheduler (missed steps are caught
+ *    up so the tempo does not depend on rendering) and painted between their
+ *    previous and current position to avoid choppy animation
+ * 5) Tick does not move. Drums enter and leave it at the times decided by
+ *    BeatScheduler (audio clock), the panel passes these events to the drums
+ *    which tick the game (on the game thread of the scheduler). Drums are
+ *    displayed at their position at the time of the clock. The list of drums
+ *    is only changed and read under the lock of the surface (animation, game
+ *    and event dispatch threads), the game itself is ticked without the lock
+ * 6) If game is over panel waits for end of repainting then calls game creator
+ *    (on the event dispatch thread). Last painted frame stays on the panel
  * 7) Drums are reinitialized before each round as the sequence is of different
- *    length (and properties)
+ *    length (and properties). Drum sprites are kept between rounds, only the drums
+ *    for new beats are created. A new round is started once all drums are updated
+ * 8) Whole panel is rendered only when the message changes, while drums are
+ *    moving only the parts they moved over are restored from the background,
+ *    re-rendered and repainted (dirty region)
  * 
  * 
  * @author Roman Velic
  * @version 2012.04
  */
-public class GameplayPanel extends JPanel implements Runnable{
+public class GameplayPanel extends JPanel implements Animation, BeatScheduler.Listener{
     
     public static final int PANEL_WIDTH = 800;
     public static final int PANEL_HEIGHT = 90;
@@ -53,34 +62,52 @@ public class GameplayPanel extends JPanel implements Runnable{
     private BufferedImage backgroundImage;
     private FrontBackLink gameLink;
     // the sprites
-    private GameDrums gameDrums; //all game drums
+    private GameDrums gameDrums = new GameDrums(); //all game drums
+    private volatile boolean nextRoundPending = false; // start new round after drums update
+    private volatile boolean gameEnding = false; // game is over once current round ends
     private int countDown; // countdown before new round
-    private int drumInTick; // which drum is currently in tick? (the last one in tick)
+    private volatile int drumInTick; // which drum is currently in tick? (the last one in tick)
+    
+    // message fonts and colours
+    private static final Font MESSAGE_FONT = new Font("Georgia", Font.BOLD + Font.ITALIC, 40);
+    private static final Font COUNTDOWN_FONT = new Font("Georgia", Font.BOLD + Font.ITALIC, 50);
+    private static final Color LOSE_COLOR = new Color(254,131,83);
+    private static final Color WIN_COLOR = new Color(207,221,52);
+    private static final Color PLAYER_COLOR = new Color(221,199,180);
+    private static final int MAX_TEXT_LAYERS = 32;
+    private TextLayerCache textLayers;
     
     private static final String[] tickName = {"Tick.png"};
     public static final int TICK_WIDTH = 50;
     private Sprite tickSprite = null;
     
-    private Thread theRunner = null; // run the animation
+    private AnimationScheduler theScheduler; // runs the animation
+    private BeatScheduler theBeats; // times the beats (ticks)
     // controls start / stop of animation / round
     private volatile boolean isRunning = false;
-    // sleep interval between "frames" (animation refresh operations ~50fps)
-    public static long FRAME_INTERVAL = 20L;
-    // start time of current animation cycle
-    private long theCycleStartTime = 0;
+    // updates left until countdown moves to next second
+    private int countDownSteps;
+    // countdown of the last rendered frame (message changes with it)
+    private int renderedCountDown = -1;
 
-    // game "off-screen" image
-    private BufferedImage theOffScreenImage = null ;
+    // game "off-screen" image (or active rendering canvas)
+    private RenderSurface theSurface;
+    // parts of the panel changed by the last frame
+    private DirtyRegion theDirtyRegion = new DirtyRegion(PANEL_WIDTH, PANEL_HEIGHT);
     private BannerPanel bannerPanel; // not used but could be to display more info
     private GameCreator gameCreator;
     
     
-    public GameplayPanel(ImageLoader imageLoader) {
+    public GameplayPanel(ImageLoader imageLoader, AnimationScheduler scheduler, BeatScheduler beats) {
         // init panel
         setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
         // use JPanel as canvas only
         setLayout(null) ;
         iLoader = imageLoader;
+        theScheduler = scheduler;
+        theBeats = beats;
+        theSurface = new RenderSurface(this, this, PANEL_WIDTH, PANEL_HEIGHT);
+        textLayers = new TextLayerCache(this, MAX_TEXT_LAYERS);
         // load background image
         backgroundImage = iLoader.getSprite("GameplayBgc.png");
         // load tickSprite
@@ -90,48 +117,70 @@ public class GameplayPanel extends JPanel implements Runnable{
     }
     
     
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        theSurface.attach(); // active rendering canvas (if switched on)
+    }
+    
+    @Override
+    public void removeNotify() {
+        theSurface.detach();
+        super.removeNotify();
+    }
+    
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        if (theOffScreenImage != null){
-            // draw off screen image on JPanel
-            g.drawImage(theOffScreenImage, 0, 0, this);   
-        } 
-        // just paint the background when the panel loads
-        else {
+        // draw off screen image on JPanel
+        if (!theSurface.paintFrame(g)){
+            // just paint the background when the panel loads
             g.drawImage(backgroundImage, 0, 0, this);
         }
     }
     
         
     public void startRound(boolean hasResult){        
-        if (hasResult){
-           countDown = 6; // has message from previous round
-        } else {
-           countDown = 5; // at the start of new game
-        }       
-        initDrums(); // reload drums for each round
-        if (theRunner == null || ! isRunning) {
-            theRunner = new Thread(this) ;
-            theRunner.start();
+        synchronized (theSurface){ // first round is started on the event dispatch thread
+            if (hasResult){
+               countDown = 6; // has message from previous round
+            } else {
+               countDown = 5; // at the start of new game
+               textLayers.clear(); // layers of the previous game's players
+            }       
+            countDownSteps = AnimationScheduler.STEPS_PER_SECOND;
+            theBeats.endRound(); // no ticks until the countdown is over
+            nextRoundPending = false;
+            gameEnding = false;
+            initDrums(); // reload drums for each round
+            // render messages of the round before the countdown starts
+            if (hasResult){
+                resultLayer();
+            }
+            playerLayer();
+            isRunning = true;
         }
-        isRunning = true;
+        theScheduler.start(this);
         bannerPanel.updateInfo(gameLink.getCurrentPlayerName(), gameLink.getCurrentPoints());
     }
     
     public void nextRound() {
-        startRound(true); // there is a previous state
-        
+        // drums are being updated, don't reset them now
+        nextRoundPending = true;
+        theBeats.endRound();
     }
     
     // drum in tick will end the round/game once it is out of tick
     public void endRound(boolean endGame) {
-        gameDrums.get(drumInTick).setEndsRound(true);
-        gameDrums.get(drumInTick).setEndsGame(endGame);
+        GameDrumSprite drum = drum(drumInTick);
+        drum.setEndsRound(true);
+        drum.setEndsGame(endGame);
+        gameEnding = gameEnding || endGame;
     }
     
     public void gameOver() {
         isRunning = false;
+        theBeats.endRound();
     }
     
     // drum that ticks invokes this method
@@ -142,134 +191,207 @@ public class GameplayPanel extends JPanel implements Runnable{
         }
     }
     
+    // drum entered the tick (game thread of beat scheduler)
+    @Override
+    public void beatWindowOpened(int drumNo){
+        drum(drumNo).enterTick();
+    }
+    
+    // drum left the tick (game thread of beat scheduler)
+    @Override
+    public void beatWindowClosed(int drumNo){
+        drum(drumNo).leaveTick();
+    }
+    
+    // drum of the sequence (list of drums is changed under the surface lock)
+    private GameDrumSprite drum(int drumNo){
+        synchronized (theSurface){
+            return gameDrums.get(drumNo);
+        }
+    }
+    
+    // the last drum that entered the tick
+    public int getDrumInTick(){
+        return drumInTick;
+    }
+    
     // set correct beat and whether drum was played correctly
     // this comes from FrontBackLink
     public void beat(int beat, boolean correct){
-        gameDrums.get(drumInTick).setCorrectBeat(beat);
-        gameDrums.get(drumInTick).played(correct);
+        GameDrumSprite drum = drum(drumInTick);
+        drum.setCorrectBeat(beat);
+        drum.played(correct);
     }
     
     // reload game drums (different for each round/player)
     public void initDrums(){
-        gameDrums = new GameDrums(); // reset
-        for (int i = 0 ; i < gameLink.getNoBeats(); i++){
-            gameDrums.add(new GameDrumSprite(PANEL_WIDTH, PANEL_HEIGHT,
-                iLoader, this, tickSprite, gameLink.getDifficulty(), i, false)) ;
-        }
-        // last (new) drum added if player can add one
-        if (gameLink.currentPlayerWillAddBeat()) {
-            gameDrums.add(new GameDrumSprite(PANEL_WIDTH, PANEL_HEIGHT,
-                iLoader, this, tickSprite, gameLink.getDifficulty(), gameDrums.size(), true)) ;
+        synchronized (theSurface){ // drums are used by the animation and game threads
+            int difficulty = gameLink.getDifficulty();
+            int noBeats = gameLink.getNoBeats();
+            // last (new) drum added if player can add one
+            boolean addsBeat = gameLink.currentPlayerWillAddBeat();
+            int noDrums = addsBeat ? noBeats + 1 : noBeats;
+            // reuse drums from previous round, create only missing ones
+            gameDrums.truncate(noDrums);
+            while (gameDrums.size() < noDrums){
+                GameDrumSprite gs = gameDrums.spareDrum();
+                if (gs == null){
+                    gs = new GameDrumSprite(PANEL_WIDTH, PANEL_HEIGHT,
+                        iLoader, this, tickSprite, difficulty, gameDrums.size(), false);
+                }
+                gameDrums.add(gs);
+            }
+            // drums are reset once they reach the panel
+            gameDrums.newRound(difficulty, addsBeat);
         }
-        gameDrums.get(gameDrums.size()-1).setIsLast(true);
     }
 
-    // update round state
-    // render round state
-    // sleep
+    // update round state (called by scheduler for each step)
     @Override
-    public void run(){       
-        while(isRunning){
-            theCycleStartTime = System.nanoTime() / 1000000;
+    public void updateAnimation(){
+        synchronized (theSurface){ // surface may render on the event dispatch thread
             roundUpdate() ; // state of round (gameDrums)
-            roundRender() ; // round rendering (what will be painted)
-            repaint() ; // schedule repaint request on swing event queue
-            synchFramerate() ; // try to achieve steady refresh rate
         }
-        //once game is over, finish repainting then run creator
-        gameCreator.restart();
     }
     
-    //updates positions and display of game drums
-    private void roundUpdate(){
-        gameDrums.updateSprites();
+    // render round state (called by scheduler each frame)
+    @Override
+    public void renderAnimation(float alpha){
+        synchronized (theSurface){
+            // buffer was lost, render again (the frame is dropped after the last try)
+            for (int tries = 0; tries < RenderSurface.MAX_RENDER_TRIES; tries++){
+                if (roundRender(alpha)){ // round rendering (what will be painted)
+                    break;
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void showAnimation(){
+        if (!theSurface.showsFrames()){
+            // schedule repaint request on swing event queue (changed parts only)
+            theDirtyRegion.repaint(this);
+        }
+    }
+    
+    @Override
+    public boolean isAnimating(){
+        return isRunning;
+    }
+    
+    //once game is over and repainting finished run creator
+    @Override
+    public void animationStopped(){
+        Runnable doRestart = new Runnable() {
+            public void run() {
+                gameCreator.restart();
+            }
+        };
+        SwingUtilities.invokeLater(doRestart);
+    }
+    
+    //updates positions and display of game drums, counts down before the round
+    void roundUpdate(){
+        if (countDown > 0){
+            countDownSteps--;
+            if (countDownSteps == 0){
+                countDown--;
+                countDownSteps = AnimationScheduler.STEPS_PER_SECOND;
+                if (countDown == 0){
+                    startBeats(); // drums start moving now
+                }
+            }
+            return;
+        }
+        gameDrums.updateSprites(theBeats.getRoundSteps());
+        if (nextRoundPending){
+            nextRoundPending = false;
+            if (gameEnding){
+                gameOver(); // another drum ended the game in this update
+            } else {
+                startRound(true); // there is a previous state
+            }
+        }
     }
 
-    private void roundRender(){
-        // create off screen image if necessary
-        if (theOffScreenImage == null){
-            GraphicsConfiguration gc = getGraphicsConfiguration();
-            theOffScreenImage = gc.createCompatibleImage(PANEL_WIDTH, PANEL_HEIGHT);
+    // start timing of the beats by the beat scheduler
+    private void startBeats(){
+        theBeats.startRound(this, gameDrums.size(), gameDrums.getOpenDistance(tickSprite),
+                gameDrums.getCloseDistance(tickSprite), gameDrums.getSpacing(), gameDrums.getStep());
+    }
+    
+    // false if the frame was lost and has to be rendered again
+    boolean roundRender(float alpha){
+        if (countDown != renderedCountDown){
+            theSurface.invalidate(); // message changed, render whole panel
+            renderedCountDown = countDown;
+        }
+        Graphics g = theSurface.beginFrame();
+        theDirtyRegion.clear();
+        if (theSurface.isFullFrame()){
+            theDirtyRegion.addAll();
+            roundDraw(g, alpha);
+        } else if (countDown == 0){
+            // drums are moving, render only parts they moved over
+            gameDrums.addDirtyBounds(theDirtyRegion, alpha);
+            for (int i = 0 ; i < theDirtyRegion.size() ; i++){
+                g.setClip(theDirtyRegion.get(i));
+                roundDraw(g, alpha);
+            }
         }
-        Graphics g = theOffScreenImage.getGraphics();
+        return theSurface.endFrame();
+    }
+    
+    // draw the round (within clip of the graphics)
+    private void roundDraw(Graphics g, float alpha){
         // redraw background (erasing previous content)
         g.drawImage(backgroundImage, 0, 0, null);
-        // turn on anti-aliasing for text
-        if (countDown > 0) {
-            Graphics2D g2 = (Graphics2D) g;
-            RenderingHints rh = g2.getRenderingHints();
-            rh.put (RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2.setRenderingHints(rh);
-        }
         // new round displays results of previous round first (if any)
         if (countDown == 6){
-            Font playerFont = new Font("Georgia", Font.BOLD + Font.ITALIC, 40);
-            FontMetrics fm = g.getFontMetrics(playerFont);
-            g.setFont(playerFont);
-            String s;
-            if (gameLink.getRoundResult() < 0){
-                g.setColor(new Color(254,131,83));
-                s = "Timeout! You lose!";
-            } else if (gameLink.getRoundResult() == 0) {
-                g.setColor(new Color(254,131,83));
-                s = "Wrong! You lose!";
-            } else {
-                g.setColor(new Color(207,221,52));
-                s = "That's right!";
-            }
-            g.drawString(s, (PANEL_WIDTH - fm.stringWidth(s))/2, (PANEL_HEIGHT - fm.getHeight()) / 2 + fm.getAscent());
-            countDown--;
+            drawMessage(g, resultLayer());
         }
         // round appears to start here by displaying player's name
         else if (countDown == 5){
-            Font playerFont = new Font("Georgia", Font.BOLD + Font.ITALIC, 40);
-            FontMetrics fm = g.getFontMetrics(playerFont);
-            g.setFont(playerFont);
-            g.setColor(new Color(221,199,180));
-            String s = gameLink.getCurrentPlayerName();
-            g.drawString(s, (PANEL_WIDTH - fm.stringWidth(s))/2, (PANEL_HEIGHT - fm.getHeight()) / 2 + fm.getAscent());
-            countDown--;
+            drawMessage(g, playerLayer());
         }
         // countdown for new round
         else if (countDown > 1){
-            Font playerFont = new Font("Georgia", Font.BOLD + Font.ITALIC, 50);
-            FontMetrics fm = g.getFontMetrics(playerFont);
-            g.setFont(playerFont);
-            g.setColor(new Color(207,221,52));
             String s = countDown-1 + ""; // countdown number: 3,2,1
-            g.drawString(s, (PANEL_WIDTH - fm.stringWidth(s))/2, (PANEL_HEIGHT - fm.getHeight()) / 2 + fm.getAscent());
-            countDown--;
+            drawMessage(g, textLayers.getLayer(s, COUNTDOWN_FONT, WIN_COLOR));
         }
         // wait one more second after countdown (0)
         else if (countDown == 1){
-            countDown--;
+            // background only
         }
         // round is running (game drums are moving)
         else {
-             gameDrums.drawSprites(g);
+             gameDrums.drawSprites(g, alpha);
              tickSprite.drawSprite(g);  
         }            
-        g.dispose();
     }
         
-    // active control over refresh rate
-    private void synchFramerate() {
-        try {
-            // we only need need to refresh once every second during countdown
-            if (countDown > 0){
-                Thread.sleep(1000);
-            } else {
-                // cycleEndTime is calculated ideal time at which
-                // we want to end current animation cycle
-                long cycleEndTime = theCycleStartTime + FRAME_INTERVAL;
-                long difference = cycleEndTime - /* now */ System.nanoTime()/1000000 ;
-                Thread.sleep(Math.max(0, difference));
-            }
-        } catch(InterruptedException ie){
-            ie.printStackTrace() ;
+    // message with result of previous round
+    private BufferedImage resultLayer(){
+        if (gameLink.getRoundResult() < 0){
+            return textLayers.getLayer("Timeout! You lose!", MESSAGE_FONT, LOSE_COLOR);
+        } else if (gameLink.getRoundResult() == 0) {
+            return textLayers.getLayer("Wrong! You lose!", MESSAGE_FONT, LOSE_COLOR);
+        } else {
+            return textLayers.getLayer("That's right!", MESSAGE_FONT, WIN_COLOR);
         }
     }
     
+    // message with name of current player
+    private BufferedImage playerLayer(){
+        return textLayers.getLayer(gameLink.getCurrentPlayerName(), MESSAGE_FONT, PLAYER_COLOR);
+    }
+    
+    // draw message in the center of the panel
+    private void drawMessage(Graphics g, BufferedImage layer){
+        g.drawImage(layer, (PANEL_WIDTH - layer.getWidth())/2, (PANEL_HEIGHT - layer.getHeight()) / 2, null);
+    }
+        
     public void setBannerPanel(BannerPanel bp) {
         bannerPanel = bp;
     }
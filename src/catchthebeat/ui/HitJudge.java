@@ -0,0 +1,99 @@
+package catchthebeat.ui;
+
+import catchthebeat.game.Score;
+
+/**
+ * Class HitJudge
+ *
+ * This class judges the timing of a hit against the beat schedule. The beat is
+ * on time when the drum is in the middle of the tick (middle of its beat
+ * window, between the drum entering and leaving the tick), a hit is PERFECT
+ * or GOOD if it is at most the given number of milliseconds before or after
+ * the beat, otherwise it is LATE (still within the window).
+ *
+ * The windows are the same at every tempo. The beat window is 160 pixels of
+ * the drum movement: 1.6 s on easy, 0.8 s on medium and 0.53 s on hard
+ * (server rooms: one tick period), so even on hard the GOOD window (±100 ms)
+ * is well inside it and an early hit is not taken by the previous window.
+ *
+ * The windows and the latency of the input device (time between the physical
+ * keypress and the key event, subtracted from the time of each hit) can be set
+ * by system properties catchthebeat.perfectWindow, catchthebeat.goodWindow
+ * and catchthebeat.inputLatency (all in milliseconds).
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class HitJudge {
+
+    public static final int DEFAULT_PERFECT_WINDOW = 40;
+    public static final int DEFAULT_GOOD_WINDOW = 100;
+    private static final double FRAMES_PER_MILLI = SoundMixer.SAMPLE_RATE / 1000.0;
+    private long perfectFrames;
+    private long goodFrames;
+    private long latencyFrames;
+
+    /**
+     * Constructor reads the windows and latency from the system properties
+     * (or uses the defaults).
+     */
+    public HitJudge() {
+        this(Integer.getInteger("catchthebeat.perfectWindow", DEFAULT_PERFECT_WINDOW),
+             Integer.getInteger("catchthebeat.goodWindow", DEFAULT_GOOD_WINDOW),
+             Integer.getInteger("catchthebeat.inputLatency", 0));
+    }
+
+    /**
+     * @param perfectMillis Largest difference from the beat of a perfect hit.
+     * @param goodMillis Largest difference from the beat of a good hit.
+     * @param latencyMillis Latency of the input device.
+     */
+    public HitJudge(int perfectMillis, int goodMillis, int latencyMillis) {
+        perfectFrames = toFrames(perfectMillis);
+        goodFrames = toFrames(goodMillis);
+        latencyFrames = toFrames(latencyMillis);
+    }
+
+    /**
+     * Sets the latency of the input device (e.g. after calibration).
+     *
+     * @param latencyMillis Time between the keypress and the key event.
+     */
+    public void setLatency(int latencyMillis) {
+        latencyFrames = toFrames(latencyMillis);
+    }
+
+    /**
+     * @param millis Time in milliseconds.
+     * @return Number of frames of the audio clock.
+     */
+    public static long toFrames(long millis) {
+        return Math.round(millis * FRAMES_PER_MILLI);
+    }
+
+    /**
+     * Converts the frame of a key event to the frame of the keypress.
+     *
+     * @param eventFrame Frame of the audio clock when the key event arrived.
+     * @return Frame of the keypress.
+     */
+    public long hitFrame(long eventFrame) {
+        return eventFrame - latencyFrames;
+    }
+
+    /**
+     * @param hitFrame Frame of the audio clock when the drum was hit.
+     * @param beatFrame Frame of the middle of the beat window.
+     * @return Score.PERFECT, Score.GOOD or Score.LATE.
+     */
+    public int judge(long hitFrame, long beatFrame) {
+        long difference = Math.abs(hitFrame - beatFrame); // early or late
+        if (difference <= perfectFrames) {
+            return Score.PERFECT;
+        } else if (difference <= goodFrames) {
+            return Score.GOOD;
+        } else {
+            return Score.LATE;
+        }
+    }
+}
@@ -5,9 +5,15 @@
 
 package catchthebeat.ui;
 
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
 import java.awt.image.BufferedImage;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import javax.imageio.ImageIO;
 
 
@@ -15,8 +21,13 @@ import javax.imageio.ImageIO;
  * Class ImageLoader
  * 
  * This class loads image files as buffered images and cashes them for future reuse
- * in sprites.
+ * in sprites. Lists of images (sprite sequences) are cached as well so sprites
+ * using the same images share one list.
  * 
+ * 1) All images of the game (ATLAS_IMAGES) are loaded when the first one is
+ *    needed and packed into a TextureAtlas compatible with the screen, sprites
+ *    get its sub-images, so drawing them needs no conversion
+ * 2) Any other image is loaded on its own and converted the same way
  * 
  * @author Roman Velic
  * @version 2012.04
@@ -25,22 +36,82 @@ import javax.imageio.ImageIO;
  */
 public class ImageLoader {
     public static final String  IMAGES_DIR = "../images/";
+    public static final String[] ATLAS_IMAGES = {"BannerBgc.png",
+                                                 "GameDrum_1.png",
+                                                 "GameDrum_2.png",
+                                                 "GameDrum_3.png",
+                                                 "GameDrum_4.png",
+                                                 "GameDrum_correct.png",
+                                                 "GameDrum_new.png",
+                                                 "GameDrum_unknown.png",
+                                                 "GameDrum_wrong.png",
+                                                 "GameplayBgc.png",
+                                                 "PlayerBgc.png",
+                                                 "PlayerDrum.png",
+                                                 "Tick.png"};
     private HashMap<String,BufferedImage> sprites; // cache names
+    private HashMap<List<String>,List<BufferedImage>> sequences; // cache sprite sequences
+    private TextureAtlas atlas; // packed when the first image is needed
     
     public ImageLoader(){
         sprites = new HashMap<String,BufferedImage>();
+        sequences = new HashMap<List<String>,List<BufferedImage>>();
     }
     
     public BufferedImage getSprite(String fileName){
         BufferedImage image = sprites.get(fileName);
         if (image == null){
-            image = loadImage(fileName);
+            image = getAtlas().getImage(fileName);
+            if (image == null){ // not an image of the game, convert it alone
+                image = new TextureAtlas(getGraphicsConfiguration(),
+                        Collections.singletonMap(fileName, loadImage(fileName))).getImage(fileName);
+            }
             sprites.put(fileName, image); // cache image
         }
         return image;
        
     }
     
+    // atlas of all the images of the game
+    public TextureAtlas getAtlas(){
+        if (atlas == null){
+            HashMap<String,BufferedImage> loaded = new HashMap<String,BufferedImage>();
+            for (int i = 0; i < ATLAS_IMAGES.length; i++){
+                loaded.put(ATLAS_IMAGES[i], loadImage(ATLAS_IMAGES[i]));
+            }
+            atlas = new TextureAtlas(getGraphicsConfiguration(), loaded);
+        }
+        return atlas;
+    }
+    
+    // configuration of the screen (null if there is no screen)
+    private static GraphicsConfiguration getGraphicsConfiguration(){
+        if (GraphicsEnvironment.isHeadless()){
+            return null;
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+    }
+    
+    // images for given names (images that can't be loaded are left out)
+    // the returned list is shared and must not be modified
+    public List<BufferedImage> getSprites(String[] fileNames){
+        List<String> key = Arrays.asList(fileNames);
+        List<BufferedImage> images = sequences.get(key);
+        if (images == null){
+            ArrayList<BufferedImage> loaded = new ArrayList<BufferedImage>(fileNames.length);
+            for (int i = 0; i < fileNames.length; i++){
+                BufferedImage image = getSprite(fileNames[i]);
+                if (image != null){
+                    loaded.add(image);
+                }
+            }
+            images = loaded;
+            sequences.put(key, images); // cache sequence
+        }
+        return images;
+    }
+    
     private BufferedImage loadImage(String fileName) {
         URL url = null;
         try { 
@@ -0,0 +1,73 @@
+package catchthebeat.ui;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class InputQueue
+ *
+ * This class is a lock-free ring buffer that passes the drums hit by the player
+ * from the key listener (event dispatch thread) to the thread that runs
+ * the game (game thread of the beat scheduler).
+ *
+ * Each entry holds the drum and the frame of the audio clock when it was hit.
+ * There is exactly one producer and one consumer thread, so the entries are
+ * published by ordered writes of the head/tail counters and no locking or
+ * allocation is needed. If the buffer is full, the hit is dropped.
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class InputQueue {
+
+    private final int mask;
+    private final int[] beats;
+    private final long[] frames;
+    private final AtomicLong head = new AtomicLong(); // next entry to read
+    private final AtomicLong tail = new AtomicLong(); // next entry to write
+
+    /**
+     * @param capacity Number of entries (rounded up to a power of two).
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mask = size - 1;
+        beats = new int[size];
+        frames = new long[size];
+    }
+
+    /**
+     * Adds a hit (producer thread only).
+     *
+     * @param beat Numerical representation of the drum hit by the player.
+     * @param frame Frame of the audio clock when the drum was hit.
+     * @return False if the queue is full (the hit is dropped).
+     */
+    public boolean offer(int beat, long frame) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            return false;
+        }
+        int i = (int) t & mask;
+        beats[i] = beat;
+        frames[i] = frame;
+        tail.lazySet(t + 1); // publish the entry
+        return true;
+    }
+
+    // The following methods are called by the consumer thread only.
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    public int peekBeat() {
+        return beats[(int) head.get() & mask];
+    }
+
+    public long peekFrame() {
+        return frames[(int) head.get() & mask];
+    }
+
+    public void remove() {
+        head.lazySet(head.get() + 1);
+    }
+}
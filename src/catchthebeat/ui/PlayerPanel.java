@@ -8,8 +8,8 @@ import catchthebeat.ui.sprites.PlayerDrums;
 import catchthebeat.ui.sprites.PlayerDrumSprite;
 import java.awt.Dimension;
 import java.awt.Graphics;
-import java.awt.GraphicsConfiguration;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.JPanel;
 
 /**
@@ -22,14 +22,19 @@ import javax.swing.JPanel;
  * 2) Once a game is started it creates 4 drums that are identical sprites
  * 3) Sprites are positioned in center with the same space between them. They go
  *    off the panel display a number of pixels to make more graphical sense when animated
- * 4) When panel shows drums, it paints them to an offscreen image first and
- *    synchronizes its frames to achieve steady refresh rate and to avoid choppy animation
- *    even though it is a vertical movement only
+ * 4) When panel shows drums, it paints them to a RenderSurface first. Drums are
+ *    moved in fixed steps timed by AnimationScheduler and painted between their
+ *    previous and current position to avoid choppy animation even though it is
+ *    a vertical movement only
+ * 5) Played drums are only marked by the thread that reports them (key listener
+ *    or game), drums start moving with the next update of the animation
+ * 6) Only the parts of the panel where drums moved are restored from the
+ *    background, re-rendered and repainted (dirty region)
  * 
  * @author Roman Velic
  * @version 2012.04
  */
-public class PlayerPanel extends JPanel implements Runnable {
+public class PlayerPanel extends JPanel implements Animation {
     
     public static final int PANEL_WIDTH = 800;
     public static final int PANEL_HEIGHT = 480;
@@ -43,19 +48,21 @@ public class PlayerPanel extends JPanel implements Runnable {
     // margin between two drums
     private static final int PLAYER_DRUM_MARGIN = 8;
     
-    private Thread theRunner = null ; // run the animation
+    private AnimationScheduler theScheduler; // runs the animation
     // controls start / stop of animation (any of the drums moving)
-    private volatile boolean isRunning = false ;
-    // sleep interval between "frames" (animation refresh operations ~50fps)
-    public static long FRAME_INTERVAL = 20L ;
-    // start time of current animation cycle
-    private long theCycleStartTime = 0;
-    // game "off-screen" image
-    private BufferedImage theOffScreenImage = null ;
+    private boolean isRunning = false ;
+    // drums played since last update (bit per drum)
+    private final AtomicInteger playedDrums = new AtomicInteger();
+    // game "off-screen" image (or active rendering canvas)
+    private RenderSurface theSurface;
+    // parts of the panel changed by the last frame
+    private DirtyRegion theDirtyRegion = new DirtyRegion(PANEL_WIDTH, PANEL_HEIGHT);
     
       
-    public PlayerPanel(ImageLoader imageLoader) {
+    public PlayerPanel(ImageLoader imageLoader, AnimationScheduler scheduler) {
         iLoader = imageLoader;
+        theScheduler = scheduler;
+        theSurface = new RenderSurface(this, this, PANEL_WIDTH, PANEL_HEIGHT);
         
         // init panel
         setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
@@ -64,31 +71,39 @@ public class PlayerPanel extends JPanel implements Runnable {
         // setOpaque(true);
         // load background image
         backgroundImage = iLoader.getSprite("PlayerBgc.png");
+        initDrums();
+    }
+    
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        theSurface.attach(); // active rendering canvas (if switched on)
+    }
+    
+    @Override
+    public void removeNotify() {
+        theSurface.detach();
+        super.removeNotify();
     }
     
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g); 
-        if (theOffScreenImage != null){
-            // draw off screen image on JPanel
-            g.drawImage(theOffScreenImage, 0, 0, this);
-        } 
-        // just paint the background and drums when the panel loads
-        else {
+        // draw off screen image on JPanel
+        // or just paint the background and drums when the panel loads
+        if (!theSurface.paintFrame(g)){
             g.drawImage(backgroundImage, 0, 0, this);
-            initDrums();
             playerDrums.drawSprites(g);
         }
     }
     
     public void drumPlayed(int drumNo){
-        initDrums(); // init drums start animating
-        playerDrums.get(drumNo).setIsPlaying(true);       
-        if (theRunner == null || ! isRunning) {
-            theRunner = new Thread(this) ;
-            theRunner.start();
-        }
-        isRunning = true;
+        // drum starts animating with next update
+        int played;
+        do {
+            played = playedDrums.get();
+        } while (!playedDrums.compareAndSet(played, played | (1 << drumNo)));
+        theScheduler.start(this);
     }
     
     public void initDrums() {
@@ -107,20 +122,54 @@ public class PlayerPanel extends JPanel implements Runnable {
         }
     }
 
+    // called by scheduler for each step
     @Override
-    public void run(){
-        while(isRunning){            
-            theCycleStartTime = System.nanoTime() / 1000000;
+    public void updateAnimation(){
+        synchronized (theSurface){ // surface may render on the event dispatch thread
             drumsUpdate();
-            drumsRender() ; // re-render drums
-            repaint() ; // schedule repaint request on swing event queue
-            synchFramerate() ; // synch refresh rate
         }
-        // end of animation thread
     }
-
+    
+    // called by scheduler each frame
+    @Override
+    public void renderAnimation(float alpha){
+        synchronized (theSurface){
+            // buffer was lost, render again (the frame is dropped after the last try)
+            for (int tries = 0; tries < RenderSurface.MAX_RENDER_TRIES; tries++){
+                if (drumsRender(alpha)){ // re-render drums
+                    break;
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void showAnimation(){
+        if (!theSurface.showsFrames()){
+            // schedule repaint request on swing event queue (changed parts only)
+            theDirtyRegion.repaint(this);
+        }
+    }
+    
+    // playing drums or drums that will start playing
+    @Override
+    public boolean isAnimating(){
+        return isRunning || playedDrums.get() != 0;
+    }
+    
+    @Override
+    public void animationStopped(){
+        // end of animation
+    }
 
     private void drumsUpdate(){
+        // start drums played since last update
+        int played = playedDrums.getAndSet(0);
+        for (int i = 0 ; i < playerDrums.size() ; i++) {
+            if ((played & (1 << i)) != 0){
+                playerDrums.get(i).setIsPlaying(true);
+            }
+        }
         // update state of drums
         int drumsPlaying = 0;
         for (int i = 0 ; i < playerDrums.size() ; i++) {
@@ -131,36 +180,27 @@ public class PlayerPanel extends JPanel implements Runnable {
             }
         }       
         playerDrums.updateSprites();
-        //if no more drums are animating, stop the thread
-        if (drumsPlaying == 0) {        
-            isRunning = false;
-        }    
+        //if no more drums are animating, stop the animation
+        isRunning = drumsPlaying > 0;
     }
 
-    private void drumsRender(){
-        // create off screen image if necessary
-        if (theOffScreenImage == null){
-            GraphicsConfiguration gc = getGraphicsConfiguration();
-            theOffScreenImage = gc.createCompatibleImage(PANEL_WIDTH, PANEL_HEIGHT);
+    // false if the frame was lost and has to be rendered again
+    private boolean drumsRender(float alpha){
+        Graphics g = theSurface.beginFrame();
+        theDirtyRegion.clear();
+        if (theSurface.isFullFrame()){
+            theDirtyRegion.addAll();
+        } else {
+            playerDrums.addDirtyBounds(theDirtyRegion, alpha);
         }
-        Graphics g = theOffScreenImage.getGraphics();
-        // erase previous image by painting the background
-        g.drawImage(backgroundImage, 0, 0, null);
-        playerDrums.drawSprites(g);
-        g.dispose();
-    }
-    
-        
-    // trying to achieve steady animation
-    // not very much needed for vertical movement but helps
-    private void synchFramerate() {
-        long cycleEndTime = theCycleStartTime + FRAME_INTERVAL;
-        long difference = cycleEndTime - /* now */ System.nanoTime()/1000000 ;
-        try {
-            Thread.sleep(Math.max(0, difference));
-        } catch(InterruptedException ie){
-            ie.printStackTrace() ;
+        for (int i = 0 ; i < theDirtyRegion.size() ; i++){
+            g.setClip(theDirtyRegion.get(i));
+            // erase previous image by painting the background
+            g.drawImage(backgroundImage, 0, 0, null);
+            playerDrums.drawSprites(g, alpha);
         }
+        return theSurface.endFrame();
     }
+    
 }
 // Credits: Roman Velic
\ No newline at end of file
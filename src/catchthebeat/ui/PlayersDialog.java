@@ -6,7 +6,10 @@
 package catchthebeat.ui;
 
 import catchthebeat.GameCreator;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
 /**
  * Class PlayersDialog
@@ -17,6 +20,8 @@ import javax.swing.JTextField;
  * 2) Edits are validated and saved by GameCreator
  * 3) If user leaves blank one ore more fields these will be replaced by 
  *    default name e.g. Player 7 
+ * 4) Typed name is completed by the first registered player whose name
+ *    starts with it (completed part is selected, so typing goes on)
  * 
  * @author Roman Velic
  * @version 2012.04
@@ -36,8 +41,48 @@ public class PlayersDialog extends javax.swing.JDialog {
         for (int playerNo = 0; playerNo < players.length && playerNo < pfields.length; playerNo++) {
             pfields[playerNo].setText(players[playerNo]);
         }
+        for (JTextField field : pfields) {
+            field.addKeyListener(new NameCompletion(field));
+        }
         gameCreator = gmc;
     }
+    
+    // Nested class completing the name typed into the field
+    private class NameCompletion extends KeyAdapter {
+        
+        private JTextField field;
+        
+        NameCompletion(JTextField field) {
+            this.field = field;
+        }
+        
+        @Override
+        public void keyTyped(final KeyEvent e) {
+            if (Character.isISOControl(e.getKeyChar())) {
+                return; // backspace, delete, enter...
+            }
+            // complete once the typed character is in the field
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    complete();
+                }
+            });
+        }
+        
+        private void complete() {
+            String typed = field.getText();
+            if (typed.length() == 0 || field.getCaretPosition() != typed.length()) {
+                return; // completes only at the end of the name
+            }
+            for (String name : gameCreator.findPlayers(typed)) {
+                if (name.length() > typed.length()) {
+                    field.setText(typed + name.substring(typed.length()));
+                    field.select(typed.length(), name.length());
+                    return;
+                }
+            }
+        }
+    }
 
     /** This method is called from within the constructor to
      * initialize the form.
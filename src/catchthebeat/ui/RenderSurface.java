@@ -0,0 +1,211 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat.ui;
+
+import java.awt.Canvas;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import javax.swing.JComponent;
+
+/**
+ * Class RenderSurface
+ *
+ * This class holds the surface an animated panel renders its frames to.
+ *
+ * 1) By default (passive rendering) frames are rendered to a back buffer that
+ *    is painted by the panel when Swing repaints it. The back buffer is a
+ *    VolatileImage when it can be accelerated, otherwise a compatible
+ *    BufferedImage (as before)
+ * 2) If active rendering is switched on (-Dcatchthebeat.activeRendering=true)
+ *    the surface puts a Canvas over the panel and frames are shown straight
+ *    away by page flipping of its BufferStrategy, i.e. no repaint is needed
+ * 3) Active rendering falls back to passive rendering if the buffer strategy
+ *    can't be accelerated
+ * 4) Rendering of a frame and updates of the animation state are synchronized
+ *    on the surface, so the canvas can render a frame on its own (on the event
+ *    dispatch thread) when the window needs repainting
+ * 5) Back buffer of passive rendering keeps the previous frame, so only its
+ *    changed parts need rendering. A full frame is needed when the buffer is new,
+ *    its contents were lost, the owner invalidated it or rendering is active
+ * 6) If contents of the buffers are lost or restored while a frame is rendered
+ *    or shown, endFrame returns false and the frame is rendered again (whole).
+ *    After MAX_RENDER_TRIES the frame is dropped (the surface lock is not held
+ *    any longer), the next frame is rendered whole
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class RenderSurface {
+
+    public static final boolean ACTIVE_RENDERING = Boolean.getBoolean("catchthebeat.activeRendering");
+    public static final int MAX_RENDER_TRIES = 2;
+    private static final int NUM_BUFFERS = 2;
+
+    private final JComponent theOwner;
+    private final Animation theAnimation;
+    private final int theWidth, theHeight;
+
+    // active rendering (null if rendering is passive)
+    private Canvas theCanvas;
+    private volatile BufferStrategy theStrategy;
+    // passive rendering back buffer (one of them)
+    private VolatileImage theVolatileImage;
+    private BufferedImage theBufferedImage;
+    private boolean isAccelerated = true; // try volatile image first
+    // next frame has to be rendered whole
+    private boolean isFullFrame = true;
+
+    // graphics of the frame that is being rendered
+    private Graphics theGraphics;
+
+    public RenderSurface(JComponent owner, Animation animation, int w, int h) {
+        theOwner = owner;
+        theAnimation = animation;
+        theWidth = w;
+        theHeight = h;
+    }
+
+    // called by owner's addNotify (on event dispatch thread)
+    public void attach() {
+        if (!ACTIVE_RENDERING || theCanvas != null) {
+            return;
+        }
+        Canvas canvas = new Canvas() {
+            @Override
+            public void paint(Graphics g) {
+                // window needs repainting, render current state
+                synchronized (RenderSurface.this) {
+                    theAnimation.renderAnimation(1f);
+                }
+            }
+            @Override
+            public void update(Graphics g) {
+                paint(g);
+            }
+        };
+        canvas.setFocusable(false);
+        canvas.setBounds(0, 0, theWidth, theHeight);
+        theOwner.add(canvas);
+        try {
+            canvas.createBufferStrategy(NUM_BUFFERS);
+            BufferStrategy strategy = canvas.getBufferStrategy();
+            if (strategy.getCapabilities().getBackBufferCapabilities().isAccelerated()) {
+                theCanvas = canvas;
+                theStrategy = strategy;
+                return;
+            }
+            strategy.dispose();
+        } catch (Exception e) {
+            System.out.println("Active rendering not available: " + e.getMessage());
+        }
+        // fall back to passive rendering
+        theOwner.remove(canvas);
+    }
+
+    // called by owner's removeNotify (on event dispatch thread)
+    public synchronized void detach() {
+        if (theCanvas != null) {
+            theStrategy.dispose();
+            theStrategy = null;
+            theOwner.remove(theCanvas);
+            theCanvas = null;
+        }
+    }
+
+    // true if frames are shown by the surface (owner does not need to repaint)
+    public boolean showsFrames() {
+        return theStrategy != null;
+    }
+
+    // next frame has to be rendered whole (e.g. a message changed)
+    public synchronized void invalidate() {
+        isFullFrame = true;
+    }
+
+    // true if the frame being rendered has to be rendered whole
+    public synchronized boolean isFullFrame() {
+        return isFullFrame || theStrategy != null;
+    }
+
+    // graphics to render next frame to, has to be followed by endFrame
+    public synchronized Graphics beginFrame() {
+        if (theStrategy != null) {
+            theGraphics = theStrategy.getDrawGraphics();
+            return theGraphics;
+        }
+        GraphicsConfiguration gc = theOwner.getGraphicsConfiguration();
+        if (isAccelerated && gc != null) {
+            int valid = theVolatileImage == null ? VolatileImage.IMAGE_INCOMPATIBLE
+                                                 : theVolatileImage.validate(gc);
+            if (valid == VolatileImage.IMAGE_INCOMPATIBLE) {
+                theVolatileImage = gc.createCompatibleVolatileImage(theWidth, theHeight);
+                isFullFrame = true;
+            } else if (valid == VolatileImage.IMAGE_RESTORED) {
+                isFullFrame = true; // previous frame is lost
+            }
+            if (theVolatileImage.getCapabilities().isAccelerated()) {
+                theGraphics = theVolatileImage.createGraphics();
+                return theGraphics;
+            }
+            // no acceleration, stay with buffered image
+            isAccelerated = false;
+            theVolatileImage = null;
+        }
+        if (theBufferedImage == null) {
+            if (gc != null) {
+                theBufferedImage = gc.createCompatibleImage(theWidth, theHeight);
+            } else { // panel is not displayed (e.g. benchmarks)
+                theBufferedImage = new BufferedImage(theWidth, theHeight, BufferedImage.TYPE_INT_RGB);
+            }
+            isFullFrame = true;
+        }
+        theGraphics = theBufferedImage.getGraphics();
+        return theGraphics;
+    }
+
+    // frame is rendered, show it if rendering is active
+    // false if the buffer was lost meanwhile and the frame has to be rendered again
+    public synchronized boolean endFrame() {
+        theGraphics.dispose();
+        theGraphics = null;
+        isFullFrame = false;
+        if (theStrategy != null) {
+            if (theStrategy.contentsRestored()) {
+                isFullFrame = true; // rendered to a buffer that was just restored
+                return false;
+            }
+            theStrategy.show();
+            Toolkit.getDefaultToolkit().sync();
+            if (theStrategy.contentsLost()) {
+                isFullFrame = true;
+                return false;
+            }
+        } else if (theVolatileImage != null && theVolatileImage.contentsLost()) {
+            isFullFrame = true;
+            return false;
+        }
+        return true;
+    }
+
+    // paint last frame (passive rendering), false if there is no valid frame
+    public synchronized boolean paintFrame(Graphics g) {
+        if (theVolatileImage != null) {
+            if (theVolatileImage.contentsLost()) {
+                return false; // will be rendered again with next frame
+            }
+            g.drawImage(theVolatileImage, 0, 0, null);
+            return true;
+        }
+        if (theBufferedImage != null) {
+            g.drawImage(theBufferedImage, 0, 0, null);
+            return true;
+        }
+        return false;
+    }
+}
@@ -13,10 +13,13 @@ import javax.swing.JLabel;
 /**
  * Class ScoreDialog
  * 
- * This JDialog shows highest 3 scores achieved in any game setting.
+ * This JDialog shows highest 3 scores achieved in the game setting of the last
+ * game (mode and difficulty) or in any game setting.
  * 
  * 1) If a game score is provided the class shows it (player's name & achieved
  *    number of beats) in its title otherwise shows "High Score"
+ * 2) With the game score the title shows its rank among all the scores
+ *    of the game setting (see Leaderboard)
  * 
  * The JDialog is created by and communicates with GameCreator.
  * 
@@ -27,13 +30,15 @@ public class ScoreDialog extends javax.swing.JDialog {
 
     private GameCreator gameCreator;
     /** Creates new form ScoreDialog */
-    public ScoreDialog(java.awt.Frame parent, boolean modal, GameCreator gmc, ArrayList<Score> highScores, Score score) {
+    public ScoreDialog(java.awt.Frame parent, boolean modal, GameCreator gmc, ArrayList<Score> highScores, Score score,
+                       int rank, int games) {
         super(parent, modal);
         initComponents();
         gameCreator = gmc;
         
         if (score != null) {
-            this.setTitle(score.getWinner().getName() + " won the game with " + score.getPoints() + " beats!");
+            this.setTitle(score.getWinner().getName() + " won the game with " + score.getPoints() + " beats!" +
+                          " Rank " + rank + " of " + games);
         } else {
             this.setTitle("High Score");
         }
@@ -2,80 +2,100 @@ package catchthebeat.ui;
 
 import java.io.IOException;
 import java.net.URL;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 /**
  * Class SoundEffect
  * 
- * This class serves as a container holding Clip objects used for playing
- * short sound samples that are pre-loaded in the memory during the 
- * application initialization.
+ * This class serves as a container of short sound samples that are pre-loaded
+ * in the memory (decoded to PCM) during the application initialization and
+ * played by a software mixer (SoundMixer).
  * 
  * @author Michal Kabát
  * @version 2012.04
  */
 public class SoundEffect {
 
-    // Nested class for specifying volume
-    public static enum Volume {
-
-        MUTE, LOW, MEDIUM, HIGH
-    }
-    public static Volume volume = Volume.HIGH;
     private final int numOfClips;
-    private Clip[] clips;
+    private int[] clips;
+    private float[] gains;
+    private SoundMixer mixer;
     private String[] stringClips = {"../sounds/drum0.wav", "../sounds/drum1.wav", "../sounds/drum2.wav", "../sounds/drum3.wav", "../sounds/correct.wav", "../sounds/fail.wav"};
     public static final int CORRECT_FX = 4;
     public static final int FAIL_FX = 5;
 
     /**
      * Constructor takes the hardcoded array of Strings containing the relative
-     * path to sound effects, creates Clip objects out of them and pre-loads
-     * them in the memory.
+     * path to sound effects, decodes them and pre-loads them in the mixer.
      */
     SoundEffect() {
+        this(new SoundMixer());
+    }
+
+    /**
+     * @param mixer Mixer that plays the sound effects.
+     */
+    SoundEffect(SoundMixer mixer) {
+        this.mixer = mixer;
         numOfClips = stringClips.length;
-        clips = new Clip[numOfClips];
+        clips = new int[numOfClips];
+        gains = new float[numOfClips];
         try {
             for (int i = 0; i < numOfClips; i++) {
                 URL url = this.getClass().getResource(stringClips[i]);
-                // Set up an audio input stream piped from the sound file.
-                AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(url);
-                // Get a clip resource.
-                clips[i] = AudioSystem.getClip();
-                // Preload the clip into memory.
-                clips[i].open(audioInputStream);
+                // Decode the sound file and keep it in the mixer.
+                clips[i] = mixer.load(url);
+                gains[i] = 1f;
             }
 
         } catch (UnsupportedAudioFileException e) {
             e.printStackTrace();
         } catch (IOException e) {
             e.printStackTrace();
-        } catch (LineUnavailableException e) {
-            e.printStackTrace();
         }
     }
 
     /**
-     * Rewinds the desired soundclip and plays it.
+     * Plays the desired sound effect with its default gain.
      * 
-     * The play method does not use threads (however, the Clip objects use 
-     * threading when playing).
-     * Reason: to save CPU load (separate threads are not created everytime play() 
-     * method is called).
-     * Drawback: every sound effect can play only once in a given time. If play()
-     * method is called with request to play a sound effect that is already playing,
-     * the playback is interrupted and played again from the beginning.
-     * However, for purpose of this application this should be a sufficient solution.
+     * Each call plays the effect on a new voice of the mixer, so an effect
+     * that is already playing (e.g. fast repeated hits of the same drum) is not
+     * interrupted. If all the voices are playing, the oldest one is replaced.
+     * The method does not block, the effect starts with the next buffer mixed
+     * by the mixer thread.
      * 
      * @param clipNo Index of desired sound effect in the clips array.
      */
     public void play(int clipNo) {
-        clips[clipNo].setFramePosition(0);
-        clips[clipNo].start();
+        play(clipNo, gains[clipNo]);
+    }
+
+    /**
+     * Plays the desired sound effect with the given gain.
+     * 
+     * @param clipNo Index of desired sound effect in the clips array.
+     * @param gain Volume of this effect (1 = original volume).
+     */
+    public void play(int clipNo, float gain) {
+        mixer.play(clips[clipNo], gain);
+    }
+
+    /**
+     * Sets the default gain of a sound effect.
+     * 
+     * @param clipNo Index of the sound effect in the clips array.
+     * @param gain Volume of the effect (1 = original volume).
+     */
+    public void setGain(int clipNo, float gain) {
+        gains[clipNo] = gain;
+    }
+
+    /**
+     * Sets the volume of all the sound effects.
+     * 
+     * @param volume Volume multiplier (0 = mute, 1 = original volume).
+     */
+    public void setVolume(float volume) {
+        mixer.setMasterGain(volume);
     }
 }
@@ -0,0 +1,357 @@
+package catchthebeat.ui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Class SoundMixer
+ *
+ * This class is a small software mixer. Sound samples are decoded once into
+ * PCM arrays (converted to the mixer format) and any number of them can play
+ * at the same time through a single SourceDataLine.
+ *
+ * 1) Playing a sample takes one of a fixed number of voices. If all the voices
+ *    are playing, the voice that has been playing for the longest time is stolen.
+ * 2) Every voice has its own gain, the mixed output is multiplied by the master
+ *    gain (0 = mute) and clipped to 16 bits.
+ * 3) Voices are mixed by a separate thread in blocks of bufferFrames frames.
+ *    The line holds two such blocks, so the latency of play() is given by
+ *    the buffer size (256 frames = 5.8 ms by default, can be set by
+ *    -Dcatchthebeat.audioBuffer=frames).
+ * 4) If no line is available, samples are still loaded but nothing is played.
+ * 5) The mixer is also the clock of the game. Frame position is the number of
+ *    frames mixed so far, clock listeners are told the new position after each
+ *    mixed buffer. Listeners must not do any work on the mixer thread (the line
+ *    holds two buffers only), BeatScheduler just wakes its game thread. Without
+ *    a line the thread just keeps the clock running at the same pace (timed by
+ *    System.nanoTime()).
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class SoundMixer implements Runnable {
+
+    public static final float SAMPLE_RATE = 44100f;
+    public static final int DEFAULT_BUFFER_FRAMES = 256;
+    public static final int MAX_VOICES = 16;
+    private static final int FRAME_SIZE = 2; // 16 bit mono
+    private static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+
+    /**
+     * Interface of objects timed by the mixer (they are called by the mixer
+     * thread, so they should return quickly).
+     */
+    public static interface ClockListener {
+
+        /**
+         * Called after each mixed buffer.
+         * 
+         * @param framePosition Number of frames mixed so far.
+         */
+        public void audioClock(long framePosition);
+    }
+
+    // Nested class for one playing sample
+    private static class Voice {
+
+        short[] sample; // null if the voice is free
+        int position;
+        float gain;
+        long started; // order in which voices were started
+    }
+
+    // Nested class for a request passed to the mixer thread
+    private static class Trigger {
+
+        final short[] sample;
+        final float gain;
+
+        Trigger(short[] sample, float gain) {
+            this.sample = sample;
+            this.gain = gain;
+        }
+    }
+    private final int bufferFrames;
+    private volatile short[][] samples = new short[0][];
+    private final Voice[] voices = new Voice[MAX_VOICES];
+    private long voicesStarted = 0;
+    private final ConcurrentLinkedQueue<Trigger> triggers = new ConcurrentLinkedQueue<Trigger>();
+    private volatile float masterGain = 1f;
+    private SourceDataLine line;
+    // the clock (frame position and the time it was reached)
+    private final CopyOnWriteArrayList<ClockListener> clockListeners = new CopyOnWriteArrayList<ClockListener>();
+    private final Object clockLock = new Object();
+    private long framePosition = 0;
+    private long framePositionNanos = System.nanoTime();
+
+    /**
+     * Creates the mixer with the buffer size set by the catchthebeat.audioBuffer
+     * system property (or the default one).
+     */
+    public SoundMixer() {
+        this(Integer.getInteger("catchthebeat.audioBuffer", DEFAULT_BUFFER_FRAMES));
+    }
+
+    /**
+     * Opens the output line and starts the mixer thread.
+     *
+     * @param bufferFrames Number of frames mixed at once (the line holds two
+     * such buffers).
+     */
+    public SoundMixer(int bufferFrames) {
+        this.bufferFrames = bufferFrames;
+        for (int i = 0; i < MAX_VOICES; i++) {
+            voices[i] = new Voice();
+        }
+        try {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, bufferFrames * FRAME_SIZE * 2);
+            line.start();
+        } catch (LineUnavailableException e) {
+            System.out.println("Sound not available: " + e.getMessage());
+            line = null;
+        } catch (IllegalArgumentException e) { // no line matching the format
+            System.out.println("Sound not available: " + e.getMessage());
+            line = null;
+        }
+        Thread mixer = new Thread(this, "Sound mixer");
+        mixer.setDaemon(true);
+        mixer.setPriority(Thread.MAX_PRIORITY);
+        mixer.start();
+    }
+
+    /**
+     * Decodes the sound file into the mixer format (16 bit signed mono at
+     * SAMPLE_RATE) and keeps it in the memory.
+     *
+     * @param url Location of the sound file.
+     * @return Number of the sample used by play().
+     */
+    public synchronized int load(URL url) throws UnsupportedAudioFileException, IOException {
+        AudioInputStream in = AudioSystem.getAudioInputStream(url);
+        AudioFormat source = in.getFormat();
+        int channels = source.getChannels();
+        // let AudioSystem convert the encoding, rate and channels are converted here
+        AudioFormat pcm = new AudioFormat(source.getSampleRate(), 16, channels, true, false);
+        AudioInputStream pcmIn = AudioSystem.getAudioInputStream(pcm, in);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = pcmIn.read(buffer)) > 0) {
+            bytes.write(buffer, 0, read);
+        }
+        pcmIn.close();
+        byte[] data = bytes.toByteArray();
+        // mix the channels down to mono
+        int frames = data.length / (2 * channels);
+        short[] mono = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                int b = (i * channels + c) * 2;
+                sum += (short) ((data[b] & 0xff) | (data[b + 1] << 8));
+            }
+            mono[i] = (short) (sum / channels);
+        }
+        short[] sample = resample(mono, source.getSampleRate());
+        // add the sample (array is replaced so the mixer thread is not affected)
+        short[][] loaded = new short[samples.length + 1][];
+        System.arraycopy(samples, 0, loaded, 0, samples.length);
+        loaded[samples.length] = sample;
+        samples = loaded;
+        return samples.length - 1;
+    }
+
+    // linear interpolation to the mixer sample rate
+    private static short[] resample(short[] mono, float rate) {
+        if (rate == SAMPLE_RATE || mono.length < 2) {
+            return mono;
+        }
+        double ratio = rate / SAMPLE_RATE;
+        int frames = (int) ((mono.length - 1) / ratio) + 1;
+        short[] sample = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            double position = i * ratio;
+            int j = (int) position;
+            double fraction = position - j;
+            int next = Math.min(j + 1, mono.length - 1);
+            sample[i] = (short) Math.round(mono[j] + (mono[next] - mono[j]) * fraction);
+        }
+        return sample;
+    }
+
+    /**
+     * Starts playing the sample on a free (or stolen) voice. The sample starts
+     * with the next mixed buffer. This method does not block.
+     *
+     * @param sampleNo Number of the sample returned by load().
+     * @param gain Volume of this voice (1 = original volume).
+     */
+    public void play(int sampleNo, float gain) {
+        if (line != null) {
+            triggers.add(new Trigger(samples[sampleNo], gain));
+        }
+    }
+
+    /**
+     * Sets the volume of all the voices.
+     *
+     * @param gain Volume multiplier (0 = mute, 1 = original volume).
+     */
+    public void setMasterGain(float gain) {
+        masterGain = gain;
+    }
+
+    public float getMasterGain() {
+        return masterGain;
+    }
+
+    /**
+     * Registers an object timed by the mixer.
+     * 
+     * @param listener Object told the frame position after each buffer.
+     */
+    public void addClockListener(ClockListener listener) {
+        clockListeners.add(listener);
+    }
+
+    public void removeClockListener(ClockListener listener) {
+        clockListeners.remove(listener);
+    }
+
+    /**
+     * The current time of the mixer clock. Between two buffers the position is
+     * estimated from the time elapsed since the last buffer (at most one buffer
+     * ahead), so it can be read at any time without jumps of a buffer size.
+     * 
+     * @return Number of frames (at SAMPLE_RATE) since the mixer started.
+     */
+    public long getFramePosition() {
+        synchronized (clockLock) {
+            long elapsed = (long) ((System.nanoTime() - framePositionNanos) * (SAMPLE_RATE / 1e9));
+            return framePosition + Math.max(0, Math.min(elapsed, bufferFrames));
+        }
+    }
+
+    /**
+     * @return True if the mixed sound is played (an audio line is open).
+     */
+    public boolean isPlaying() {
+        return line != null;
+    }
+
+    /**
+     * @return Number of frames mixed at once.
+     */
+    public int getBufferFrames() {
+        return bufferFrames;
+    }
+
+    /**
+     * Mixer thread: mixes the voices buffer by buffer. Writing to the line blocks
+     * until there is space for the buffer, so the loop runs at the pace of
+     * the audio device (silence is written when no voice is playing).
+     * Without a line the loop sleeps for the duration of each buffer.
+     */
+    @Override
+    public void run() {
+        int[] mix = new int[bufferFrames];
+        byte[] out = new byte[bufferFrames * FRAME_SIZE];
+        long bufferNanos = (long) (bufferFrames * 1e9 / SAMPLE_RATE);
+        long deadline = System.nanoTime();
+        while (true) {
+            if (line == null) {
+                // no sound, keep the clock running
+                deadline += bufferNanos;
+                long difference = deadline - System.nanoTime();
+                if (difference > 0) {
+                    try {
+                        Thread.sleep(difference / 1000000L, (int) (difference % 1000000L));
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+                advanceClock();
+                continue;
+            }
+            startVoices();
+            mixVoices(mix);
+            float gain = masterGain;
+            for (int i = 0; i < bufferFrames; i++) {
+                int value = Math.round(mix[i] * gain);
+                if (value > Short.MAX_VALUE) {
+                    value = Short.MAX_VALUE;
+                } else if (value < Short.MIN_VALUE) {
+                    value = Short.MIN_VALUE;
+                }
+                out[2 * i] = (byte) value;
+                out[2 * i + 1] = (byte) (value >> 8);
+            }
+            line.write(out, 0, out.length);
+            advanceClock();
+        }
+    }
+
+    // a buffer was mixed, tell the clock listeners
+    private void advanceClock() {
+        long position;
+        synchronized (clockLock) {
+            framePosition += bufferFrames;
+            framePositionNanos = System.nanoTime();
+            position = framePosition;
+        }
+        for (ClockListener listener : clockListeners) {
+            listener.audioClock(position);
+        }
+    }
+
+    // take the requested samples and assign them to voices
+    private void startVoices() {
+        Trigger trigger;
+        while ((trigger = triggers.poll()) != null) {
+            Voice voice = voices[0];
+            for (int i = 0; i < MAX_VOICES; i++) {
+                if (voices[i].sample == null) {
+                    voice = voices[i]; // free voice
+                    break;
+                }
+                if (voices[i].started < voice.started) {
+                    voice = voices[i]; // oldest voice so far
+                }
+            }
+            voice.sample = trigger.sample;
+            voice.gain = trigger.gain;
+            voice.position = 0;
+            voice.started = voicesStarted++;
+        }
+    }
+
+    // add the playing voices together, voices that reached the end are freed
+    private void mixVoices(int[] mix) {
+        Arrays.fill(mix, 0);
+        for (int v = 0; v < MAX_VOICES; v++) {
+            Voice voice = voices[v];
+            if (voice.sample == null) {
+                continue;
+            }
+            int frames = Math.min(mix.length, voice.sample.length - voice.position);
+            for (int i = 0; i < frames; i++) {
+                mix[i] += (int) (voice.sample[voice.position + i] * voice.gain);
+            }
+            voice.position += frames;
+            if (voice.position >= voice.sample.length) {
+                voice.sample = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat.ui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.JComponent;
+
+/**
+ * Class TextLayerCache
+ *
+ * This class holds text (messages, player names, countdown) rendered to
+ * transparent images, so text is laid out and anti-aliased only once and then
+ * just drawn as an image by each frame.
+ *
+ * 1) A layer is rendered the first time its text, font and colour are asked for
+ * 2) Layers are kept for the most recently used texts only, the layer of a text
+ *    that is not shown anymore (e.g. a player was renamed) is dropped once
+ *    the cache is full. clear() drops all of them (GameplayPanel clears its
+ *    cache when a new game starts)
+ * 3) Layer is as wide as the text and as high as the font, baseline is at the
+ *    font ascent (text is positioned the same way as by FontMetrics)
+ * 4) Layers are compatible images of the owner panel (when displayed)
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class TextLayerCache {
+
+    private final JComponent theOwner;
+    private final Map<String, BufferedImage> theLayers;
+
+    public TextLayerCache(JComponent owner, final int maxLayers) {
+        theOwner = owner;
+        // access ordered map drops the least recently used layer
+        theLayers = new LinkedHashMap<String, BufferedImage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                return size() > maxLayers;
+            }
+        };
+    }
+
+    // image of the text (rendered now if it is not cached)
+    public synchronized BufferedImage getLayer(String text, Font font, Color color) {
+        String key = font.getName() + '|' + font.getStyle() + '|' + font.getSize()
+                   + '|' + color.getRGB() + '|' + text;
+        BufferedImage layer = theLayers.get(key);
+        if (layer == null) {
+            layer = renderLayer(text, font, color);
+            theLayers.put(key, layer);
+        }
+        return layer;
+    }
+
+    // drop all layers
+    public synchronized void clear() {
+        theLayers.clear();
+    }
+
+    private BufferedImage renderLayer(String text, Font font, Color color) {
+        FontMetrics fm = theOwner.getFontMetrics(font);
+        int w = Math.max(fm.stringWidth(text), 1);
+        int h = Math.max(fm.getHeight(), 1);
+        BufferedImage layer;
+        GraphicsConfiguration gc = theOwner.getGraphicsConfiguration();
+        if (gc != null) {
+            layer = gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT);
+        } else { // panel is not displayed
+            layer = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+        Graphics2D g2 = layer.createGraphics();
+        // turn on anti-aliasing for text
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setFont(font);
+        g2.setColor(color);
+        g2.drawString(text, 0, fm.getAscent());
+        g2.dispose();
+        return layer;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat.ui;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class TextureAtlas
+ *
+ * This class packs many images into sheets that are compatible with the screen,
+ * so the images are converted once and every sprite is drawn from the sheet
+ * without any conversion.
+ *
+ * 1) Images are packed into shelves (rows as high as their highest image),
+ *    highest images first, the sheet is as wide as SHEET_WIDTH (narrower if
+ *    all the images fit in one shelf, wider if an image is wider)
+ * 2) Opaque images (backgrounds) and translucent images (drums, tick) go to
+ *    two sheets, so opaque images are not blended when they are drawn
+ * 3) Sheets are created by GraphicsConfiguration.createCompatibleImage (or as
+ *    premultiplied/RGB buffered images if there is no screen), images are
+ *    addressed by name and returned as sub-images sharing the sheet's data
+ * 4) Atlas is immutable once packed
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class TextureAtlas {
+
+    public static final int SHEET_WIDTH = 1024;
+
+    private final HashMap<String, BufferedImage> images = new HashMap<String, BufferedImage>(); // sub-images
+    private final HashMap<String, Rectangle> regions = new HashMap<String, Rectangle>(); // in their sheet
+    private final BufferedImage opaqueSheet;
+    private final BufferedImage translucentSheet;
+
+    // sort by height (highest first), then by name so packing is always the same
+    private static final Comparator<Map.Entry<String, BufferedImage>> HIGHEST_FIRST =
+            new Comparator<Map.Entry<String, BufferedImage>>() {
+                @Override
+                public int compare(Map.Entry<String, BufferedImage> e1, Map.Entry<String, BufferedImage> e2) {
+                    int h1 = e1.getValue().getHeight();
+                    int h2 = e2.getValue().getHeight();
+                    return (h1 != h2) ? h2 - h1 : e1.getKey().compareTo(e2.getKey());
+                }
+            };
+
+    /**
+     * Packs the images (the images given are not needed afterwards).
+     *
+     * @param gc Graphics configuration of the screen or null if there is none.
+     * @param source Images by name.
+     */
+    public TextureAtlas(GraphicsConfiguration gc, Map<String, BufferedImage> source) {
+        List<Map.Entry<String, BufferedImage>> opaque = new ArrayList<Map.Entry<String, BufferedImage>>();
+        List<Map.Entry<String, BufferedImage>> translucent = new ArrayList<Map.Entry<String, BufferedImage>>();
+        for (Map.Entry<String, BufferedImage> entry : source.entrySet()) {
+            if (entry.getValue().getTransparency() == Transparency.OPAQUE) {
+                opaque.add(entry);
+            } else {
+                translucent.add(entry);
+            }
+        }
+        opaqueSheet = pack(gc, opaque, Transparency.OPAQUE);
+        translucentSheet = pack(gc, translucent, Transparency.TRANSLUCENT);
+    }
+
+    // pack the images into a new sheet (null if there are none)
+    private BufferedImage pack(GraphicsConfiguration gc, List<Map.Entry<String, BufferedImage>> entries,
+            int transparency) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        Collections.sort(entries, HIGHEST_FIRST);
+        int widest = 0, total = 0;
+        for (Map.Entry<String, BufferedImage> entry : entries) {
+            widest = Math.max(widest, entry.getValue().getWidth());
+            total += entry.getValue().getWidth();
+        }
+        int width = Math.max(widest, Math.min(SHEET_WIDTH, total));
+        // place the images on shelves
+        int x = 0, y = 0, shelfHeight = 0;
+        for (Map.Entry<String, BufferedImage> entry : entries) {
+            BufferedImage image = entry.getValue();
+            if (x + image.getWidth() > width) { // next shelf
+                x = 0;
+                y += shelfHeight;
+                shelfHeight = 0;
+            }
+            regions.put(entry.getKey(), new Rectangle(x, y, image.getWidth(), image.getHeight()));
+            x += image.getWidth();
+            shelfHeight = Math.max(shelfHeight, image.getHeight());
+        }
+        int height = y + shelfHeight;
+        // copy them to the sheet (converted once here)
+        BufferedImage sheet = createSheet(gc, width, height, transparency);
+        Graphics2D g = sheet.createGraphics();
+        for (Map.Entry<String, BufferedImage> entry : entries) {
+            Rectangle r = regions.get(entry.getKey());
+            g.drawImage(entry.getValue(), r.x, r.y, null);
+        }
+        g.dispose();
+        for (Map.Entry<String, BufferedImage> entry : entries) {
+            Rectangle r = regions.get(entry.getKey());
+            images.put(entry.getKey(), sheet.getSubimage(r.x, r.y, r.width, r.height));
+        }
+        return sheet;
+    }
+
+    private static BufferedImage createSheet(GraphicsConfiguration gc, int w, int h, int transparency) {
+        if (gc != null) {
+            return gc.createCompatibleImage(w, h, transparency);
+        }
+        return new BufferedImage(w, h, (transparency == Transparency.OPAQUE)
+                ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    // image of the name or null if it is not in the atlas
+    public BufferedImage getImage(String name) {
+        return images.get(name);
+    }
+
+    // where the image is in its sheet or null if it is not in the atlas
+    public Rectangle getRegion(String name) {
+        Rectangle r = regions.get(name);
+        return (r == null) ? null : new Rectangle(r);
+    }
+
+    // sheet holding the opaque or the translucent images (null if there are none)
+    public BufferedImage getSheet(boolean translucent) {
+        return translucent ? translucentSheet : opaqueSheet;
+    }
+
+    public int size() {
+        return images.size();
+    }
+}
@@ -20,6 +20,11 @@ import catchthebeat.ui.ImageLoader;
  *    This also gives larger time frames that are easier to play in fast tempos
  * 5) As difficulty increases tempo in which drum moves increases as well but stays
  *    same once set for the game. This tempo is a step of which drum moves in +x coordinate
+ * 6) Sprites are reused from round to round, reset puts the drum back to its initial
+ *    state for its (possibly new) position in sequence
+ * 7) Drum does not detect the tick by itself. BeatScheduler tells it when it
+ *    enters and leaves the tick (on its game thread), drum position is set by
+ *    GameDrums and the image is updated with each animation step
 
  * @author Roman Velic
  * @version 2012.04
@@ -40,14 +45,15 @@ public class GameDrumSprite extends Sprite {
     private Sprite tick;
     private int drumId;
     private boolean isNew;
-    private int correctBeat;
-    private boolean endsRound = false;
-    private boolean wasPlayed = false;
-    private boolean isCorrect = false;
-    private boolean ticked = false;
-    private boolean inTick = false;
-    private boolean gameOver = false;
-    private boolean isLast = false;
+    // set by the tick events and game (other threads), read by animation
+    private volatile int correctBeat;
+    private volatile boolean endsRound = false;
+    private volatile boolean wasPlayed = false;
+    private volatile boolean isCorrect = false;
+    private volatile boolean ticked = false;
+    private volatile boolean inTick = false;
+    private volatile boolean gameOver = false;
+    private volatile boolean isLast = false;
     private int tempo = 4; //speed / tempo is based on difficulty
     // images used for drum
     private static final String[] drumNames = {"GameDrum_1.png", 
@@ -72,17 +78,30 @@ public class GameDrumSprite extends Sprite {
         
         super( 0, 0, w, h,iLoader, drumNames);
         tick = tickSprite;
+        gamePanel = gamePlayPanel;
+        reset(difficulty, gameDrumId, isNewDrum);
+    }
+    
+    // put the drum to its initial state (drum is reused in the next round)
+    public void reset(int difficulty, int gameDrumId, boolean isNewDrum) {
         drumId = gameDrumId; //drum number starts with 0
         isNew = isNewDrum;
-        gamePanel = gamePlayPanel;
         tempo = difficulty;
+        correctBeat = 0;
+        endsRound = false;
+        wasPlayed = false;
+        isCorrect = false;
+        ticked = false;
+        inTick = false;
+        gameOver = false;
+        isLast = false;
         // init drum
         initDrum();
     }
     
     private void initDrum() {
-        // initialise the drum's images, position and step values (speed)
-        setImages(drumNames);
+        // initialise the drum's position and step values (speed)
+        // (images are set once by the constructor)
 
         // off the screen based on which drum number it is in sequence
         // plus width of tick (so ticks don't collide)
@@ -104,20 +123,39 @@ public class GameDrumSprite extends Sprite {
         }
     } 
     
-    @Override
-    public void updateSprite() {
-        updateTick(); // drum logic
-        super.updateSprite();
-    } 
-    
-    private void updateTick(){
-        // if a drum intersects with tick the drum is in tick
-        inTick = getBounds().intersects(tick.getBounds());       
+    // drum entered the tick (beat window opened)
+    public void enterTick(){
+        inTick = true;
         // if drum is in tick but not ticked yet it ticks
-        if (inTick && !ticked) {
+        if (!ticked) {
             gamePanel.tick(drumId);
             ticked = true;
-        }        
+        }
+    }
+    
+    // drum left the tick (beat window closed)
+    public void leaveTick(){
+        inTick = false;
+        // timeout makes the drum wrong
+        if (ticked && !wasPlayed) {
+            endsRound = true; // this drum will end round once it is out of tick
+        }
+        // last drum ticks twice (second time once it's out of tick)
+        if (isLast && ticked) {
+            gamePanel.tick(drumId);
+        }
+        // drum ends round and/or game
+        if (endsRound){               
+            if (gameOver) {  
+                gamePanel.gameOver();
+            } else {
+                gamePanel.nextRound();
+            }  
+        }
+    }
+    
+    // show the state of the drum (called with each animation step)
+    public void updateImage(){
         // if user plays the drum it will change to correct/wrong state
         if (wasPlayed) {            
             if (isCorrect){
@@ -130,27 +168,11 @@ public class GameDrumSprite extends Sprite {
         // timeout makes the drum wrong
         if (!inTick && ticked && !wasPlayed) {
             setSeqNo(DRUM_WRONG);
-            endsRound = true; // this drum will end round once it is out of tick
         }      
         // once drum not in tick display its correct beat
         if (wasPlayed && !inTick && getSeqNo() != correctBeat) {
             setSeqNo(correctBeat);
         }
-        
-        // last drum ticks twice (second time once it's out of tick)
-        if (isLast && !inTick && ticked) {
-            gamePanel.tick(drumId);
-        }
-        
-        // drum ends round and/or game
-        if (!inTick && endsRound){               
-            if (gameOver) {  
-                gamePanel.gameOver();
-            } else {
-                gamePanel.nextRound();
-            }  
-        }
-        
     }
     
     // drums was played, but was it correct?
@@ -4,6 +4,7 @@
  */
 package catchthebeat.ui.sprites;
 
+import catchthebeat.ui.DirtyRegion;
 import java.awt.Graphics;
 import java.util.ArrayList;
 
@@ -13,27 +14,150 @@ import java.util.ArrayList;
  * An extended array list that makes updating of drum sprites easier. It iterates
  * of all of its drums, updates them and makes them repaint.
  * 
+ * Drums are kept from round to round. When the sequence gets shorter (new game)
+ * drums are moved to spare drums and reused once the sequence grows again.
+ * 
+ * Only drums within a window (drums on the panel) are updated and drawn:
+ * 1) All drums move by the same step, so a drum that is not on the panel yet
+ *    is not moved at all. Once it reaches the panel it is reset and moved
+ *    straight to its position based on time since the round start (in steps)
+ * 2) Drums leave the window once they move past the right edge of the panel
+ * 3) Per frame cost therefore does not depend on the length of the sequence
+ * 
+ * The time of the round is given by the caller (BeatScheduler), drums are
+ * placed where they are at that time, so they stay in sync with the beats.
+ * 
  * @author Roman Velic
  * @version 2012.04
  */
 public class GameDrums extends ArrayList<GameDrumSprite> {
 
+    // drums that are not part of the sequence
+    private ArrayList<GameDrumSprite> spareDrums;
+    
+    // round settings used to reset drums once they reach the panel
+    private int theDifficulty;
+    private boolean addsBeat;
+    // window of drums on the panel (firstDrum inclusive, nextDrum exclusive)
+    private int firstDrum;
+    private int nextDrum;
+    // first drum of the window when drums were drawn last time
+    private int drawnFirstDrum;
+    // steps since round start, distance moved so far and geometry of drums
+    // (same for all drums)
+    private double theSteps;
+    private int theDistance;
+    private int theSpacing;
+    private int theStep;
+    private int theDrumWidth;
+    
     public GameDrums() {
         super();
+        spareDrums = new ArrayList<GameDrumSprite>();
+    }
+    // keep only first noDrums drums, the rest becomes spare
+    public void truncate(int noDrums){
+        while (size() > noDrums){
+            spareDrums.add(remove(size() - 1));
+        }
+    }
+    // spare drum (to be reset before use) or null if there is none
+    public GameDrumSprite spareDrum(){
+        if (spareDrums.isEmpty()){
+            return null;
+        }
+        return spareDrums.remove(spareDrums.size() - 1);
+    }
+    // start a new round, drums are reset once they reach the panel
+    public void newRound(int difficulty, boolean lastIsNew){
+        theDifficulty = difficulty;
+        addsBeat = lastIsNew;
+        firstDrum = 0;
+        nextDrum = 0;
+        drawnFirstDrum = 0;
+        theSteps = 0;
+        theDistance = 0;
+        if (size() > 0){
+            // first drum is one spacing off the panel, so take geometry from it
+            GameDrumSprite gs = resetDrum(0);
+            theSpacing = -gs.getX();
+            theStep = gs.getDeltaX();
+            theDrumWidth = gs.getWidth();
+        }
+    }
+    
+    private GameDrumSprite resetDrum(int i){
+        GameDrumSprite gs = get(i);
+        boolean isLast = (i == size() - 1);
+        gs.reset(theDifficulty, i, addsBeat && isLast);
+        gs.setIsLast(isLast);
+        return gs;
+    }
+    
+    // distance from start position of the first drum to the tick (drum enters it)
+    public int getOpenDistance(Sprite tick){
+        return tick.getX() - theDrumWidth + theSpacing;
     }
-    //update all drum sprites in the list
+    
+    // distance from start position of the first drum past the tick (drum leaves it)
+    public int getCloseDistance(Sprite tick){
+        return tick.getX() + tick.getWidth() + theSpacing;
+    }
+    
+    public int getSpacing(){
+        return theSpacing;
+    }
+    
+    public int getStep(){
+        return theStep;
+    }
+    
+    //update drum sprites on the panel (one step further)
     public void updateSprites(){
-        for (int i = 0; i < size() ; i++){
+        updateSprites(theSteps + 1);
+    }
+    
+    //update drum sprites on the panel to their position at given time of the round
+    public void updateSprites(double steps){
+        int previousDistance = theDistance;
+        theSteps = steps;
+        theDistance = (int) Math.round(theStep * steps);
+        // drums that moved past the panel leave the window
+        while (firstDrum < nextDrum && get(firstDrum).getX() >= get(firstDrum).getPanelWidth()){
+            firstDrum++;
+        }
+        // drums that reach the panel join the window at their previous position
+        while (nextDrum < size() && theDistance + theDrumWidth - theSpacing * (nextDrum + 1) > 0){
+            GameDrumSprite gs = resetDrum(nextDrum);
+            gs.translate(previousDistance, 0);
+            nextDrum++;
+        }
+        for (int i = firstDrum; i < nextDrum ; i++){
             GameDrumSprite gs = get(i) ;
-            gs.updateSprite();
+            gs.updateImage();
+            gs.moveTo(theDistance - theSpacing * (i + 1), gs.getY());
         }
     }
-    //draw all drum sprites in the list
+    //add area of drums that changed since last drawing (incl. drums that left)
+    public void addDirtyBounds(DirtyRegion dirty, float alpha){
+        for (int i = drawnFirstDrum; i < firstDrum ; i++){
+            get(i).addDrawnBounds(dirty);
+        }
+        for (int i = firstDrum; i < nextDrum ; i++){
+            get(i).addDirtyBounds(dirty, alpha);
+        }
+    }
+    //draw drum sprites on the panel
     public void drawSprites(Graphics g){
-        for (int i = 0; i < size() ; i++){
-            get(i).drawSprite(g);
+        drawSprites(g, 1f);
+    }
+    //draw drum sprites on the panel (interpolated between updates)
+    public void drawSprites(Graphics g, float alpha){
+        drawnFirstDrum = firstDrum;
+        for (int i = firstDrum; i < nextDrum ; i++){
+            get(i).drawSprite(g, alpha);
         }
     }
     
 }
-// Credits: Roman Velic
\ No newline at end of file
+// Credits: Roman Velic
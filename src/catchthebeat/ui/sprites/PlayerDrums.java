@@ -4,6 +4,7 @@
  */
 package catchthebeat.ui.sprites;
 
+import catchthebeat.ui.DirtyRegion;
 import java.awt.Graphics;
 import java.util.ArrayList;
 
@@ -28,10 +29,20 @@ public class PlayerDrums extends ArrayList<PlayerDrumSprite> {
             ds.updateSprite();
         }
     }
+    //add area of drum sprites that changed since last drawing
+    public void addDirtyBounds(DirtyRegion dirty, float alpha){
+        for (int i = 0; i < size() ; i++){
+            get(i).addDirtyBounds(dirty, alpha);
+        }
+    }
     //draw all drum sprites in the list
     public void drawSprites(Graphics g){
+        drawSprites(g, 1f);
+    }
+    //draw all drum sprites in the list (interpolated between updates)
+    public void drawSprites(Graphics g, float alpha){
         for (int i = 0; i < size() ; i++){
-            get(i).drawSprite(g);
+            get(i).drawSprite(g, alpha);
         }
     }
 }
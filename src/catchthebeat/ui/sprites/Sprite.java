@@ -15,15 +15,19 @@ package catchthebeat.ui.sprites;
  * but we use the sequence to change the image of sprite (the state) as needed
  * only animating its movement
  * 
+ * Sprite remembers where (and which image) it was drawn last time, so it can
+ * tell which part of the panel changed since then (dirty region)
+ * 
  * @author Roman Velic
  * @version 2012.04
  * 
  * original author: David G. Davidson
  */
+import catchthebeat.ui.DirtyRegion;
 import catchthebeat.ui.ImageLoader;
 import java.awt.*;
 import java.awt.image.*;
-import java.util.ArrayList;
+import java.util.List;
 
 public class Sprite 
 {
@@ -37,7 +41,7 @@ public class Sprite
     // instance variables describing sprite image(s)
     private ImageLoader theImageLoader;
     private String[] theImageNames;
-    private ArrayList<BufferedImage> theImages;
+    private List<BufferedImage> theImages; // shared with other sprites (don't modify)
     private int theWidth, theHeight;     // image dimensions
 
     // instance variables describing containing game panel
@@ -49,8 +53,13 @@ public class Sprite
     // instance variables describing coordinates and change of position
     // protected to allow direct access in inheriting sprite subclasses
     protected int theX, theY;                 // location of sprite
+    protected int thePrevX, thePrevY;         // location before last update
     protected int theDeltaX, theDeltaY;       // amount to move for each update
     
+    // where and which image was drawn last time (empty if not drawn)
+    private final Rectangle theDrawnBounds = new Rectangle();
+    private int theDrawnSeqNo = -1;
+    
     // assuming that sprite is rendered as sequence (of possibly one) images
     // then we need to keep a track of the current image
     // used to render the sprite
@@ -71,6 +80,7 @@ public class Sprite
     public Sprite(int x, int y, int pw, int ph,
             ImageLoader iloader, String[] names) { 
         theX = x; theY = y;
+        thePrevX = x; thePrevY = y;
         thePanelWidth = pw; thePanelHeight = ph;
         theDeltaX = XSTEP; theDeltaY = YSTEP;
 
@@ -84,13 +94,7 @@ public class Sprite
     public void setImages(String[] names) {
         // assign the name image(s) to the sprite
         theImageNames = names;
-        theImages = new ArrayList<BufferedImage>() ;
-        for (int i = 0 ; i < names.length; i++){
-            BufferedImage bimage = theImageLoader.getSprite(theImageNames[i]);
-            if (bimage != null) {
-                theImages.add(bimage);
-            }
-        }
+        theImages = theImageLoader.getSprites(names);
         if (theImages.size() == 0){
             System.out.println("No sprite images for " + theImageNames);
             theWidth = SIZE;
@@ -129,12 +133,21 @@ public class Sprite
         theSeqNo = 0 ;
     }
 
+    // position and translation are not animated (previous location moves too)
     public void setPosition(int x, int y) {
         theX = x; theY = y;
+        thePrevX = x; thePrevY = y;
     }
 
     public void translate(int xDist, int yDist) {
         theX += xDist;  theY += yDist;
+        thePrevX += xDist;  thePrevY += yDist;
+    }
+
+    // move to the location (animated from the current location)
+    public void moveTo(int x, int y) {
+        thePrevX = theX; thePrevY = theY;
+        theX = x; theY = y;
     }
 
     public int getX() {
@@ -178,6 +191,8 @@ public class Sprite
     }
     
     public void updateSprite() {
+        // remember location for interpolation
+        thePrevX = theX; thePrevY = theY;
         // move the sprite
         if (isActive()) {
             theTimebase = (theTimebase + 1) % theTimebaseRollover;
@@ -209,14 +224,46 @@ public class Sprite
     }
 
     public void drawSprite(Graphics g) {
+        drawSprite(g, 1f);
+    }
+
+    // add old and new area of the sprite if it changed since it was drawn
+    public void addDirtyBounds(DirtyRegion dirty, float alpha) {
+        int x = thePrevX + Math.round((theX - thePrevX) * alpha);
+        int y = thePrevY + Math.round((theY - thePrevY) * alpha);
         if (isActive()) {
+            if (x != theDrawnBounds.x || y != theDrawnBounds.y 
+                    || theSeqNo != theDrawnSeqNo || theDrawnBounds.isEmpty()) {
+                dirty.add(theDrawnBounds);
+                dirty.add(x, y, theWidth, theHeight);
+            }
+        } else {
+            dirty.add(theDrawnBounds); // will not be drawn anymore
+        }
+    }
+
+    // add area where sprite was drawn, it is not going to be drawn anymore
+    public void addDrawnBounds(DirtyRegion dirty) {
+        dirty.add(theDrawnBounds);
+        theDrawnBounds.setBounds(0, 0, 0, 0);
+    }
+
+    // draw sprite between its previous (alpha = 0) and current (alpha = 1) location
+    public void drawSprite(Graphics g, float alpha) {
+        if (isActive()) {
+            int x = thePrevX + Math.round((theX - thePrevX) * alpha);
+            int y = thePrevY + Math.round((theY - thePrevY) * alpha);
+            theDrawnBounds.setBounds(x, y, theWidth, theHeight);
+            theDrawnSeqNo = theSeqNo;
             if (theImages.size() == 0) {   // the sprite has no image
                 g.setColor(Color.yellow);   // draw a yellow circle instead
-                g.fillOval(theX, theY, SIZE, SIZE);
+                g.fillOval(x, y, SIZE, SIZE);
                 g.setColor(Color.black);
             } else {
-                g.drawImage(theImages.get(theSeqNo), theX, theY, null);
+                g.drawImage(theImages.get(theSeqNo), x, y, null);
             }
+        } else {
+            theDrawnBounds.setBounds(0, 0, 0, 0);
         }
     } 
 }
@@ -0,0 +1,128 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class AppendLogTest
+ *
+ * Checks how the data files of the game (AppendLog) survive a crash.
+ *
+ * 1) A last line without a line break (torn by a power cut) is not read and
+ *    the file is rewritten. If the rewrite does not happen, the torn line is
+ *    cut off before the next append, so the new line is not glued to it
+ * 2) If only the temporary file of an unfinished rewrite is left, it is read
+ *    and replaced by the file
+ * 3) A compaction replaces the whole file, the lines appended after it follow
+ *    the new data
+ * 4) The harness exits with status 1 if a check fails (run by "ant harness")
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class AppendLogTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static int failures = 0;
+
+    // Nested handler collecting the lines read
+    private static class Lines implements AppendLog.LineHandler {
+
+        final List<String> lines = new ArrayList<String>();
+
+        @Override
+        public boolean line(String line) {
+            lines.add(line);
+            return true;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        File dir = Files.createTempDirectory("appendlog").toFile();
+        tornLineCutBeforeAppend(new File(dir, "torn.txt"));
+        tornLineRewritten(new File(dir, "rewritten.txt"));
+        temporaryFileRead(new File(dir, "temporary.txt"));
+        compactThenAppend(new File(dir, "compact.txt"));
+        System.out.println(failures == 0 ? "All append log checks passed" : failures + " append log checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    // torn line is not read and never glued to the next line
+    private static void tornLineCutBeforeAppend(File file) throws IOException {
+        write(file, "a\nb\nc");
+        AppendLog log = new AppendLog(file.getPath(), "Torn");
+        Lines lines = new Lines();
+        check("torn line asks for a rewrite", log.read(lines));
+        check("torn line not read", lines.lines.size() == 2 && lines.lines.get(1).equals("b"));
+        log.append("d\n"); // rewrite skipped (as if it failed)
+        log.append("e\n");
+        log.close();
+        check("torn line cut off before append", read(file).equals("a\nb\nd\ne\n"));
+    }
+
+    // rewrite after a torn line replaces the file
+    private static void tornLineRewritten(File file) throws IOException {
+        write(file, "a\nb");
+        AppendLog log = new AppendLog(file.getPath(), "Rewritten");
+        Lines lines = new Lines();
+        check("torn line asks for a rewrite", log.read(lines));
+        log.compact("a\n");
+        log.append("c\n");
+        log.close();
+        check("rewritten file kept its lines", read(file).equals("a\nc\n"));
+    }
+
+    // temporary file of an unfinished rewrite is read
+    private static void temporaryFileRead(File file) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        write(tempFile, "x\ny\n");
+        AppendLog log = new AppendLog(file.getPath(), "Temporary");
+        check("temporary file exists", log.exists());
+        Lines lines = new Lines();
+        check("temporary file asks for a rewrite", log.read(lines));
+        check("temporary file read", lines.lines.size() == 2 && lines.lines.get(0).equals("x"));
+        log.compact("x\ny\n");
+        log.close();
+        check("file replaced the temporary one", file.exists() && !tempFile.exists()
+                && read(file).equals("x\ny\n"));
+    }
+
+    // lines appended after a compaction follow its data
+    private static void compactThenAppend(File file) throws IOException {
+        AppendLog log = new AppendLog(file.getPath(), "Compact");
+        check("no file yet", !log.exists() && !log.read(new Lines()));
+        for (int i = 0; i < 100; i++) {
+            log.append(i + "\n");
+        }
+        log.compact("all\n");
+        log.append("100\n");
+        log.close();
+        check("compaction replaced the appended lines", read(file).equals("all\n100\n"));
+        check("closed log takes no lines", !log.append("101\n"));
+    }
+
+    private static void check(String name, boolean passed) {
+        if (!passed) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+
+    private static void write(File file, String data) throws IOException {
+        Files.write(file.toPath(), data.getBytes(UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    }
+}
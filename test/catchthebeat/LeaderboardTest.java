@@ -0,0 +1,133 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package catchthebeat;
+
+import catchthebeat.game.Game;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class LeaderboardTest
+ *
+ * Checks the ranks of the Leaderboard (Fenwick trees) against a plain list of
+ * all the scores.
+ *
+ * 1) Random scores are added to every mode and difficulty, the points grow past
+ *    the initial capacity of the trees, so the trees are rebuilt on the way
+ * 2) Rank, count and the points of the best scores (pointsAt) of every setting,
+ *    ANY included, must be those of the sorted list
+ * 3) The leaderboard is read again from its file (after many compactions),
+ *    the answers must stay the same and the file must stay small
+ * 4) The harness exits with status 1 if a check fails (run by "ant harness")
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class LeaderboardTest {
+
+    private static final int SCORES = 5000;
+    private static final int TOP = 20;
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        File dir = Files.createTempDirectory("leaderboard").toFile();
+        String fileName = new File(dir, "leaderboard.txt").getPath();
+        HighScoreStore highScores = new HighScoreStore(new File(dir, "highScore.txt").getPath());
+        Leaderboard leaderboard = new Leaderboard(fileName, highScores);
+        List<int[]> scores = new ArrayList<int[]>(); // mode, difficulty, points
+        Random random = new Random(2012);
+        for (int i = 0; i < SCORES; i++) {
+            int mode = random.nextInt(2);
+            int difficulty = random.nextInt(Game.HARD + 1);
+            // mostly low points, some far past the initial capacity
+            int points = (random.nextInt(10) == 0) ? random.nextInt(1000) : random.nextInt(40);
+            int rank = leaderboard.add(mode, difficulty, points);
+            scores.add(new int[] {mode, difficulty, points});
+            if (rank != expectedRank(scores, mode, difficulty, points)) {
+                fail("rank returned by add " + mode + "/" + difficulty + "/" + points);
+            }
+        }
+        compare(leaderboard, scores, "added");
+        leaderboard.close();
+        highScores.close();
+
+        Leaderboard read = new Leaderboard(fileName, highScores);
+        compare(read, scores, "read again");
+        read.close();
+        int lines = Files.readAllLines(new File(fileName).toPath(), Charset.forName("UTF-8")).size();
+        if (lines > SCORES / 2) {
+            fail("file not compacted, " + lines + " lines");
+        }
+        System.out.println(failures == 0 ? "All leaderboard checks passed (" + lines + " lines in the file)"
+                : failures + " leaderboard checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    // every setting (ANY included) against the list
+    private static void compare(Leaderboard leaderboard, List<int[]> scores, String when) {
+        for (int mode = HighScoreStore.ANY; mode <= HighScoreStore.MULTI_PLAYER; mode++) {
+            for (int difficulty = HighScoreStore.ANY; difficulty <= Game.HARD; difficulty++) {
+                List<Integer> points = points(scores, mode, difficulty);
+                String setting = when + " " + mode + "/" + difficulty;
+                if (leaderboard.getCount(mode, difficulty) != points.size()) {
+                    fail("count " + setting);
+                }
+                int[] top = leaderboard.getTopPoints(mode, difficulty, TOP);
+                if (top.length != Math.min(TOP, points.size())) {
+                    fail("number of top points " + setting);
+                    continue;
+                }
+                for (int i = 0; i < top.length; i++) {
+                    if (top[i] != points.get(i)) {
+                        fail("top points " + setting + " at rank " + (i + 1));
+                        break;
+                    }
+                }
+                for (int p = 0; p <= 1000; p += 7) {
+                    if (leaderboard.getRank(mode, difficulty, p) != expectedRank(scores, mode, difficulty, p)) {
+                        fail("rank " + setting + " of " + p + " points");
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    // points of the setting, best first
+    private static List<Integer> points(List<int[]> scores, int mode, int difficulty) {
+        List<Integer> points = new ArrayList<Integer>();
+        for (int[] score : scores) {
+            if ((mode == HighScoreStore.ANY || mode == score[0])
+                    && (difficulty == HighScoreStore.ANY || difficulty == score[1])) {
+                points.add(score[2]);
+            }
+        }
+        Collections.sort(points, Collections.reverseOrder());
+        return points;
+    }
+
+    private static int expectedRank(List<int[]> scores, int mode, int difficulty, int points) {
+        int rank = 1;
+        for (int p : points(scores, mode, difficulty)) {
+            if (p > points) {
+                rank++;
+            }
+        }
+        return rank;
+    }
+
+    private static void fail(String name) {
+        failures++;
+        System.out.println("FAILED: " + name);
+    }
+}
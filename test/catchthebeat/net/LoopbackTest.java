@@ -0,0 +1,181 @@
+package catchthebeat.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Class LoopbackTest
+ *
+ * Plays many rooms at once against a match server over the loopback
+ * interface and checks that every room ends the same for all its players.
+ *
+ * 1) The server runs in its own threads with a short tick period, every
+ *    player is a client with its own thread (Bot).
+ * 2) A bot learns the sequence from the beats broadcast by the server and
+ *    repeats it when it is his turn, hitting a wrong drum with the given
+ *    chance, so the matches end.
+ * 3) The points and the winner of a room must be the same in the END message
+ *    of every player of the room.
+ * 4) How late the rooms ticked is reported by the server.
+ * 5) The harness exits with status 1 if a player got no result or the results
+ *    of a room differ (run by "ant harness").
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class LoopbackTest {
+
+    // Nested client playing one seat
+    private static class Bot implements Runnable {
+
+        private final InetSocketAddress address;
+        private final int roomId;
+        private final int players;
+        private final int difficulty;
+        private final double errorRate;
+        private final SplittableRandom random;
+        private final CountDownLatch done;
+        private int[] sequence = new int[16];
+        private int size;
+        private int points = -1;
+        private int winner = -1;
+        private int error;
+
+        Bot(InetSocketAddress address, int roomId, int players, int difficulty, double errorRate,
+                SplittableRandom random, CountDownLatch done) {
+            this.address = address;
+            this.roomId = roomId;
+            this.players = players;
+            this.difficulty = difficulty;
+            this.errorRate = errorRate;
+            this.random = random;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                MatchClient client = new MatchClient(address);
+                client.join(roomId, players, difficulty, "Bot " + roomId);
+                play(client);
+                client.close();
+            } catch (IOException e) {
+                error = -1;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private void play(MatchClient client) throws IOException {
+            int seat = 0;
+            int drums = 1;
+            int played = 0; // correct beats in this round
+            while (client.next()) {
+                switch (client.getType()) {
+                    case Protocol.JOINED:
+                        seat = client.getA();
+                        break;
+                    case Protocol.START:
+                        drums = client.getC();
+                        break;
+                    case Protocol.ROUND:
+                        played = 0;
+                        break;
+                    case Protocol.BEAT_PLAYED:
+                        if (client.getC() == 1) {
+                            if (played == size) {
+                                add(client.getB()); // beat added at the end
+                            }
+                            played++;
+                        }
+                        break;
+                    case Protocol.TICK:
+                        if (client.getA() == seat && client.getB() == 1) {
+                            int beat = (client.getC() == 1)
+                                    ? random.nextInt(drums) + 1 : sequence[client.getValue()];
+                            if (random.nextDouble() < errorRate) {
+                                beat = beat % drums + 1; // wrong drum
+                            }
+                            client.beat(beat);
+                        }
+                        break;
+                    case Protocol.END:
+                        points = client.getValue();
+                        winner = client.getB();
+                        return;
+                    case Protocol.ERROR:
+                        error = client.getA();
+                        return;
+                }
+            }
+        }
+
+        private void add(int beat) {
+            if (size == sequence.length) {
+                sequence = Arrays.copyOf(sequence, size * 2);
+            }
+            sequence[size++] = beat;
+        }
+    }
+
+    /**
+     * Usage: LoopbackTest [rooms] [players] [difficulty] [tick period ms] [error rate] [shards]
+     */
+    public static void main(String[] args) throws Exception {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int difficulty = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        long period = args.length > 3 ? Long.parseLong(args[3]) : 50;
+        double errorRate = args.length > 4 ? Double.parseDouble(args[4]) : 0.05;
+        int noShards = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+
+        long[] periods = {period, period, period};
+        MatchServer server = new MatchServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                periods, rooms, MatchServer.DEFAULT_MAX_ROUNDS, noShards);
+        Thread serverThread = new Thread(server, "Match server");
+        serverThread.start();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+
+        CountDownLatch done = new CountDownLatch(rooms * players);
+        Bot[][] bots = new Bot[rooms][players];
+        SplittableRandom random = new SplittableRandom(2012);
+        long start = System.nanoTime();
+        for (int room = 0; room < rooms; room++) {
+            for (int i = 0; i < players; i++) {
+                bots[room][i] = new Bot(address, room, players, difficulty, errorRate, random.split(), done);
+                Thread thread = new Thread(bots[room][i], "Bot " + room + "/" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        server.close();
+        serverThread.join();
+
+        int errors = 0;
+        int mismatches = 0;
+        long points = 0;
+        for (int room = 0; room < rooms; room++) {
+            for (Bot bot : bots[room]) {
+                if (bot.error != 0 || bot.points < 0) {
+                    errors++;
+                } else if (bot.points != bots[room][0].points || bot.winner != bots[room][0].winner) {
+                    mismatches++;
+                }
+            }
+            points += bots[room][0].points;
+        }
+        System.out.println(rooms + " rooms of " + players + " players in " + seconds + " s, "
+                + errors + " players without a result, " + mismatches + " results differing within a room, "
+                + "mean points " + (double) points / rooms);
+        System.out.println("Ticks of the rooms on " + noShards + " shards: " + server.getSkew());
+        if (errors > 0 || mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package catchthebeat.net;
+
+import catchthebeat.game.Game;
+import catchthebeat.game.MultiPlayerGame;
+import catchthebeat.game.SeededGameRandom;
+import catchthebeat.sim.ErrorModelPlayer;
+import catchthebeat.sim.HeadlessLink;
+import catchthebeat.sim.ScriptedPlayer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class SpectatorTest
+ *
+ * Streams a simulated match to many displays over the loopback interface and
+ * checks that every display ends with the state of the game.
+ *
+ * 1) The match runs in its own thread and publishes to a SpectatorFeed after
+ *    every tick and beat, the time of the publishing is measured.
+ * 2) A SpectatorServer sends the feed to the displays, all displays are read
+ *    by one thread (SpectatorView each). Some displays are slow: they have
+ *    a small socket buffer and are read only every SLOW_READ_MILLIS, so they
+ *    fall behind and are skipped to newer keyframes.
+ * 3) Once the match is over, the points, round, current player and the whole
+ *    sequence of every display must be those of the game.
+ * 4) The harness exits with status 1 if a display differs (run by
+ *    "ant harness").
+ *
+ * @author agent
+ * @version 2026.10
+ */
+public class SpectatorTest {
+
+    private static final long SLOW_READ_MILLIS = 50;
+    private static final long TIMEOUT_MILLIS = 60000;
+
+    // Nested thread playing the match and publishing it
+    private static class Match implements Runnable {
+
+        private final SpectatorFeed feed;
+        private final long tickMicros;
+        private final Game game;
+        private final HeadlessLink link = new HeadlessLink();
+        private final ScriptedPlayer[] players;
+        private long publishes;
+        private long publishNanos;
+        private long maxPublishNanos;
+
+        Match(SpectatorFeed feed, long tickMicros, long seed) {
+            this.feed = feed;
+            this.tickMicros = tickMicros;
+            SplittableRandom random = new SplittableRandom(seed);
+            String[] names = {"Player 1", "Player 2", "Player 3"};
+            game = new MultiPlayerGame(names, Game.EASY, link, new SeededGameRandom(random.nextLong()));
+            link.setGame(game);
+            players = new ScriptedPlayer[names.length];
+            for (int i = 0; i < players.length; i++) {
+                players[i] = new ErrorModelPlayer(random.split(), 1000, 0.0001, 0, 0.00005);
+            }
+        }
+
+        @Override
+        public void run() {
+            publish();
+            while (game.isRunning()) {
+                if (tickMicros > 0) {
+                    LockSupport.parkNanos(tickMicros * 1000L);
+                }
+                link.tick();
+                publish();
+                if (game.isAwaitingBeat() && !game.getCurrentPlayer().isComputer()) {
+                    int beat = players[game.getCurrentPlayerIndex() - 1].play(game);
+                    if (beat != 0) {
+                        link.humanKeyPressed(beat);
+                        publish();
+                    }
+                }
+            }
+            link.endMatch();
+            publish();
+        }
+
+        private void publish() {
+            long start = System.nanoTime();
+            feed.publish(game);
+            long time = System.nanoTime() - start;
+            publishes++;
+            publishNanos += time;
+            maxPublishNanos = Math.max(maxPublishNanos, time);
+        }
+
+        // the display shows the game as it ended
+        boolean matches(SpectatorView view) {
+            if (view.isRunning() || view.getPoints() != game.getCurrentScore().getPoints()
+                    || view.getRoundNumber() != game.getRoundNumber()
+                    || view.getRoundResult() != game.getRoundResult()
+                    || view.getPlayerIndex() != game.getCurrentPlayerIndex()
+                    || view.getNoBeats() != game.getBeats().size()) {
+                return false;
+            }
+            for (int i = 0; i < view.getNoBeats(); i++) {
+                if (view.getBeat(i) != game.getBeats().get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Nested display: its socket, buffer and view
+    private static class Display {
+
+        private final SocketChannel channel;
+        private final boolean slow;
+        private final ByteBuffer in = WireProtocol.allocate(256);
+        private final SpectatorView view = new SpectatorView();
+        private boolean done;
+
+        Display(SocketChannel channel, boolean slow) {
+            this.channel = channel;
+            this.slow = slow;
+        }
+
+        // read what has arrived, false once the match is over (or on error)
+        boolean read() {
+            try {
+                int read;
+                while ((read = channel.read(in)) > 0) {
+                    in.flip();
+                    view.apply(in);
+                    in.compact();
+                }
+                done = read < 0 || (view.isSynced() && !view.isRunning());
+            } catch (Exception e) {
+                done = true;
+            }
+            return !done;
+        }
+    }
+
+    /**
+     * Usage: SpectatorTest [displays] [slow displays] [tick period us] [seed] [feed capacity]
+     */
+    public static void main(String[] args) throws Exception {
+        int displays = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int slowDisplays = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        long tickMicros = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 2012;
+        int capacity = args.length > 4 ? Integer.parseInt(args[4]) : SpectatorFeed.DEFAULT_CAPACITY;
+
+        SpectatorFeed feed = new SpectatorFeed(capacity);
+        SpectatorServer server = new SpectatorServer(feed,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), displays);
+        Thread serverThread = new Thread(server, "Spectator server");
+        serverThread.start();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+
+        Selector selector = Selector.open();
+        Display[] all = new Display[displays];
+        for (int i = 0; i < displays; i++) {
+            boolean slow = i < slowDisplays;
+            SocketChannel channel = SocketChannel.open();
+            if (slow) {
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, 1024);
+            }
+            channel.connect(address);
+            channel.configureBlocking(false);
+            all[i] = new Display(channel, slow);
+            channel.register(selector, slow ? 0 : SelectionKey.OP_READ, all[i]);
+        }
+
+        Match match = new Match(feed, tickMicros, seed);
+        Thread matchThread = new Thread(match, "Match");
+        long start = System.nanoTime();
+        matchThread.start();
+        int open = displays;
+        long lastSlowRead = 0;
+        while (open > 0 && System.nanoTime() - start < TIMEOUT_MILLIS * 1000000L) {
+            selector.select(SLOW_READ_MILLIS);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Display display = (Display) key.attachment();
+                if (!display.read()) {
+                    key.cancel();
+                    open--;
+                }
+            }
+            if (System.nanoTime() - lastSlowRead > SLOW_READ_MILLIS * 1000000L) {
+                lastSlowRead = System.nanoTime();
+                for (Display display : all) {
+                    if (display.slow && !display.done && !display.read()) {
+                        open--;
+                    }
+                }
+            }
+        }
+        matchThread.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        server.close();
+        serverThread.join();
+
+        int wrong = 0;
+        long keyframes = 0;
+        for (Display display : all) {
+            if (!match.matches(display.view)) {
+                wrong++;
+            }
+            keyframes += display.view.getKeyframes();
+            display.channel.close();
+        }
+        selector.close();
+        System.out.println(displays + " displays (" + slowDisplays + " slow) of a match of "
+                + match.game.getRoundNumber() + " rounds, " + feed.getPublished() + " frames in " + seconds + " s");
+        System.out.println(wrong + " displays differing from the game, " + server.getSkips()
+                + " skips of slow displays, " + keyframes + " keyframes read");
+        System.out.printf("publish: %d calls, mean %.0f ns, max %.1f us%n", match.publishes,
+                (double) match.publishNanos / match.publishes, match.maxPublishNanos / 1000.0);
+        if (wrong > 0) {
+            System.exit(1);
+        }
+    }
+}